@@ -0,0 +1,196 @@
+/**
+ *  @file   MapBenchmarks.java
+ *  @brief  JMH suite for the main operations of the program: loading
+ *          text and binary maps, shortest paths over seeded random
+ *          pairs, minimum spanning trees, and drawing the Canvas into an
+ *          offscreen image, all on a grid map from MapGenerator. The
+ *          tasks themselves are set up by Benchmark.tasks(), so this and
+ *          the quick Benchmark runner time the same code.
+ *
+ *          gradle jmh [-Pjmh.args="-p width=500 -p height=500 route"]
+ *  @author Mustafa Siddiqui
+ *  @date   10/18/2026
+ */
+
+package bench;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+    JMH will not run benchmarks in the default package, and classes in a
+    package cannot name the program's classes, which are all in the
+    default package. So the states look up MapGenerator.write() and
+    Benchmark.tasks() by reflection once per trial, and the benchmarks
+    only call the Callables they get back.
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class MapBenchmarks {
+    // start/end pairs routed by one call of a route benchmark
+    static final int PAIRS = 200;
+
+    /*
+        A generated grid map, written to a temporary file once per trial.
+    */
+    @State(Scope.Benchmark)
+    public static class GridMap {
+        @Param({"300"})
+        public int width;
+
+        @Param({"300"})
+        public int height;
+
+        String file;
+
+        @Setup(Level.Trial)
+        public void generate() throws Exception {
+            File generated = File.createTempFile("grid", ".txt");
+            generated.deleteOnExit();
+            Class.forName("MapGenerator").getMethod("write", String.class, int.class, int.class, long.class)
+                 .invoke(null, generated.getPath(), width, height, 1L);
+            file = generated.getPath();
+        }
+
+        /*
+            Returns the tasks of Benchmark.tasks() whose names start with
+            prefix, set up on this map.
+        */
+        @SuppressWarnings("unchecked")
+        Map<String, Callable<Long>> tasks(String prefix) throws Exception {
+            return (Map<String, Callable<Long>>)Class.forName("Benchmark")
+                    .getMethod("tasks", String.class, int.class, String.class).invoke(null, file, PAIRS, prefix);
+        }
+    }
+
+    /*
+        Fixtures for each group of benchmarks, one per thread since the
+        tasks share a search context or a Canvas.
+    */
+
+    @State(Scope.Thread)
+    public static class Loads {
+        Callable<Long> text;
+        Callable<Long> binary;
+
+        @Setup(Level.Trial)
+        public void setup(GridMap map) throws Exception {
+            Map<String, Callable<Long>> tasks = map.tasks("load.");
+            text = tasks.get("load.text");
+            binary = tasks.get("load.binary");
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Routes {
+        Callable<Long> dijkstra;
+        Callable<Long> astar;
+        Callable<Long> bidirectional;
+
+        @Setup(Level.Trial)
+        public void setup(GridMap map) throws Exception {
+            Map<String, Callable<Long>> tasks = map.tasks("route.");
+            dijkstra = tasks.get("route.dijkstra");
+            astar = tasks.get("route.astar");
+            bidirectional = tasks.get("route.bidirectional");
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class SpanningTrees {
+        Callable<Long> kruskal;
+        Callable<Long> boruvka;
+
+        @Setup(Level.Trial)
+        public void setup(GridMap map) throws Exception {
+            Map<String, Callable<Long>> tasks = map.tasks("mst.");
+            kruskal = tasks.get("mst.kruskal");
+            boruvka = tasks.get("mst.boruvka");
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Drawing {
+        Callable<Long> first;
+        Callable<Long> repaint;
+
+        @Setup(Level.Trial)
+        public void setup(GridMap map) throws Exception {
+            Map<String, Callable<Long>> tasks = map.tasks("canvas.");
+            first = tasks.get("canvas.first");
+            repaint = tasks.get("canvas.repaint");
+        }
+    }
+
+    /*
+        The benchmarks return what their task returns so JMH keeps the
+        work alive.
+    */
+
+    @Benchmark
+    public long loadText(Loads state) throws Exception {
+        return state.text.call();
+    }
+
+    @Benchmark
+    public long loadBinary(Loads state) throws Exception {
+        return state.binary.call();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public long routeDijkstra(Routes state) throws Exception {
+        return state.dijkstra.call();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public long routeAStar(Routes state) throws Exception {
+        return state.astar.call();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public long routeBidirectional(Routes state) throws Exception {
+        return state.bidirectional.call();
+    }
+
+    @Benchmark
+    public long mstKruskal(SpanningTrees state) throws Exception {
+        return state.kruskal.call();
+    }
+
+    @Benchmark
+    public long mstBoruvka(SpanningTrees state) throws Exception {
+        return state.boruvka.call();
+    }
+
+    @Benchmark
+    public long canvasFirst(Drawing state) throws Exception {
+        return state.first.call();
+    }
+
+    @Benchmark
+    public long canvasRepaint(Drawing state) throws Exception {
+        return state.repaint.call();
+    }
+}
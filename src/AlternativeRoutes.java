@@ -0,0 +1,328 @@
+/**
+ *  @file   AlternativeRoutes.java
+ *  @brief  Class to find a few reasonable alternatives to the shortest
+ *          route with the plateau method. One search grows a shortest
+ *          path tree out of the start and one grows a tree into the end
+ *          (roads are two-way, so that is a search from the end), both
+ *          only as far as the longest route allowed. Roads that lie on
+ *          both trees form plateaus, and every plateau gives a route:
+ *          forward tree to its far end, then backward tree to the end.
+ *          The plateau part of such a route is a shortest path, so long
+ *          plateaus give routes that are locally optimal and not just a
+ *          shortest route with a detour stuck on. A request costs the two
+ *          bounded searches, about 2-3 single queries, however many
+ *          candidates there are.
+ *  @author Mustafa Siddiqui
+ *  @date   10/18/2026
+ */
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class AlternativeRoutes {
+    // route colors, the shortest route first, reused if there are more routes
+    private static final Color[] COLORS = {
+        Color.RED, new Color(0, 120, 200), new Color(0, 160, 0), new Color(160, 0, 160), new Color(230, 130, 0)
+    };
+
+    private Graph map;
+
+    // longest route allowed, as a multiple of the shortest distance
+    private double stretch;
+
+    // most of the shortest distance a route may share with the routes
+    // already chosen
+    private double maxShare;
+
+    // shortest plateau allowed, as a fraction of the shortest distance
+    private double minPlateau;
+
+    /*
+        Constructor for the AlternativeRoutes class with the usual limits:
+        routes at most 25% longer than the shortest, sharing at most 80%
+        of it with the routes before them, on plateaus of at least 25%
+        of it.
+        @param: map -   graph to search
+    */
+    public AlternativeRoutes(Graph map) {
+        this(map, 1.25, 0.8, 0.25);
+    }
+
+    /*
+        Constructor for the AlternativeRoutes class.
+        @param: map         -   graph to search
+        @param: stretch     -   longest route allowed, as a multiple of
+                                the shortest distance (at least 1)
+        @param: maxShare    -   fraction of the shortest distance a route
+                                may share with the routes chosen before it
+        @param: minPlateau  -   shortest plateau allowed, as a fraction of
+                                the shortest distance
+    */
+    public AlternativeRoutes(Graph map, double stretch, double maxShare, double minPlateau) {
+        if (stretch < 1 || maxShare < 0 || minPlateau < 0) {
+            throw new IllegalArgumentException("Stretch must be at least 1 and the fractions not negative");
+        }
+
+        map.freeze();
+        this.map = map;
+        this.stretch = stretch;
+        this.maxShare = maxShare;
+        this.minPlateau = minPlateau;
+    }
+
+    /*
+        Find the shortest route and up to count - 1 alternatives, using
+        two pooled search contexts.
+        @return: the routes, shortest first, or an empty list if end
+                 cannot be reached from start
+    */
+    public ArrayList<Route> find(int start, int end, int count) {
+        SearchContext forward = map.acquireContext();
+        SearchContext backward = map.acquireContext();
+        try {
+            return find(start, end, count, forward, backward);
+        }
+        finally {
+            map.releaseContext(forward);
+            map.releaseContext(backward);
+        }
+    }
+
+    /*
+        Find the shortest route and up to count - 1 alternatives. The
+        candidates from the plateaus are tried from the best (shortest
+        route for the longest plateau) down, and a candidate is kept if
+        it does not go around a loop and shares little enough of its
+        roads with the routes already kept.
+        @param: forward     -   context left holding the tree out of start
+        @param: backward    -   context left holding the tree into end
+    */
+    public ArrayList<Route> find(int start, int end, int count, SearchContext forward, SearchContext backward) {
+        long startTime = Stats.start();
+        ArrayList<Route> routes = new ArrayList<Route>();
+        IntList settled = new IntList();
+
+        double shortest = grow(start, end, forward, settled);
+        if (shortest == Double.POSITIVE_INFINITY || count < 1) {
+            Stats.endQuery(startTime, forward, null);
+            return routes;
+        }
+        double limit = shortest * stretch;
+        map.shortestPathTree(end, limit, backward, null);
+        int work = forward.getSettledCount() + backward.getSettledCount();
+
+        Route best = Route.fromSearch(forward, end);
+        best.setSettled(work);
+        routes.add(best);
+
+        // far end of every plateau that makes a short enough route, with
+        // how much longer the route is than its plateau
+        IntList bottoms = new IntList();
+        DoubleList scores = new DoubleList();
+        for (int i = 0; i < settled.size(); i++) {
+            int b = settled.get(i);
+            double length = forward.getDistance(b) + backward.getDistance(b);
+            if (b == end || length > limit || !onPlateau(forward.getParent(b), b, forward, backward) ||
+                onPlateau(b, backward.getParent(b), forward, backward)) {
+                continue;
+            }
+
+            int a = b;
+            while (onPlateau(forward.getParent(a), a, forward, backward)) {
+                a = forward.getParent(a);
+            }
+            double plateau = forward.getDistance(b) - forward.getDistance(a);
+            if (plateau >= minPlateau * shortest) {
+                bottoms.add(b);
+                scores.add(length - plateau);
+            }
+        }
+
+        Integer[] order = new Integer[bottoms.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (x, y) -> Double.compare(scores.get(x), scores.get(y)));
+
+        int[] taken = roadsOf(best);
+        for (int i = 0; i < order.length && routes.size() < count; i++) {
+            Route candidate = via(bottoms.get(order[i]), forward, backward);
+            if (candidate == null || shared(candidate, taken) > maxShare * shortest) {
+                continue;
+            }
+
+            candidate.setSettled(work);
+            routes.add(candidate);
+            int[] roads = roadsOf(candidate);
+            int[] merged = Arrays.copyOf(taken, taken.length + roads.length);
+            System.arraycopy(roads, 0, merged, taken.length, roads.length);
+            Arrays.sort(merged);
+            taken = merged;
+        }
+
+        Stats.endQuery(startTime, forward, backward);
+        return routes;
+    }
+
+    /*
+        Helper method to run Dijkstra's algorithm from start until end is
+        settled and then on until every vertex within the stretch of the
+        shortest distance is settled, so the forward tree covers every
+        route that can be allowed.
+        @param: settled -   filled with the vertices settled, nearest first
+        @return: the shortest distance, or infinity if end is unreachable
+    */
+    private double grow(int start, int end, SearchContext ctx, IntList settled) {
+        ctx.reset();
+        IndexedHeap unvisited = ctx.getQueue();
+        double[] weights = map.weights;
+        double limit = Double.POSITIVE_INFINITY;
+
+        ctx.update(start, 0, -1);
+        unvisited.insertOrDecrease(start, 0);
+        while (!unvisited.isEmpty()) {
+            int current = unvisited.poll();
+            double currentDistance = ctx.getDistance(current);
+            if (currentDistance > limit) {
+                break;
+            }
+            ctx.settle(current);
+            settled.add(current);
+
+            if (current == end) {
+                limit = currentDistance * stretch;
+            }
+
+            ctx.relaxed(map.offsets[current + 1] - map.offsets[current]);
+            for (int e = map.offsets[current]; e < map.offsets[current + 1]; e++) {
+                int adjacent = map.targets[e];
+                double adjDistance = currentDistance + weights[e];
+                if (adjDistance <= limit && adjDistance < ctx.getDistance(adjacent)) {
+                    ctx.update(adjacent, adjDistance, current);
+                    unvisited.insertOrDecrease(adjacent, adjDistance);
+                }
+            }
+        }
+
+        return ctx.isSettled(end) ? ctx.getDistance(end) : Double.POSITIVE_INFINITY;
+    }
+
+    /*
+        Helper method to tell whether the road from u to v is on both
+        trees: v's parent out of the start is u and u's parent into the
+        end is v.
+    */
+    private static boolean onPlateau(int u, int v, SearchContext forward, SearchContext backward) {
+        return u >= 0 && v >= 0 && forward.getParent(v) == u && backward.isSettled(u) && backward.getParent(u) == v;
+    }
+
+    /*
+        Helper method to build the route through a vertex: its path in the
+        forward tree, then its path in the backward tree.
+        @return: the route, or null if it goes through a vertex twice
+    */
+    private Route via(int b, SearchContext forward, SearchContext backward) {
+        int head = 0;
+        for (int v = b; v != -1; v = forward.getParent(v)) {
+            head++;
+        }
+        int tail = 0;
+        for (int v = backward.getParent(b); v != -1; v = backward.getParent(v)) {
+            tail++;
+        }
+
+        int[] path = new int[head + tail];
+        double[] dist = new double[head + tail];
+        for (int v = b, i = head - 1; v != -1; v = forward.getParent(v), i--) {
+            path[i] = v;
+            dist[i] = forward.getDistance(v);
+        }
+        double total = forward.getDistance(b) + backward.getDistance(b);
+        for (int v = backward.getParent(b), i = head; v != -1; v = backward.getParent(v), i++) {
+            path[i] = v;
+            dist[i] = total - backward.getDistance(v);
+        }
+
+        int[] sorted = path.clone();
+        Arrays.sort(sorted);
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i] == sorted[i - 1]) {
+                return null;
+            }
+        }
+
+        return new Route(path, dist);
+    }
+
+    /*
+        Helper method to find the roads a route travels.
+        @return: road indices, sorted
+    */
+    private int[] roadsOf(Route route) {
+        int[] path = route.getVertices();
+        int[] roads = new int[path.length - 1];
+        for (int i = 0; i + 1 < path.length; i++) {
+            roads[i] = roadBetween(path[i], path[i + 1]);
+        }
+
+        Arrays.sort(roads);
+        return roads;
+    }
+
+    /*
+        Helper method to measure the miles of a route on the given roads.
+        @param: taken   -   road indices, sorted
+    */
+    private double shared(Route route, int[] taken) {
+        int[] path = route.getVertices();
+        double[] dist = route.getDistances();
+        double miles = 0;
+        for (int i = 0; i + 1 < path.length; i++) {
+            if (Arrays.binarySearch(taken, roadBetween(path[i], path[i + 1])) >= 0) {
+                miles += dist[i + 1] - dist[i];
+            }
+        }
+
+        return miles;
+    }
+
+    /*
+        Helper method to find the road a route takes between two
+        intersections, the shortest if more than one joins them.
+    */
+    private int roadBetween(int u, int v) {
+        double[] weights = map.weights;
+        int best = -1;
+        for (int e = map.offsets[u]; e < map.offsets[u + 1]; e++) {
+            if (map.targets[e] == v && (best < 0 || weights[e] < weights[best])) {
+                best = e;
+            }
+        }
+
+        return map.edgeRoad[best];
+    }
+
+    /*
+        Returns the color a route is drawn in, index 0 being the shortest.
+    */
+    public static Color colorOf(int route) {
+        return COLORS[route % COLORS.length];
+    }
+
+    /*
+        Get methods for different parameters.
+    */
+
+    public double getStretch() {
+        return stretch;
+    }
+
+    public double getMaxShare() {
+        return maxShare;
+    }
+
+    public double getMinPlateau() {
+        return minPlateau;
+    }
+}
@@ -0,0 +1,298 @@
+/**
+ *  @file   BatchRouter.java
+ *  @brief  Class to answer a file of route queries against one loaded map
+ *          on several threads. Each worker keeps its own search contexts
+ *          for the whole run, results are written out as soon as they are
+ *          found, and every query's latency goes into a histogram.
+ *  @author Mustafa Siddiqui
+ *  @date   10/18/2026
+ */
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class BatchRouter {
+    private Graph map;
+
+    // how queries are answered: the hierarchy if there is one, else a
+    // bidirectional or one-way search with an optional heuristic
+    private ContractionHierarchy hierarchy;
+    private Heuristic h;
+    private BidirectionalSearch bidirectional;
+
+    private int threads;
+
+    // write the vertices of every route, not only its length
+    private boolean writePaths = false;
+
+    // routes of pairs asked before, or null to search every query
+    private RouteCache cache;
+
+    // built the first time a query gives coordinates instead of ids
+    private SpatialIndex index;
+
+    // input and output shared by the workers, each guarded by itself
+    private BufferedReader queries;
+    private BufferedWriter results;
+    private int lineNumber = 0;
+
+    // outcome of the last run
+    private LatencyHistogram latencies = new LatencyHistogram();
+    private AtomicLong routed = new AtomicLong();
+    private AtomicLong unreachable = new AtomicLong();
+    private AtomicLong unknown = new AtomicLong();
+    private long elapsed = 0;
+
+    /*
+        Constructor for the BatchRouter class.
+        @param: map             -   graph to route on
+        @param: hierarchy       -   contraction hierarchy of the map, or null
+        @param: h               -   heuristic for A*, or null for Dijkstra
+        @param: bidirectional   -   search from both ends at once
+        @param: threads         -   number of queries answered at a time
+    */
+    public BatchRouter(Graph map, ContractionHierarchy hierarchy, Heuristic h, boolean bidirectional, int threads) {
+        map.freeze();
+        this.map = map;
+        this.hierarchy = hierarchy;
+        this.h = h;
+        this.bidirectional = bidirectional ? new BidirectionalSearch(map, h) : null;
+        this.threads = Math.max(1, threads);
+    }
+
+    public void setWritePaths(boolean writePaths) {
+        this.writePaths = writePaths;
+    }
+
+    public void setCache(RouteCache cache) {
+        this.cache = cache;
+    }
+
+    /*
+        Answer every query in a file. Each line of the query file holds a
+        start and an end separated by a tab, each an intersection id or a
+        "latitude,longitude" pair snapped to the nearest road; blank lines
+        and lines starting with # are skipped. Each result line holds
+
+            line  start  end  status  distance  hops  [path]
+
+        separated by tabs, where line is the number of the query in the
+        query file and status is ok, unreachable or unknown (an endpoint
+        is not on the map). Results are written in the order they finish.
+        @param: queryFile   -   name of the query file
+        @param: outputFile  -   name of the file to write results to
+        @return: number of queries answered
+    */
+    public long run(String queryFile, String outputFile) throws IOException {
+        latencies.reset();
+        routed.set(0);
+        unreachable.set(0);
+        unknown.set(0);
+        lineNumber = 0;
+
+        long startTime = System.nanoTime();
+        try (BufferedReader in = new BufferedReader(new FileReader(queryFile));
+             BufferedWriter out = new BufferedWriter(new FileWriter(outputFile), 1 << 16)) {
+            queries = in;
+            results = out;
+            out.write("#line\tstart\tend\tstatus\tdistance\thops" + (writePaths ? "\tpath" : "") + "\n");
+
+            List<Callable<Void>> workers = new ArrayList<Callable<Void>>();
+            for (int t = 0; t < threads; t++) {
+                workers.add(this::work);
+            }
+
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try {
+                for (Future<Void> result : pool.invokeAll(workers)) {
+                    result.get();
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while routing", e);
+            }
+            catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException)e.getCause();
+                }
+                throw new IllegalStateException("Routing failed", e.getCause());
+            }
+            finally {
+                pool.shutdown();
+                queries = null;
+                results = null;
+            }
+        }
+        elapsed = System.nanoTime() - startTime;
+
+        return routed.get() + unreachable.get() + unknown.get();
+    }
+
+    /*
+        Loop of one worker thread: take the next query, answer it and
+        write the result, until the query file runs out. The search
+        contexts are taken once and reused for every query.
+    */
+    private Void work() throws IOException {
+        SearchContext forward = map.acquireContext();
+        SearchContext backward = map.acquireContext();
+        StringBuilder line = new StringBuilder();
+        try {
+            String[] query;
+            while ((query = nextQuery()) != null) {
+                line.setLength(0);
+                line.append(query[0]).append('\t').append(query[1]).append('\t').append(query[2]).append('\t');
+
+                int start = resolve(query[1]);
+                int end = resolve(query[2]);
+                if (start < 0 || end < 0) {
+                    unknown.incrementAndGet();
+                    line.append("unknown\t\t").append(writePaths ? "\t" : "");
+                }
+                else {
+                    long queryStart = System.nanoTime();
+                    Route route = (cache == null) ? route(start, end, forward, backward) :
+                                    cache.get(start, end, (s, t) -> route(s, t, forward, backward));
+                    latencies.record(System.nanoTime() - queryStart);
+
+                    if (route == null) {
+                        unreachable.incrementAndGet();
+                        line.append("unreachable\t\t").append(writePaths ? "\t" : "");
+                    }
+                    else {
+                        routed.incrementAndGet();
+                        line.append("ok\t").append(route.getDistance()).append('\t').append(route.getHops());
+                        if (writePaths) {
+                            line.append('\t');
+                            int[] vertices = route.getVertices();
+                            for (int i = 0; i < vertices.length; i++) {
+                                line.append((i == 0) ? "" : " ").append(map.getID(vertices[i]));
+                            }
+                        }
+                    }
+                }
+                line.append('\n');
+
+                synchronized (results) {
+                    results.append(line);
+                }
+            }
+        }
+        finally {
+            map.releaseContext(forward);
+            map.releaseContext(backward);
+        }
+
+        return null;
+    }
+
+    /*
+        Read the next query from the query file.
+        @return: {line number, start, end}, or null at the end of the file
+    */
+    private String[] nextQuery() throws IOException {
+        synchronized (queries) {
+            String line;
+            while ((line = queries.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                String[] fields = line.split("\t");
+                if (fields.length < 2) {
+                    throw new IOException("Line " + lineNumber + " does not have a start and an end");
+                }
+                return new String[] {Integer.toString(lineNumber), fields[0].trim(), fields[1].trim()};
+            }
+            return null;
+        }
+    }
+
+    /*
+        Answer one query with the contexts of the calling worker.
+    */
+    private Route route(int start, int end, SearchContext forward, SearchContext backward) {
+        if (hierarchy != null) {
+            return hierarchy.shortestPath(start, end, forward, backward);
+        }
+        if (bidirectional != null) {
+            return bidirectional.shortestPath(start, end, forward, backward);
+        }
+        return map.shortestPath(start, end, forward, h) ? Route.fromSearch(forward, end) : null;
+    }
+
+    /*
+        Look up a query endpoint the same way -directions does, without
+        printing anything.
+        @return: index of the intersection, or -1 if there is none
+    */
+    private int resolve(String text) {
+        int v = map.indexOf(text);
+        double[] point = Main.parseCoordinates(text);
+        if (v >= 0 || point == null) {
+            return v;
+        }
+
+        return getIndex().snap(point[0], point[1]);
+    }
+
+    private synchronized SpatialIndex getIndex() {
+        if (index == null) {
+            index = new SpatialIndex(map);
+        }
+        return index;
+    }
+
+    /*
+        Returns a report of the last run: query counts, throughput and
+        the latency histogram.
+    */
+    public String report() {
+        long total = routed.get() + unreachable.get() + unknown.get();
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%d queries in %.2f s on %d thread(s): %.1f queries/s\n", total, elapsed / 1e9,
+                                    threads, (elapsed > 0) ? total / (elapsed / 1e9) : 0.0));
+        out.append(String.format("  routed: %d, unreachable: %d, unknown endpoints: %d\n", routed.get(),
+                                    unreachable.get(), unknown.get()));
+        out.append("  latency: ").append(latencies.summary()).append('\n');
+        if (cache != null) {
+            out.append("  cache: ").append(cache.summary()).append('\n');
+        }
+        out.append(latencies.buckets());
+        return out.toString();
+    }
+
+    /*
+        Get methods for different parameters.
+    */
+
+    public long getRouted() {
+        return routed.get();
+    }
+
+    public long getUnreachable() {
+        return unreachable.get();
+    }
+
+    public long getUnknown() {
+        return unknown.get();
+    }
+
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+}
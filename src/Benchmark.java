@@ -0,0 +1,244 @@
+/**
+ *  @file   Benchmark.java
+ *  @brief  Class to time the main operations of the program on one map:
+ *          loading text and binary maps, shortest paths over a fixed set
+ *          of seeded random pairs, minimum spanning trees, and drawing
+ *          the Canvas into an offscreen image. Every benchmark runs some
+ *          warm-up iterations first so the JIT has compiled the code,
+ *          then reports the mean, spread and best of the timed ones.
+ *          This is a quick runner; the JMH suite in jmh/ times the same
+ *          tasks with forks and proper statistics (gradle jmh).
+ *
+ *          java Benchmark (map.txt | -generate width height) [-warmup n]
+ *                         [-iterations n] [-pairs n] [-only name]
+ *  @author Mustafa Siddiqui
+ *  @date   10/18/2026
+ */
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+public class Benchmark {
+    // size of the offscreen image the Canvas draws into, as the window
+    private static final int WIDTH = 900;
+    private static final int HEIGHT = 700;
+
+    private int warmup = 3;
+    private int iterations = 5;
+    private String only = null;
+
+    /*
+        Results are added in here so the JIT cannot drop work whose
+        result is never used.
+    */
+    private static volatile long sink;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("Usage: java Benchmark (map.txt | -generate width height) [-warmup n] [-iterations n] " +
+                                "[-pairs n] [-only name]");
+            System.exit(0);
+        }
+        System.setProperty("java.awt.headless", "true");
+
+        Benchmark benchmark = new Benchmark();
+        String mapFile = null;
+        int width = 0;
+        int height = 0;
+        int pairCount = 200;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-generate")) {
+                width = Integer.parseInt(args[++i]);
+                height = Integer.parseInt(args[++i]);
+            }
+            else if (args[i].equals("-warmup")) {
+                benchmark.warmup = Integer.parseInt(args[++i]);
+            }
+            else if (args[i].equals("-iterations")) {
+                benchmark.iterations = Integer.parseInt(args[++i]);
+            }
+            else if (args[i].equals("-pairs")) {
+                pairCount = Integer.parseInt(args[++i]);
+            }
+            else if (args[i].equals("-only")) {
+                benchmark.only = args[++i];
+            }
+            else {
+                mapFile = args[i];
+            }
+        }
+
+        // a generated map lives in a temporary file for the run
+        if (mapFile == null) {
+            File generated = File.createTempFile("grid", ".txt");
+            generated.deleteOnExit();
+            int roads = MapGenerator.write(generated.getPath(), width, height, 1);
+            mapFile = generated.getPath();
+            System.out.println("Generated a " + width + "x" + height + " grid with " + roads + " roads");
+        }
+
+        benchmark.run(mapFile, pairCount);
+    }
+
+    /*
+        Run every benchmark (or the ones picked with -only) on a map.
+        @param: pairCount   -   number of random start/end pairs routed
+                                per iteration of the routing benchmarks
+    */
+    public void run(String mapFile, int pairCount) throws Exception {
+        Graph map = Main.loadMap(mapFile);
+        int threads = Runtime.getRuntime().availableProcessors();
+        System.out.printf("%s: %d intersections, %d roads, %d thread(s), Java %s\n", mapFile, map.vertexCount(),
+                            map.roadCount(), threads, System.getProperty("java.version"));
+        System.out.printf("%d warm-up and %d timed iteration(s) per benchmark\n\n", warmup, iterations);
+        System.out.printf("%-24s %12s %10s %12s %14s\n", "benchmark", "mean ms", "+/- ms", "best ms", "per op");
+
+        for (Map.Entry<String, Callable<Long>> task : tasks(mapFile, pairCount, only).entrySet()) {
+            String name = task.getKey();
+            measure(name, name.startsWith("route.") ? pairCount : 1, task.getValue());
+        }
+    }
+
+    /*
+        Set up the benchmarks of a map, ready to be run again and again.
+        This is also where the JMH suite in jmh/ gets its fixtures from,
+        so both time the same operations. Route tasks route every pair
+        once per call, the others do their operation once. Tasks share
+        a search context and a Canvas, so they are for one thread.
+        @param: pairCount   -   number of seeded random start/end pairs
+        @param: only        -   prefix of the tasks to set up, or null
+                                for all of them
+        @return: tasks by name, in the order they are listed above
+    */
+    public static LinkedHashMap<String, Callable<Long>> tasks(String mapFile, int pairCount, String only)
+            throws IOException {
+        LinkedHashMap<String, Callable<Long>> tasks = new LinkedHashMap<String, Callable<Long>>();
+        Graph map = Main.loadMap(mapFile);
+        int n = map.vertexCount();
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        if (only == null || "load".startsWith(only) || only.startsWith("load")) {
+            File binary = File.createTempFile("map", ".bin");
+            binary.deleteOnExit();
+            MapFile.convert(map, binary.getPath());
+            add(tasks, only, "load.text", () -> (long)Main.loadMap(mapFile).vertexCount());
+            add(tasks, only, "load.binary", () -> (long)Main.loadMap(binary.getPath()).vertexCount());
+        }
+
+        // the same pairs every run, so results can be compared
+        Random random = new Random(42);
+        int[] starts = new int[pairCount];
+        int[] ends = new int[pairCount];
+        for (int i = 0; i < pairCount; i++) {
+            starts[i] = random.nextInt(n);
+            ends[i] = random.nextInt(n);
+        }
+
+        SearchContext ctx = new SearchContext(n);
+        Heuristic chord = map.getChordHeuristic();
+        add(tasks, only, "route.dijkstra", () -> routeAll(map, starts, ends, ctx, null));
+        add(tasks, only, "route.astar", () -> routeAll(map, starts, ends, ctx, chord));
+
+        BidirectionalSearch bidirectional = new BidirectionalSearch(map, chord);
+        add(tasks, only, "route.bidirectional", () -> {
+            long sum = 0;
+            for (int i = 0; i < starts.length; i++) {
+                Route route = bidirectional.shortestPath(starts[i], ends[i]);
+                sum += (route == null) ? 0 : route.getHops();
+            }
+            return sum;
+        });
+
+        add(tasks, only, "mst.kruskal", () -> (long)map.minSpanningTree().size());
+        add(tasks, only, "mst.boruvka", () -> (long)map.minSpanningTree(threads).size());
+
+        // a new Canvas draws every tile, a repaint reuses them
+        if (only == null || "canvas".startsWith(only) || only.startsWith("canvas")) {
+            BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+            add(tasks, only, "canvas.first", () -> paint(new Canvas(map), image));
+            Canvas canvas = new Canvas(map);
+            paint(canvas, image);
+            add(tasks, only, "canvas.repaint", () -> paint(canvas, image));
+        }
+
+        return tasks;
+    }
+
+    private static void add(LinkedHashMap<String, Callable<Long>> tasks, String only, String name, Callable<Long> task) {
+        if (only == null || name.startsWith(only)) {
+            tasks.put(name, task);
+        }
+    }
+
+    /*
+        Helper method to route every pair with one search context.
+        @return: total hops, for the sink
+    */
+    private static long routeAll(Graph map, int[] starts, int[] ends, SearchContext ctx, Heuristic h) {
+        long sum = 0;
+        for (int i = 0; i < starts.length; i++) {
+            if (map.shortestPath(starts[i], ends[i], ctx, h)) {
+                sum += ctx.getSettledCount();
+            }
+        }
+
+        return sum;
+    }
+
+    /*
+        Helper method to draw a Canvas into an offscreen image the size of
+        the window.
+        @return: color of the center pixel, for the sink
+    */
+    private static long paint(Canvas canvas, BufferedImage image) {
+        canvas.setSize(WIDTH, HEIGHT);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, WIDTH, HEIGHT);
+        g.setColor(Color.BLACK);
+        canvas.paintComponent(g);
+        g.dispose();
+
+        return image.getRGB(WIDTH / 2, HEIGHT / 2);
+    }
+
+    /*
+        Time a task: warm-up runs first, then the timed runs, and print
+        the mean with its standard deviation, the best run, and the mean
+        time of one of the ops the task does per run.
+        @param: ops -   operations done by one run of the task
+    */
+    private void measure(String name, int ops, Callable<Long> task) throws Exception {
+        for (int i = 0; i < warmup; i++) {
+            sink += task.call();
+        }
+
+        double[] times = new double[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            sink += task.call();
+            times[i] = (System.nanoTime() - start) / 1e6;
+        }
+
+        double mean = 0;
+        double best = Double.POSITIVE_INFINITY;
+        for (double t : times) {
+            mean += t / times.length;
+            best = Math.min(best, t);
+        }
+        double variance = 0;
+        for (double t : times) {
+            variance += (t - mean) * (t - mean) / Math.max(1, times.length - 1);
+        }
+
+        String perOp = (ops > 1) ? String.format("%.3f ms", mean / ops) : "";
+        System.out.printf("%-24s %12.2f %10.2f %12.2f %14s\n", name, mean, Math.sqrt(variance), best, perOp);
+    }
+}
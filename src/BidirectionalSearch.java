@@ -0,0 +1,182 @@
+/**
+ *  @file   BidirectionalSearch.java
+ *  @brief  Class to implement bidirectional Dijkstra and bidirectional A*
+ *          for point-to-point queries. A forward search from the start and
+ *          a backward search from the end grow until they meet.
+ *  @author Mustafa Siddiqui
+ *  @date   10/18/2026
+ */
+
+public class BidirectionalSearch {
+    // graph being searched
+    private Graph map;
+
+    // heuristic for A*, or null for Dijkstra
+    private Heuristic h;
+
+    /*
+        Constructor for the BidirectionalSearch class.
+        @param: map -   graph to search
+        @param: h   -   heuristic for bidirectional A*, or null
+    */
+    public BidirectionalSearch(Graph map, Heuristic h) {
+        map.freeze();
+        this.map = map;
+        this.h = h;
+    }
+
+    /*
+        Find the shortest path between two vertices using two pooled
+        search contexts.
+        @return: the route from start to end, or null if end cannot be
+                 reached from start
+    */
+    public Route shortestPath(int start, int end) {
+        SearchContext forward = map.acquireContext();
+        SearchContext backward = map.acquireContext();
+        try {
+            return shortestPath(start, end, forward, backward);
+        }
+        finally {
+            map.releaseContext(forward);
+            map.releaseContext(backward);
+        }
+    }
+
+    /*
+        Run the two searches, alternating on whichever side has the
+        smaller key at the top of its queue.
+
+        With a heuristic both searches use the average potential
+        p(v) = (h(v, end) - h(start, v)) / 2, forward keys are d(v) + p(v)
+        and backward keys are d(v) - p(v). This keeps the reduced edge
+        weights of both directions equal and non-negative, so for plain
+        Dijkstra (p = 0) and A* alike the best meeting distance mu is
+        final once the two top keys add up to at least mu. A heuristic
+        that is only nearly consistent (see Heuristic.slack()) can make
+        reduced weights slightly negative, so settled vertices are
+        reopened and the searches go on until mu + slack.
+    */
+    public Route shortestPath(int start, int end, SearchContext forward, SearchContext backward) {
+        long startTime = Stats.start();
+        Route route = search(start, end, forward, backward);
+        Stats.endQuery(startTime, forward, backward);
+        return route;
+    }
+
+    // body of shortestPath(), which times it when stats are on
+    private Route search(int start, int end, SearchContext forward, SearchContext backward) {
+        forward.reset();
+        backward.reset();
+        if (!map.mayConnect(start, end)) {
+            return null;
+        }
+
+        IndexedHeap forwardQueue = forward.getQueue();
+        IndexedHeap backwardQueue = backward.getQueue();
+        double[] weights = map.weights;
+
+        forward.update(start, 0, -1);
+        forwardQueue.insertOrDecrease(start, potential(start, start, end));
+        backward.update(end, 0, -1);
+        backwardQueue.insertOrDecrease(end, -potential(end, start, end));
+
+        // length of the best path seen so far and the vertex where the
+        // two searches met on it
+        double mu = (start == end) ? 0 : Double.POSITIVE_INFINITY;
+        int meet = (start == end) ? start : -1;
+
+        // keys can be this much too low on a path when the heuristic is
+        // not quite consistent (landmark distances are stored as floats)
+        double slack = (h == null) ? 0 : h.slack();
+
+        while (!forwardQueue.isEmpty() && !backwardQueue.isEmpty()) {
+            if (forwardQueue.minKey() + backwardQueue.minKey() >= mu + slack) {
+                break;
+            }
+
+            // expand the side whose next vertex is closer
+            boolean isForward = forwardQueue.minKey() <= backwardQueue.minKey();
+            SearchContext self = isForward ? forward : backward;
+            SearchContext other = isForward ? backward : forward;
+            IndexedHeap queue = self.getQueue();
+            double sign = isForward ? 1 : -1;
+
+            int current = queue.poll();
+            self.settle(current);
+
+            double currentDistance = self.getDistance(current);
+            self.relaxed(map.offsets[current + 1] - map.offsets[current]);
+            for (int e = map.offsets[current]; e < map.offsets[current + 1]; e++) {
+                int adjacent = map.targets[e];
+
+                // a settled vertex can only improve if the heuristic is not
+                // quite consistent, in which case it is reopened
+                double adjDistance = currentDistance + weights[e];
+                if (adjDistance < self.getDistance(adjacent)) {
+                    self.update(adjacent, adjDistance, current);
+                    queue.insertOrDecrease(adjacent, adjDistance + sign * potential(adjacent, start, end));
+
+                    // a shorter path through this vertex if the other
+                    // search has already reached it
+                    double through = adjDistance + other.getDistance(adjacent);
+                    if (through < mu) {
+                        mu = through;
+                        meet = adjacent;
+                    }
+                }
+            }
+        }
+
+        if (meet < 0) {
+            return null;
+        }
+
+        Route route = join(forward, backward, meet);
+        route.setSettled(forward.getSettledCount() + backward.getSettledCount());
+        return route;
+    }
+
+    /*
+        Average potential of a vertex for the query, 0 without a heuristic.
+    */
+    private double potential(int v, int start, int end) {
+        if (h == null) {
+            return 0;
+        }
+
+        return (h.estimate(v, end) - h.estimate(start, v)) / 2;
+    }
+
+    /*
+        Build the route from the forward parents (start -> meet) and the
+        backward parents (meet -> end).
+    */
+    private static Route join(SearchContext forward, SearchContext backward, int meet) {
+        int head = 0;
+        for (int v = meet; v != -1; v = forward.getParent(v)) {
+            head++;
+        }
+        int tail = 0;
+        for (int v = backward.getParent(meet); v != -1; v = backward.getParent(v)) {
+            tail++;
+        }
+
+        int[] path = new int[head + tail];
+        double[] dist = new double[head + tail];
+        int i = head - 1;
+        for (int v = meet; v != -1; v = forward.getParent(v), i--) {
+            path[i] = v;
+            dist[i] = forward.getDistance(v);
+        }
+
+        double meetDistance = forward.getDistance(meet) + backward.getDistance(meet);
+        i = head;
+        for (int v = backward.getParent(meet); v != -1; v = backward.getParent(v), i++) {
+            path[i] = v;
+            dist[i] = meetDistance - backward.getDistance(v);
+        }
+
+        return new Route(path, dist);
+    }
+}
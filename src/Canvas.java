@@ -1,7 +1,9 @@
 /**
  *  @file   Canvas.java
  *  @brief  Class to implement Java Graphics to draw the
- *          map using JFrames.
+ *          map using JFrames. The roads come from cached image tiles
+ *          with the isochrone bands and routes drawn on top, and the map
+ *          can be zoomed and panned with the mouse.
  *  @author Mustafa Siddiqui
  *  @date   05/02/2021
  */
@@ -11,25 +13,107 @@ import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
 import java.text.DecimalFormat;
-import javax.swing.JComponent;
 import java.util.ArrayList;
+import javax.swing.JComponent;
 
 public class Canvas extends JComponent {
+    // zoom factor of one mouse wheel notch
+    private static final double WHEEL_ZOOM = 1.25;
+
+    // graph being drawn
+    private Graph map;
+
+    // maps coordinates to pixels, with the user's zoom and pan
+    private Projection projection;
+
+    // cached image tiles of the roads
+    private TileRenderer tiles;
+    private boolean treeInTiles = false;
+
+    // last mouse position while dragging
+    private int dragX;
+    private int dragY;
+
+    /*
+        Constructor for the Canvas class. The mouse wheel zooms around the
+        cursor, dragging pans and a double click shows the whole map again.
+        @param: map -   graph to draw
+    */
+    public Canvas(Graph map) {
+        this.map = map;
+        this.projection = new Projection(map);
+        this.tiles = new TileRenderer(map, new SpatialIndex(map), projection);
+
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                dragX = e.getX();
+                dragY = e.getY();
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                projection.pan(e.getX() - dragX, e.getY() - dragY);
+                dragX = e.getX();
+                dragY = e.getY();
+                repaint();
+            }
+
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    projection.reset();
+                    repaint();
+                }
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                projection.zoom(Math.pow(WHEEL_ZOOM, -e.getPreciseWheelRotation()), e.getX(), e.getY());
+                repaint();
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        addMouseWheelListener(mouse);
+    }
 
     @Override
     public void paintComponent(Graphics g) {
-        // draw the base map (involves redrawing over lines)
-        for (String key : Graph.vertices.keySet()) {
-            ArrayList<Edge> neighbours = Graph.vertices.get(key).getAdjList();
-
-            for (Edge e : neighbours) {
-                // latitude -> y-coordinate, longitude -> x-coordinate
-                Vertex start = Graph.vertices.get(key);
-                Vertex end = Graph.vertices.get(e.getEndVertexID());
-                
-                sketchLine(g, start, end);
+        long startTime = Stats.start();
+        projection.setSize(getWidth(), getHeight());
+
+        // the minimum spanning tree does not change once computed, so it
+        // is drawn into the cached tiles with the roads
+        if (Main.KruskalTree && !treeInTiles) {
+            int[] roads = new int[Main.MinSpanningTreeList.size()];
+            for (int i = 0; i < roads.length; i++) {
+                roads[i] = map.indexOfRoad(Main.MinSpanningTreeList.get(i).getID());
             }
+            tiles.setHighlight(roads, Color.RED);
+            treeInTiles = true;
+        }
+
+        // draw the base map from the cached tiles
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        tiles.paint(g, clip, g.getColor());
+
+        // draw the isochrone bands over the roads they cover
+        if (Main.IsochroneBands != null) {
+            drawIsochrones((Graphics2D)g, Main.IsochroneBands);
+        }
+
+        // draw the alternatives under the shortest path
+        if (Main.AlternativeRouteList != null) {
+            drawAlternatives((Graphics2D)g, Main.AlternativeRouteList);
         }
 
         // draw shortest path if found
@@ -42,7 +126,7 @@ public class Canvas extends JComponent {
 
             // indicate start vertex
             g.setColor(Color.ORANGE);
-            g.fillOval(Math.abs(scaleLong(start.getLongitude())), Math.abs(getHeight() - scaleLat(start.getLatitude())) - 5, 10, 10);
+            g.fillOval((int)projection.x(start.getLongitude()) - 5, (int)projection.y(start.getLatitude()) - 5, 10, 10);
 
             // mention distance travelled on top of canvas
             g.setColor(Color.BLACK);
@@ -51,7 +135,7 @@ public class Canvas extends JComponent {
 
             // indicate end vertex
             g.setColor(Color.ORANGE);
-            g.fillOval(Math.abs(scaleLong(end.getLongitude())), Math.abs(getHeight() - scaleLat(end.getLatitude())) - 5, 10, 10);
+            g.fillOval((int)projection.x(end.getLongitude()) - 5, (int)projection.y(end.getLatitude()) - 5, 10, 10);
 
             // draw path in red
             Graphics2D g2 = (Graphics2D)g;
@@ -71,52 +155,89 @@ public class Canvas extends JComponent {
             g.setColor(Color.BLACK);
             g.setFont(new Font("Serif", Font.PLAIN, 15));
             g.drawString("Minimum Spanning Tree", getWidth()/2 - 60, 20);
+        }
+        Stats.end(Stats.Phase.RENDER, startTime);
+    }
 
-            // draw path in red
-            Graphics2D g2 = (Graphics2D)g;
-            g2.setColor(Color.RED);
+    /*
+        Draw the roads of each band in its color, farthest band first so
+        the nearer bands stay on top, with the source marked and a legend
+        in the top left corner.
+    */
+    private void drawIsochrones(Graphics2D g, Isochrones isochrones) {
+        DecimalFormat df = new DecimalFormat("#.##");
+        int[] roads = isochrones.getRoads();
+        Graphics2D g2 = (Graphics2D)g.create();
+        g2.setStroke(new BasicStroke(2));
+        g2.setFont(new Font("Serif", Font.PLAIN, 15));
+
+        for (int b = isochrones.getBandCount() - 1; b >= 0; b--) {
+            g2.setColor(Isochrones.colorOf(b));
+            for (int i = 0; i < roads.length; i++) {
+                if (isochrones.getRoadBand(i) == b) {
+                    int start = map.getRoadStart(roads[i]);
+                    int end = map.getRoadEnd(roads[i]);
+                    sketchLine(g2, map.getLatitude(start), map.getLongitude(start), map.getLatitude(end), map.getLongitude(end));
+                }
+            }
+            g2.drawString("Within " + df.format(isochrones.getBand(b)) + " mi", 10, 20 + 18 * b);
+        }
 
-            for (Edge e : Main.MinSpanningTreeList) {
-                Vertex curr = Graph.vertices.get(e.getStartVertexID());
-                Vertex next = Graph.vertices.get(e.getEndVertexID());
-                sketchLine(g2, curr, next);
+        int source = isochrones.getSource();
+        g2.setColor(Color.BLUE);
+        g2.fillOval((int)projection.x(map.getLongitude(source)) - 5, (int)projection.y(map.getLatitude(source)) - 5, 10, 10);
+        g2.dispose();
+    }
+
+    /*
+        Draw every route but the first (the shortest, drawn on its own) in
+        its color, with a legend of all of them in the top left corner.
+    */
+    private void drawAlternatives(Graphics2D g, ArrayList<Route> routes) {
+        DecimalFormat df = new DecimalFormat("#.##");
+        Graphics2D g2 = (Graphics2D)g.create();
+        g2.setStroke(new BasicStroke(3));
+        g2.setFont(new Font("Serif", Font.PLAIN, 15));
+
+        for (int r = routes.size() - 1; r >= 0; r--) {
+            g2.setColor(AlternativeRoutes.colorOf(r));
+            int[] path = routes.get(r).getVertices();
+            for (int i = 0; r > 0 && i + 1 < path.length; i++) {
+                sketchLine(g2, map.getLatitude(path[i]), map.getLongitude(path[i]),
+                            map.getLatitude(path[i + 1]), map.getLongitude(path[i + 1]));
             }
+            g2.drawString("Route " + (r + 1) + ": " + df.format(routes.get(r).getDistance()) + " mi", 10, 20 + 18 * r);
         }
+        g2.dispose();
     }
 
     /*
-        Scale the longitude to the canvas.
-        x = normalized / range * scale_middle + scale_sides
+        Scale the longitude to the canvas, with the current zoom and pan.
     */
     public int scaleLong(double longitude) {
-        double range = Main.maxLong - Main.minLong;
-
-        // middle = 90% of width, sides = 0.05% on each side
-        int scaleFactor_middle = 9 * getWidth() / 10;
-        int scaleFactor_sides = 1 * getWidth() / 20;
-
-        return (int)((longitude - Main.minLong)/(range) * scaleFactor_middle + scaleFactor_sides);
+        return (int)projection.x(longitude);
     }
 
     /*
-        Scale the latitude to the canvas.
-        y = normalized / range * scale_middle + scale_sides
+        Scale the latitude to the canvas, measured up from the bottom edge,
+        with the current zoom and pan.
     */
     public int scaleLat(double latitude) {
-        double range = Main.maxLat - Main.minLat;
-
-        // middle = 70% of height, sides = 15% on each side
-        int scaleFactor_middle = 7 * getHeight() / 10;
-        int scaleFactor_sides = 3 * getHeight() / 20;
-
-        return (int)((latitude - Main.minLat)/(range) * scaleFactor_middle + scaleFactor_sides);
+        return getHeight() - (int)projection.y(latitude);
     }
 
     /*
         Method to draw a line on the map given two vertices.
     */
     public void sketchLine(Graphics g, Vertex start, Vertex end) {
-        g.drawLine(Math.abs(scaleLong(start.getLongitude())), Math.abs(getHeight() - scaleLat(start.getLatitude())), 
-                    Math.abs(scaleLong(end.getLongitude())), Math.abs(getHeight() - scaleLat(end.getLatitude())));
+        sketchLine(g, start.getLatitude(), start.getLongitude(), end.getLatitude(), end.getLongitude());
+    }
+
+    /*
+        Method to draw a line on the map given the coordinates of its ends.
+    */
+    public void sketchLine(Graphics g, double startLat, double startLong, double endLat, double endLong) {
+        g.drawLine((int)projection.x(startLong), (int)projection.y(startLat),
+                    (int)projection.x(endLong), (int)projection.y(endLat));
     }
 }
@@ -0,0 +1,77 @@
+/**
+ *  @file   ChordHeuristic.java
+ *  @brief  Class to estimate road distances by the straight-line chord
+ *          between two points on the earth's surface. Uses the same
+ *          sphere as Edge.calcWeight with the trig precomputed per vertex.
+ *  @author Mustafa Siddiqui
+ *  @date   10/18/2026
+ */
+
+public class ChordHeuristic implements Heuristic {
+    /*
+        The chord is never longer than the great-circle arc that the
+        haversine formula measures, so it is an admissible and consistent
+        bound. It is shrunk by a tiny factor so that rounding in the
+        subtraction of nearby points cannot push it above an edge weight.
+    */
+    private static final double SCALE = Edge.EARTH_RADIUS * (1 - 1e-9);
+
+    // position of every vertex on the unit sphere
+    private double[] x;
+    private double[] y;
+    private double[] z;
+
+    /*
+        Fraction of the chord returned. Below 1 once some road weighs
+        less than its length, so the chord may be longer than the road.
+    */
+    private double scale = 1;
+
+    /*
+        Constructor for the ChordHeuristic class.
+        @param: map -   graph whose vertex coordinates are used
+    */
+    public ChordHeuristic(Graph map) {
+        int n = map.vertexCount();
+        x = new double[n];
+        y = new double[n];
+        z = new double[n];
+
+        for (int v = 0; v < n; v++) {
+            double lat = Math.toRadians(map.getLatitude(v));
+            double lon = Math.toRadians(map.getLongitude(v));
+            x[v] = Math.cos(lat) * Math.cos(lon);
+            y[v] = Math.cos(lat) * Math.sin(lon);
+            z[v] = Math.sin(lat);
+        }
+    }
+
+    /*
+        Returns a heuristic sharing this one's coordinates that returns
+        the given fraction of the chord.
+    */
+    public ChordHeuristic scaled(double scale) {
+        ChordHeuristic h = new ChordHeuristic();
+        h.x = x;
+        h.y = y;
+        h.z = z;
+        h.scale = scale;
+        return h;
+    }
+
+    private ChordHeuristic() {
+    }
+
+    public double getScale() {
+        return scale;
+    }
+
+    @Override
+    public double estimate(int u, int v) {
+        double dx = x[u] - x[v];
+        double dy = y[u] - y[v];
+        double dz = z[u] - z[v];
+
+        return scale * SCALE * Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+}
@@ -0,0 +1,543 @@
+/**
+ *  @file   ContractionHierarchy.java
+ *  @brief  Class to implement Contraction Hierarchies on top of a Graph.
+ *          Preprocessing contracts the vertices one at a time in order of
+ *          edge difference, adding shortcut edges that remember their
+ *          middle vertex. Queries run a bidirectional search that only
+ *          goes up the hierarchy, and shortcuts are unpacked back into the
+ *          real road sequence.
+ *  @author Mustafa Siddiqui
+ *  @date   10/18/2026
+ */
+
+import java.util.Arrays;
+
+public class ContractionHierarchy {
+    /*
+        Vertices a witness search may settle before giving up, when
+        estimating a priority and when really contracting a vertex.
+    */
+    private static final int ESTIMATE_SETTLE_LIMIT = 50;
+    private static final int CONTRACT_SETTLE_LIMIT = 500;
+
+    // graph the hierarchy was built for
+    private Graph map;
+
+    // position of every vertex in the contraction order
+    private int[] rank;
+
+    /*
+        Upward graph in CSR form: for every vertex, the edges to the
+        neighbours that were contracted after it. upMiddle is the vertex a
+        shortcut bypasses, or -1 for an original road.
+    */
+    private int[] upOffsets;
+    private int[] upTargets;
+    private double[] upWeights;
+    private int[] upMiddle;
+
+    // preprocessing statistics
+    private int shortcutCount = 0;
+    private long buildNanos;
+
+    // Graph.getWeightVersion() of the weights the hierarchy was built with
+    private int weightVersion;
+
+    /*
+        Constructor for the ContractionHierarchy class. Runs the
+        preprocessing, which can take a while on large maps.
+        @param: map -   graph to build the hierarchy for
+    */
+    public ContractionHierarchy(Graph map) {
+        map.freeze();
+        this.map = map;
+        this.weightVersion = map.getWeightVersion();
+
+        long startTime = System.nanoTime();
+        long statsStart = Stats.start();
+        new Contractor(map).run();
+        Stats.end(Stats.Phase.INDEX, statsStart);
+        buildNanos = System.nanoTime() - startTime;
+    }
+
+    /*
+        Get methods for the preprocessing statistics.
+    */
+
+    public int getShortcutCount() {
+        return shortcutCount;
+    }
+
+    public long getBuildNanos() {
+        return buildNanos;
+    }
+
+    public int getRank(int v) {
+        return rank[v];
+    }
+
+    /*
+        Returns false once the map's road weights were updated after the
+        hierarchy was built. The shortcuts stand for paths found with the
+        old weights, so a stale hierarchy keeps answering as the map was
+        and has to be rebuilt (or dropped) to see the changes.
+    */
+    public boolean isCurrent() {
+        return map.getWeightVersion() == weightVersion;
+    }
+
+    /*
+        Find the shortest path between two vertices using two pooled
+        search contexts.
+        @return: the route from start to end, or null if end cannot be
+                 reached from start
+    */
+    public Route shortestPath(int start, int end) {
+        SearchContext forward = map.acquireContext();
+        SearchContext backward = map.acquireContext();
+        try {
+            return shortestPath(start, end, forward, backward);
+        }
+        finally {
+            map.releaseContext(forward);
+            map.releaseContext(backward);
+        }
+    }
+
+    /*
+        Bidirectional query on the upward graph. Both searches only relax
+        edges to higher ranked vertices, and every shortest path has a
+        highest vertex where an upward path from each end meets. A side
+        stops once its smallest key is no better than the best meeting
+        distance mu found so far.
+    */
+    public Route shortestPath(int start, int end, SearchContext forward, SearchContext backward) {
+        long startTime = Stats.start();
+        Route route = search(start, end, forward, backward);
+        Stats.endQuery(startTime, forward, backward);
+        return route;
+    }
+
+    // body of shortestPath(), which times it when stats are on
+    private Route search(int start, int end, SearchContext forward, SearchContext backward) {
+        forward.reset();
+        backward.reset();
+        if (!map.mayConnect(start, end)) {
+            return null;
+        }
+
+        forward.update(start, 0, -1);
+        forward.getQueue().insertOrDecrease(start, 0);
+        backward.update(end, 0, -1);
+        backward.getQueue().insertOrDecrease(end, 0);
+
+        double mu = (start == end) ? 0 : Double.POSITIVE_INFINITY;
+        int meet = (start == end) ? start : -1;
+
+        while (true) {
+            IndexedHeap forwardQueue = forward.getQueue();
+            IndexedHeap backwardQueue = backward.getQueue();
+            boolean forwardDone = forwardQueue.isEmpty() || forwardQueue.minKey() >= mu;
+            boolean backwardDone = backwardQueue.isEmpty() || backwardQueue.minKey() >= mu;
+            if (forwardDone && backwardDone) {
+                break;
+            }
+
+            // expand the side whose next vertex is closer
+            boolean isForward = backwardDone || (!forwardDone && forwardQueue.minKey() <= backwardQueue.minKey());
+            SearchContext self = isForward ? forward : backward;
+            SearchContext other = isForward ? backward : forward;
+            IndexedHeap queue = self.getQueue();
+
+            int current = queue.poll();
+            self.settle(current);
+
+            double currentDistance = self.getDistance(current);
+            self.relaxed(upOffsets[current + 1] - upOffsets[current]);
+            for (int e = upOffsets[current]; e < upOffsets[current + 1]; e++) {
+                int adjacent = upTargets[e];
+                double adjDistance = currentDistance + upWeights[e];
+
+                if (adjDistance < self.getDistance(adjacent)) {
+                    self.update(adjacent, adjDistance, current);
+                    queue.insertOrDecrease(adjacent, adjDistance);
+
+                    double through = adjDistance + other.getDistance(adjacent);
+                    if (through < mu) {
+                        mu = through;
+                        meet = adjacent;
+                    }
+                }
+            }
+        }
+
+        if (meet < 0) {
+            return null;
+        }
+
+        Route route = unpack(forward, backward, meet);
+        route.setSettled(forward.getSettledCount() + backward.getSettledCount());
+        return route;
+    }
+
+    /*
+        Search the whole upward graph from a vertex, leaving the distances
+        in the context. Every shortest path meets the upward search of
+        both its ends, which is what many-to-many queries build on.
+        @param: settled -   filled with the vertices settled, in order
+    */
+    void upwardSearch(int source, SearchContext ctx, IntList settled) {
+        ctx.reset();
+        settled.clear();
+
+        IndexedHeap queue = ctx.getQueue();
+        ctx.update(source, 0, -1);
+        queue.insertOrDecrease(source, 0);
+
+        while (!queue.isEmpty()) {
+            int current = queue.poll();
+            ctx.settle(current);
+            settled.add(current);
+
+            double currentDistance = ctx.getDistance(current);
+            for (int e = upOffsets[current]; e < upOffsets[current + 1]; e++) {
+                int adjacent = upTargets[e];
+                double adjDistance = currentDistance + upWeights[e];
+                if (adjDistance < ctx.getDistance(adjacent)) {
+                    ctx.update(adjacent, adjDistance, current);
+                    queue.insertOrDecrease(adjacent, adjDistance);
+                }
+            }
+        }
+    }
+
+    /*
+        Turn the two upward search trees into the route of original roads
+        from start to meet to end.
+    */
+    private Route unpack(SearchContext forward, SearchContext backward, int meet) {
+        IntList path = new IntList();
+        DoubleList dist = new DoubleList();
+
+        // start -> meet, collected backwards from meet
+        IntList up = new IntList();
+        for (int v = meet; v != -1; v = forward.getParent(v)) {
+            up.add(v);
+        }
+        path.add(up.get(up.size() - 1));
+        dist.add(0);
+        for (int i = up.size() - 1; i > 0; i--) {
+            unpackEdge(up.get(i), up.get(i - 1), path, dist);
+        }
+
+        // meet -> end, in order along the backward parents
+        for (int v = meet; backward.getParent(v) != -1; v = backward.getParent(v)) {
+            unpackEdge(v, backward.getParent(v), path, dist);
+        }
+
+        return new Route(path.toArray(), dist.toArray());
+    }
+
+    /*
+        Append the original roads of the upward graph edge between a and b
+        (excluding a, which is already on the path) in the direction
+        a -> b.
+    */
+    private void unpackEdge(int a, int b, IntList path, DoubleList dist) {
+        // the edge is stored at its lower ranked end
+        int low = (rank[a] < rank[b]) ? a : b;
+        int high = (low == a) ? b : a;
+
+        int e = findUpEdge(low, high);
+        int middle = upMiddle[e];
+        if (middle < 0) {
+            path.add(b);
+            dist.add(dist.get(dist.size() - 1) + upWeights[e]);
+            return;
+        }
+
+        unpackEdge(a, middle, path, dist);
+        unpackEdge(middle, b, path, dist);
+    }
+
+    /*
+        Helper method to find the upward edge from low to high.
+    */
+    private int findUpEdge(int low, int high) {
+        for (int e = upOffsets[low]; e < upOffsets[low + 1]; e++) {
+            if (upTargets[e] == high) {
+                return e;
+            }
+        }
+
+        throw new IllegalStateException("Missing hierarchy edge " + low + " -> " + high);
+    }
+
+    /*
+        Class to hold the state of the preprocessing. The remaining graph
+        is kept as one growable adjacency list per vertex; contracting a
+        vertex removes it from its neighbours' lists and records its
+        remaining edges as its upward edges.
+    */
+    private class Contractor {
+        private int n;
+        private int[] degree;
+        private int[][] adjTo;
+        private double[][] adjWeight;
+        private int[][] adjMiddle;
+        private boolean[] contracted;
+        private int[] contractedNeighbours;
+        private int[] level;
+
+        // upward edges in the order they were recorded
+        private IntList edgeFrom = new IntList();
+        private IntList edgeTo = new IntList();
+        private DoubleList edgeWeight = new DoubleList();
+        private IntList edgeMiddle = new IntList();
+
+        // witness search state and the shortcuts found by the last contraction
+        private SearchContext witness;
+        private IntList shortcutFrom = new IntList();
+        private IntList shortcutTo = new IntList();
+        private DoubleList shortcutWeight = new DoubleList();
+
+        Contractor(Graph map) {
+            n = map.vertexCount();
+            degree = new int[n];
+            adjTo = new int[n][];
+            adjWeight = new double[n][];
+            adjMiddle = new int[n][];
+            contracted = new boolean[n];
+            contractedNeighbours = new int[n];
+            level = new int[n];
+            witness = new SearchContext(n);
+
+            for (int v = 0; v < n; v++) {
+                int size = Math.max(1, map.offsets[v + 1] - map.offsets[v]);
+                adjTo[v] = new int[size];
+                adjWeight[v] = new double[size];
+                adjMiddle[v] = new int[size];
+            }
+
+            // self loops never lie on a shortest path, parallel roads
+            // are merged into the shortest one and closed roads left out
+            double[] weights = map.weights;
+            for (int v = 0; v < n; v++) {
+                for (int e = map.offsets[v]; e < map.offsets[v + 1]; e++) {
+                    if (map.targets[e] != v && weights[e] != Graph.CLOSED) {
+                        addEdge(v, map.targets[e], weights[e], -1);
+                    }
+                }
+            }
+        }
+
+        void run() {
+            // order vertices by priority, re-checking the priority of the
+            // vertex at the top before contracting it (lazy updates)
+            IndexedHeap order = new IndexedHeap(n);
+            for (int v = 0; v < n; v++) {
+                order.insertOrDecrease(v, priority(v));
+            }
+
+            rank = new int[n];
+            int next = 0;
+            while (!order.isEmpty()) {
+                int v = order.poll();
+                double p = priority(v);
+                if (!order.isEmpty() && p > order.minKey()) {
+                    order.insertOrDecrease(v, p);
+                    continue;
+                }
+
+                rank[v] = next++;
+                contract(v);
+            }
+
+            buildUpwardGraph();
+        }
+
+        /*
+            Edge difference (shortcuts added minus edges removed), weighted
+            double, plus the number of neighbours already contracted and
+            the level of the vertex in the hierarchy so far. The last two
+            spread the contraction evenly over the map and keep the
+            hierarchy shallow.
+        */
+        private double priority(int v) {
+            int shortcuts = findShortcuts(v, ESTIMATE_SETTLE_LIMIT);
+            return 2 * (shortcuts - degree[v]) + contractedNeighbours[v] + level[v];
+        }
+
+        /*
+            Contract a vertex: record its edges as upward edges, add the
+            shortcuts needed to keep distances between its neighbours, and
+            remove it from the remaining graph.
+        */
+        private void contract(int v) {
+            findShortcuts(v, CONTRACT_SETTLE_LIMIT);
+
+            for (int i = 0; i < degree[v]; i++) {
+                int u = adjTo[v][i];
+                edgeFrom.add(v);
+                edgeTo.add(u);
+                edgeWeight.add(adjWeight[v][i]);
+                edgeMiddle.add(adjMiddle[v][i]);
+
+                removeEdge(u, v);
+                contractedNeighbours[u]++;
+                level[u] = Math.max(level[u], level[v] + 1);
+            }
+            contracted[v] = true;
+
+            for (int i = 0; i < shortcutFrom.size(); i++) {
+                addEdge(shortcutFrom.get(i), shortcutTo.get(i), shortcutWeight.get(i), v);
+                addEdge(shortcutTo.get(i), shortcutFrom.get(i), shortcutWeight.get(i), v);
+            }
+            shortcutCount += shortcutFrom.size();
+        }
+
+        /*
+            Find the shortcuts that contracting v would need: for every
+            pair of neighbours u, w, a shortcut is needed unless a witness
+            search from u that avoids v finds a path to w no longer than
+            u -> v -> w. The shortcuts are left in the shortcut lists.
+            @return: the number of shortcuts
+        */
+        private int findShortcuts(int v, int settleLimit) {
+            shortcutFrom.clear();
+            shortcutTo.clear();
+            shortcutWeight.clear();
+
+            int d = degree[v];
+            for (int i = 0; i < d; i++) {
+                int u = adjTo[v][i];
+
+                // pairs are only checked from their first neighbour
+                if (i == d - 1) {
+                    continue;
+                }
+
+                // longest detour through v to a later neighbour
+                double limit = 0;
+                for (int j = i + 1; j < d; j++) {
+                    limit = Math.max(limit, adjWeight[v][i] + adjWeight[v][j]);
+                }
+
+                witnessSearch(u, v, limit, settleLimit);
+
+                for (int j = i + 1; j < d; j++) {
+                    double viaV = adjWeight[v][i] + adjWeight[v][j];
+                    if (witness.getDistance(adjTo[v][j]) > viaV) {
+                        shortcutFrom.add(u);
+                        shortcutTo.add(adjTo[v][j]);
+                        shortcutWeight.add(viaV);
+                    }
+                }
+            }
+
+            return shortcutFrom.size();
+        }
+
+        /*
+            Dijkstra from source over the remaining graph without the
+            vertex being contracted, stopping past the distance limit or
+            after settling settleLimit vertices. Giving up early
+            only costs an extra shortcut, never a wrong distance.
+        */
+        private void witnessSearch(int source, int skip, double limit, int settleLimit) {
+            witness.reset();
+            IndexedHeap queue = witness.getQueue();
+            witness.update(source, 0, -1);
+            queue.insertOrDecrease(source, 0);
+
+            int settled = 0;
+            while (!queue.isEmpty() && queue.minKey() <= limit && settled < settleLimit) {
+                int current = queue.poll();
+                witness.settle(current);
+                settled++;
+
+                double currentDistance = witness.getDistance(current);
+                for (int i = 0; i < degree[current]; i++) {
+                    int adjacent = adjTo[current][i];
+                    if (adjacent == skip || witness.isSettled(adjacent)) {
+                        continue;
+                    }
+
+                    double adjDistance = currentDistance + adjWeight[current][i];
+                    if (adjDistance < witness.getDistance(adjacent)) {
+                        witness.update(adjacent, adjDistance, current);
+                        queue.insertOrDecrease(adjacent, adjDistance);
+                    }
+                }
+            }
+        }
+
+        /*
+            Add the edge a -> b, or shorten the existing one.
+        */
+        private void addEdge(int a, int b, double weight, int middle) {
+            for (int i = 0; i < degree[a]; i++) {
+                if (adjTo[a][i] == b) {
+                    if (weight < adjWeight[a][i]) {
+                        adjWeight[a][i] = weight;
+                        adjMiddle[a][i] = middle;
+                    }
+                    return;
+                }
+            }
+
+            if (degree[a] == adjTo[a].length) {
+                int capacity = adjTo[a].length * 2;
+                adjTo[a] = Arrays.copyOf(adjTo[a], capacity);
+                adjWeight[a] = Arrays.copyOf(adjWeight[a], capacity);
+                adjMiddle[a] = Arrays.copyOf(adjMiddle[a], capacity);
+            }
+
+            int i = degree[a]++;
+            adjTo[a][i] = b;
+            adjWeight[a][i] = weight;
+            adjMiddle[a][i] = middle;
+        }
+
+        /*
+            Remove the edge a -> b by moving the last edge into its slot.
+        */
+        private void removeEdge(int a, int b) {
+            for (int i = 0; i < degree[a]; i++) {
+                if (adjTo[a][i] == b) {
+                    int last = --degree[a];
+                    adjTo[a][i] = adjTo[a][last];
+                    adjWeight[a][i] = adjWeight[a][last];
+                    adjMiddle[a][i] = adjMiddle[a][last];
+                    return;
+                }
+            }
+        }
+
+        /*
+            Build the upward CSR arrays from the recorded edges.
+        */
+        private void buildUpwardGraph() {
+            int m = edgeFrom.size();
+            int[] offs = new int[n + 1];
+            for (int i = 0; i < m; i++) {
+                offs[edgeFrom.get(i) + 1]++;
+            }
+            for (int v = 0; v < n; v++) {
+                offs[v + 1] += offs[v];
+            }
+
+            int[] next = Arrays.copyOf(offs, n);
+            upTargets = new int[m];
+            upWeights = new double[m];
+            upMiddle = new int[m];
+            for (int i = 0; i < m; i++) {
+                int slot = next[edgeFrom.get(i)]++;
+                upTargets[slot] = edgeTo.get(i);
+                upWeights[slot] = edgeWeight.get(i);
+                upMiddle[slot] = edgeMiddle.get(i);
+            }
+            upOffsets = offs;
+        }
+    }
+}
@@ -0,0 +1,315 @@
+/**
+ *  @file   DistanceMatrix.java
+ *  @brief  Class to compute the road distances between every source and
+ *          every target of two sets of intersections. Without a hierarchy
+ *          each source runs one Dijkstra search that stops once all the
+ *          targets are settled; with one, the bucket-based many-to-many
+ *          algorithm only searches upward from each end. Sources are
+ *          spread over a fork/join pool either way.
+ *  @author Mustafa Siddiqui
+ *  @date   10/18/2026
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+public class DistanceMatrix {
+    // "SDMX" at the start of a binary matrix file
+    static final int MAGIC = 0x53444d58;
+    static final int VERSION = 1;
+
+    // sources handed to a task at a time
+    private static final int CHUNK = 8;
+
+    private Graph map;
+    private ContractionHierarchy hierarchy;
+    private int threads;
+
+    /*
+        Constructor for the DistanceMatrix class.
+        @param: map         -   graph to measure distances on
+        @param: hierarchy   -   contraction hierarchy of the map, or null
+        @param: threads     -   number of threads to search on
+    */
+    public DistanceMatrix(Graph map, ContractionHierarchy hierarchy, int threads) {
+        map.freeze();
+        this.map = map;
+        this.hierarchy = hierarchy;
+        this.threads = Math.max(1, threads);
+    }
+
+    /*
+        Compute the distance from every source to every target.
+        @param: sources -   vertex indices of the rows
+        @param: targets -   vertex indices of the columns
+        @return: matrix[i][j] is the distance from sources[i] to
+                 targets[j] in miles, infinity if there is no route
+    */
+    public double[][] compute(int[] sources, int[] targets) {
+        double[][] matrix = new double[sources.length][targets.length];
+        for (double[] row : matrix) {
+            Arrays.fill(row, Double.POSITIVE_INFINITY);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            if (hierarchy != null) {
+                buckets(pool, sources, targets, matrix);
+            }
+            else {
+                oneToMany(pool, sources, targets, matrix);
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+
+        return matrix;
+    }
+
+    /*
+        One Dijkstra search per source. Targets are marked in an array
+        shared by all searches, and a search stops as soon as the last
+        distinct target is settled instead of exploring the whole map.
+    */
+    private void oneToMany(ForkJoinPool pool, int[] sources, int[] targets, double[][] matrix) {
+        boolean[] isTarget = new boolean[map.vertexCount()];
+        int distinct = 0;
+        for (int t : targets) {
+            if (!isTarget[t]) {
+                isTarget[t] = true;
+                distinct++;
+            }
+        }
+        int targetCount = distinct;
+
+        runChunks(pool, sources.length, (from, to) -> {
+            SearchContext ctx = map.acquireContext();
+            try {
+                for (int i = from; i < to; i++) {
+                    search(sources[i], isTarget, targetCount, ctx);
+                    for (int j = 0; j < targets.length; j++) {
+                        if (ctx.isSettled(targets[j])) {
+                            matrix[i][j] = ctx.getDistance(targets[j]);
+                        }
+                    }
+                }
+            }
+            finally {
+                map.releaseContext(ctx);
+            }
+        });
+    }
+
+    /*
+        Dijkstra's algorithm from start until every marked target is
+        settled or the queue runs out. Also used by ShardWorker.
+    */
+    void search(int start, boolean[] isTarget, int targetCount, SearchContext ctx) {
+        ctx.reset();
+        IndexedHeap unvisited = ctx.getQueue();
+        double[] weights = map.weights;
+        ctx.update(start, 0, -1);
+        unvisited.insertOrDecrease(start, 0);
+
+        int remaining = targetCount;
+        while (!unvisited.isEmpty()) {
+            int current = unvisited.poll();
+            ctx.settle(current);
+            if (isTarget[current] && --remaining == 0) {
+                return;
+            }
+
+            double currentDistance = ctx.getDistance(current);
+            for (int e = map.offsets[current]; e < map.offsets[current + 1]; e++) {
+                int adjacent = map.targets[e];
+                double adjDistance = currentDistance + weights[e];
+                if (adjDistance < ctx.getDistance(adjacent)) {
+                    ctx.update(adjacent, adjDistance, current);
+                    unvisited.insertOrDecrease(adjacent, adjDistance);
+                }
+            }
+        }
+    }
+
+    /*
+        Bucket-based many-to-many on the hierarchy. An upward search from
+        every target leaves an entry (target, distance) in the bucket of
+        each vertex it settles. An upward search from a source then only
+        has to scan the buckets of the vertices it settles: the shortest
+        path to every target passes its highest vertex, which both
+        searches reach.
+    */
+    private void buckets(ForkJoinPool pool, int[] sources, int[] targets, double[][] matrix) {
+        int n = map.vertexCount();
+
+        // upward search spaces of the targets
+        int[][] spaceVertices = new int[targets.length][];
+        double[][] spaceDistances = new double[targets.length][];
+        runChunks(pool, targets.length, (from, to) -> {
+            SearchContext ctx = map.acquireContext();
+            IntList settled = new IntList();
+            try {
+                for (int j = from; j < to; j++) {
+                    hierarchy.upwardSearch(targets[j], ctx, settled);
+                    spaceVertices[j] = settled.toArray();
+                    spaceDistances[j] = new double[settled.size()];
+                    for (int k = 0; k < settled.size(); k++) {
+                        spaceDistances[j][k] = ctx.getDistance(settled.get(k));
+                    }
+                }
+            }
+            finally {
+                map.releaseContext(ctx);
+            }
+        });
+
+        // buckets in CSR form, indexed by vertex
+        int[] bucketStart = new int[n + 1];
+        for (int[] space : spaceVertices) {
+            for (int v : space) {
+                bucketStart[v + 1]++;
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            bucketStart[v + 1] += bucketStart[v];
+        }
+        int[] fill = Arrays.copyOf(bucketStart, n);
+        int[] bucketTarget = new int[bucketStart[n]];
+        double[] bucketDistance = new double[bucketStart[n]];
+        for (int j = 0; j < targets.length; j++) {
+            for (int k = 0; k < spaceVertices[j].length; k++) {
+                int slot = fill[spaceVertices[j][k]]++;
+                bucketTarget[slot] = j;
+                bucketDistance[slot] = spaceDistances[j][k];
+            }
+        }
+
+        runChunks(pool, sources.length, (from, to) -> {
+            SearchContext ctx = map.acquireContext();
+            IntList settled = new IntList();
+            try {
+                for (int i = from; i < to; i++) {
+                    hierarchy.upwardSearch(sources[i], ctx, settled);
+                    double[] row = matrix[i];
+                    for (int k = 0; k < settled.size(); k++) {
+                        int v = settled.get(k);
+                        double d = ctx.getDistance(v);
+                        for (int b = bucketStart[v]; b < bucketStart[v + 1]; b++) {
+                            double through = d + bucketDistance[b];
+                            if (through < row[bucketTarget[b]]) {
+                                row[bucketTarget[b]] = through;
+                            }
+                        }
+                    }
+                }
+            }
+            finally {
+                map.releaseContext(ctx);
+            }
+        });
+    }
+
+    /*
+        Write a matrix as CSV: a header row with the target ids, then one
+        row per source starting with its id. Unreachable pairs are left
+        empty.
+    */
+    public static void writeCsv(String fileName, Graph map, int[] sources, int[] targets, double[][] matrix)
+            throws IOException {
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(fileName), 1 << 16)) {
+            StringBuilder line = new StringBuilder();
+            for (int t : targets) {
+                line.append(',').append(map.getID(t));
+            }
+            out.write(line.append('\n').toString());
+
+            for (int i = 0; i < sources.length; i++) {
+                line.setLength(0);
+                line.append(map.getID(sources[i]));
+                for (double d : matrix[i]) {
+                    line.append(',');
+                    if (d != Double.POSITIVE_INFINITY) {
+                        line.append(d);
+                    }
+                }
+                out.write(line.append('\n').toString());
+            }
+        }
+    }
+
+    /*
+        Write a matrix in binary: the magic number, version, row and
+        column counts as big-endian ints, the source then target ids as
+        modified UTF-8 strings (DataOutput.writeUTF), then the distances
+        row by row as floats, infinity where there is no route.
+    */
+    public static void writeBinary(String fileName, Graph map, int[] sources, int[] targets, double[][] matrix)
+            throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(sources.length);
+            out.writeInt(targets.length);
+            for (int s : sources) {
+                out.writeUTF(map.getID(s));
+            }
+            for (int t : targets) {
+                out.writeUTF(map.getID(t));
+            }
+            for (double[] row : matrix) {
+                for (double d : row) {
+                    out.writeFloat((float)d);
+                }
+            }
+        }
+    }
+
+    /*
+        Work on the index range [from, to) of the sources or targets.
+    */
+    private interface RangeTask {
+        void run(int from, int to);
+    }
+
+    /*
+        Helper method to split [0, size) into small chunks and run them on
+        the pool, waiting for all of them. Small chunks keep the threads
+        busy when some searches take much longer than others.
+    */
+    private static void runChunks(ForkJoinPool pool, int size, RangeTask task) {
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int from = 0; from < size; from += CHUNK) {
+            int start = from;
+            int end = Math.min(size, from + CHUNK);
+            tasks.add(() -> {
+                task.run(start, end);
+                return null;
+            });
+        }
+
+        try {
+            for (Future<Void> result : pool.invokeAll(tasks)) {
+                result.get();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while computing distances", e);
+        }
+        catch (ExecutionException e) {
+            throw new IllegalStateException("Distance search failed", e.getCause());
+        }
+    }
+}
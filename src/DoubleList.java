@@ -0,0 +1,55 @@
+/**
+ *  @file   DoubleList.java
+ *  @brief  Class to implement a growable list of primitive doubles,
+ *          avoiding the boxing of ArrayList<Double> in hot code.
+ *  @author Mustafa Siddiqui
+ *  @date   10/18/2026
+ */
+
+import java.util.Arrays;
+
+public class DoubleList {
+    private double[] values;
+    private int size = 0;
+
+    /*
+        Constructors for the DoubleList class.
+    */
+    public DoubleList() {
+        this(16);
+    }
+
+    public DoubleList(int capacity) {
+        values = new double[Math.max(1, capacity)];
+    }
+
+    public void add(double value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    public double get(int i) {
+        return values[i];
+    }
+
+    public void set(int i, double value) {
+        values[i] = value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /*
+        Returns a copy of the values as an array of exactly size() elements.
+    */
+    public double[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
@@ -8,6 +8,9 @@
 import java.lang.Math;
 
 public class Edge implements Comparable<Edge> {
+    // radius of earth in miles
+    static final double EARTH_RADIUS = 3958.8;
+
     private String id;
     private String startVertexID;
     private String endVertexID;
@@ -26,21 +29,39 @@ public class Edge implements Comparable<Edge> {
         this.weight = calcWeight(start, end);
     }
 
+    /*
+        Constructor used by the graph to hand out roads whose weight
+        has already been computed.
+    */
+    Edge(String id, String startVertexID, String endVertexID, double weight) {
+        this.id = id;
+        this.startVertexID = startVertexID;
+        this.endVertexID = endVertexID;
+        this.weight = weight;
+    }
+
     /*
         Calculate the distance between two intersections (or the length of
         the road aka weight of the edge) using the haversine formula:
         https://www.movable-type.co.uk/scripts/latlong.html 
     */
     public double calcWeight(Vertex start, Vertex end) {
+        return haversine(start.getLatitude(), start.getLongitude(), end.getLatitude(), end.getLongitude());
+    }
+
+    /*
+        Haversine distance in miles between two points given as
+        latitude/longitude pairs in degrees.
+    */
+    public static double haversine(double lat1, double long1, double lat2, double long2) {
         // use haversine formula
-        // radius of earth in miles
-        double R = 3958.8;
+        double R = EARTH_RADIUS;
 
-        double deltaLat = Math.toRadians(start.getLatitude() - end.getLatitude());
-        double delatLong = Math.toRadians(start.getLongitude() - end.getLongitude());
+        double deltaLat = Math.toRadians(lat1 - lat2);
+        double delatLong = Math.toRadians(long1 - long2);
 
         double a = (Math.sin(deltaLat / 2) * Math.sin(deltaLat / 2)) +
-                    Math.cos(Math.toRadians(start.getLatitude())) * Math.cos(Math.toRadians(end.getLatitude())) * 
+                    Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * 
                     (Math.sin(delatLong / 2) * Math.sin(delatLong / 2));
 
         double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
@@ -55,7 +76,7 @@ public class Edge implements Comparable<Edge> {
     */
     @Override
     public int compareTo(Edge other) {
-        return (int)(this.getWeight() - other.getWeight());
+        return Double.compare(this.getWeight(), other.getWeight());
     }
 
     /*
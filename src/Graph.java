@@ -1,195 +1,848 @@
 /**
  *  @file   Graph.java
- *  @brief  Class to represent a graph ADT. Uses the
- *          Vertex and Edge classes.
+ *  @brief  Class to represent a graph ADT. Intersections and roads are
+ *          added one at a time and then frozen into a compressed sparse
+ *          row (CSR) layout of primitive arrays. Vertex and Edge objects
+ *          are only created at the API boundary. Road weights can still
+ *          be changed afterwards; every change swaps in new weight arrays
+ *          so searches already running keep the ones they started with.
  *  @author Mustafa Siddiqui
  *  @date   05/02/2021
  */
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.PriorityQueue;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class Graph {
-    // hashmap for O(1) vertex retrieval
-    public static HashMap<String, Vertex> vertices;
-    
+    // weight of a closed road, which no search goes along
+    public static final double CLOSED = Double.POSITIVE_INFINITY;
+
+    // initial capacity of the growable arrays used while loading
+    private static final int INITIAL_CAPACITY = 16;
+
+    // vertex (intersection) data indexed by the int id assigned on insertion
+    private int vertexCount = 0;
+    private double[] latitudes = new double[INITIAL_CAPACITY];
+    private double[] longitudes = new double[INITIAL_CAPACITY];
+
+    // String <-> int dictionaries, only used at the API boundary. They are
+    // NameTables while the graph is being built
+    private IdTable vertexIds = new NameTable();
+    private IdTable roadIds = new NameTable();
+
+    // edge (road) data indexed by the order roads were added
+    private int roadCount = 0;
+    private int[] roadStart = new int[INITIAL_CAPACITY];
+    private int[] roadEnd = new int[INITIAL_CAPACITY];
+    private volatile double[] roadWeight = new double[INITIAL_CAPACITY];
+
+    // road weights the graph was loaded with, kept once they are changed
+    private double[] loadedWeight;
+
+    // number of updateRoads() calls so far
+    private volatile int weightVersion = 0;
+
+    // smallest ratio of a road's weight to its loaded weight, at most 1
+    private volatile double weightFactor = 1;
+
+    /*
+        CSR adjacency built by freeze(). Every road is stored once in the
+        adjacency of each endpoint, so the edges of vertex v are the slots
+        offsets[v] .. offsets[v + 1] - 1 of targets, weights and edgeRoad.
+        Package-private so the search code can walk them without copies.
+        The weights array is replaced, never written, by updateRoads(), so
+        a search reads the field once and uses that array throughout.
+    */
+    int[] offsets;
+    int[] targets;
+    volatile double[] weights;
+    int[] edgeRoad;
+
+    // bounding box of all intersections, used for drawing the map
+    private double maxLat = Double.MAX_VALUE * -1;
+    private double maxLong = Double.MAX_VALUE * -1;
+    private double minLat = Double.MAX_VALUE;
+    private double minLong = Double.MAX_VALUE;
+
+    // search contexts handed back after a query, reused by later queries
+    private ConcurrentLinkedQueue<SearchContext> contextPool = new ConcurrentLinkedQueue<SearchContext>();
+
+    // straight-line distance bound for A*, built on first use
+    private volatile ChordHeuristic chordHeuristic;
+
+    // connected component of every intersection over the open roads, and
+    // the size of each component, once findComponents() has run
+    private volatile int[] componentOf;
+    private int[] componentSize;
+
     /*
         Constructor for the graph class.
     */
     public Graph() {
-        vertices = new HashMap<String, Vertex>();
+    }
+
+    /*
+        Constructor for a frozen graph whose arrays were built elsewhere,
+        e.g. read from a binary map file. The arrays are used as they are,
+        not copied.
+    */
+    Graph(IdTable vertexIds, double[] latitudes, double[] longitudes,
+          IdTable roadIds, int[] roadStart, int[] roadEnd, double[] roadWeight,
+          int[] offsets, int[] targets, double[] weights, int[] edgeRoad) {
+        this.vertexIds = vertexIds;
+        this.vertexCount = latitudes.length;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+
+        this.roadIds = roadIds;
+        this.roadCount = roadStart.length;
+        this.roadStart = roadStart;
+        this.roadEnd = roadEnd;
+        this.roadWeight = roadWeight;
+
+        this.targets = targets;
+        this.weights = weights;
+        this.edgeRoad = edgeRoad;
+        this.offsets = offsets;
+
+        computeBounds();
+    }
+
+    /*
+        Constructor for a graph whose intersections and roads were parsed
+        elsewhere, e.g. in parallel by MapReader. The CSR adjacency is
+        built straight away, so the graph is frozen.
+    */
+    Graph(NameTable vertexIds, double[] latitudes, double[] longitudes,
+          NameTable roadIds, int[] roadStart, int[] roadEnd, double[] roadWeight) {
+        this.vertexIds = vertexIds;
+        this.vertexCount = latitudes.length;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+
+        this.roadIds = roadIds;
+        this.roadCount = roadStart.length;
+        this.roadStart = roadStart;
+        this.roadEnd = roadEnd;
+        this.roadWeight = roadWeight;
+
+        computeBounds();
+        freeze();
+    }
+
+    /*
+        Helper method to compute the bounding box of all intersections.
+    */
+    private void computeBounds() {
+        for (int v = 0; v < vertexCount; v++) {
+            maxLat = Math.max(maxLat, latitudes[v]);
+            maxLong = Math.max(maxLong, longitudes[v]);
+            minLat = Math.min(minLat, latitudes[v]);
+            minLong = Math.min(minLong, longitudes[v]);
+        }
     }
 
     /*
         Add a vertex (intersection) to the graph structure.
     */
     public void addIntersection(Vertex node) {
-        vertices.put(node.getID(), node);
+        node.setIndex(addIntersection(node.getID(), node.getLatitude(), node.getLongitude()));
     }
 
     /*
-        Add an edge (road) to the adjacency lists of the vertices 
-        (intersections) it connects.
+        Add an intersection given its id and coordinates.
+        @return: the int index assigned to the intersection
+    */
+    public int addIntersection(String id, double latitude, double longitude) {
+        checkNotFrozen();
+
+        if (vertexCount == latitudes.length) {
+            int capacity = latitudes.length * 2;
+            latitudes = Arrays.copyOf(latitudes, capacity);
+            longitudes = Arrays.copyOf(longitudes, capacity);
+        }
+
+        int v = vertexCount++;
+        ((NameTable)vertexIds).add(id);
+        latitudes[v] = latitude;
+        longitudes[v] = longitude;
+
+        // update bounding box
+        if (latitude > maxLat)
+            maxLat = latitude;
+
+        if (longitude > maxLong)
+            maxLong = longitude;
+
+        if (latitude < minLat)
+            minLat = latitude;
+
+        if (longitude < minLong)
+            minLong = longitude;
+
+        return v;
+    }
+
+    /*
+        Add an edge (road) connecting the two vertices (intersections).
     */
     public void addRoad(Edge connect, Vertex node1, Vertex node2) {
-        vertices.get(node1.getID()).getAdjList().add(connect);
-        vertices.get(node2.getID()).getAdjList().add(connect);
-        //System.out.println(connect.getID() + " added to " + node1.getID() + " & " + node2.getID());
+        addRoad(connect.getID(), node1.getID(), node2.getID());
     }
 
     /*
-        Access the vertices stored in the graph.
+        Add a road given its id and the ids of the intersections it connects.
+        All intersections must be added before the roads using them.
+        @return: the int index assigned to the road
     */
-    public HashMap<String, Vertex> getVertices() {
-        return vertices;
+    public int addRoad(String id, String startID, String endID) {
+        checkNotFrozen();
+
+        int start = indexOf(startID);
+        int end = indexOf(endID);
+        if (start < 0 || end < 0) {
+            throw new IllegalArgumentException("Road " + id + " connects unknown intersection " +
+                                                (start < 0 ? startID : endID));
+        }
+
+        if (roadCount == roadStart.length) {
+            int capacity = roadStart.length * 2;
+            roadStart = Arrays.copyOf(roadStart, capacity);
+            roadEnd = Arrays.copyOf(roadEnd, capacity);
+            roadWeight = Arrays.copyOf(roadWeight, capacity);
+        }
+
+        int r = roadCount++;
+        ((NameTable)roadIds).add(id);
+        roadStart[r] = start;
+        roadEnd[r] = end;
+        roadWeight[r] = Edge.haversine(latitudes[start], longitudes[start], latitudes[end], longitudes[end]);
+
+        return r;
     }
 
     /*
-        Implement Dijkstra's algorithm to find the shortest path
-        between two vertices on the map. Updates the parent vertex
-        for each vertex, and then the path can be retraced by following
-        the parent vertices starting from the end vertex.
+        Build the CSR adjacency from the roads added so far and release
+        the slack in the loading arrays. No intersections or roads can be
+        added afterwards. Calling it more than once has no effect.
     */
-    public boolean shortestPath(Vertex start, Vertex end) {
-        // initial values of parameters already set during vertex instantiation
-        // distance -> INF, visited -> false, parent -> null
-        // minimum priority queue of unvisited vertices
-        PriorityQueue<Vertex> unvisited = new PriorityQueue<Vertex>();
+    public void freeze() {
+        if (isFrozen()) {
+            return;
+        }
 
-        // start vertex has distance 0 from itself
-        start.setDistance(0);
-        unvisited.add(start);
+        ((NameTable)vertexIds).trim();
+        ((NameTable)roadIds).trim();
+        latitudes = Arrays.copyOf(latitudes, vertexCount);
+        longitudes = Arrays.copyOf(longitudes, vertexCount);
+        roadStart = Arrays.copyOf(roadStart, roadCount);
+        roadEnd = Arrays.copyOf(roadEnd, roadCount);
+        roadWeight = Arrays.copyOf(roadWeight, roadCount);
 
-        // visit every vertex once
-        while (!unvisited.isEmpty()) {
-            // retrieve vertex with the smallest distance
-            Vertex current = unvisited.poll();
-            current.setVisited(true);
-
-            for (Edge e : current.getAdjList()) {
-                Vertex adjacent = vertices.get(e.getEndVertexID());
-                // take care of a flipped road
-                if (adjacent == current) {
-                    adjacent = vertices.get(e.getStartVertexID());
+        // count the degree of every vertex, then prefix sum into offsets
+        int[] offs = new int[vertexCount + 1];
+        for (int r = 0; r < roadCount; r++) {
+            offs[roadStart[r] + 1]++;
+            offs[roadEnd[r] + 1]++;
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            offs[v + 1] += offs[v];
+        }
+
+        // fill both directions of every road
+        int[] next = Arrays.copyOf(offs, vertexCount);
+        int[] targ = new int[2 * roadCount];
+        double[] wt = new double[2 * roadCount];
+        int[] road = new int[2 * roadCount];
+        for (int r = 0; r < roadCount; r++) {
+            int a = next[roadStart[r]]++;
+            targ[a] = roadEnd[r];
+            wt[a] = roadWeight[r];
+            road[a] = r;
+
+            int b = next[roadEnd[r]]++;
+            targ[b] = roadStart[r];
+            wt[b] = roadWeight[r];
+            road[b] = r;
+        }
+
+        targets = targ;
+        weights = wt;
+        edgeRoad = road;
+        offsets = offs;
+    }
+
+    /*
+        Returns true once the CSR adjacency has been built.
+    */
+    public boolean isFrozen() {
+        return offsets != null;
+    }
+
+    /*
+        Helper method to reject modifications after freeze().
+    */
+    private void checkNotFrozen() {
+        if (isFrozen()) {
+            throw new IllegalStateException("Graph is frozen");
+        }
+    }
+
+    /*
+        Get methods for vertex (intersection) data.
+    */
+
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    /*
+        Look up the int index of an intersection.
+        @return: the index, or -1 if there is no such intersection
+    */
+    public int indexOf(String id) {
+        return vertexIds.indexOf(id);
+    }
+
+    public String getID(int v) {
+        return vertexIds.get(v);
+    }
+
+    public double getLatitude(int v) {
+        return latitudes[v];
+    }
+
+    public double getLongitude(int v) {
+        return longitudes[v];
+    }
+
+    /*
+        Create a Vertex object for the intersection with the given index.
+    */
+    public Vertex getVertex(int v) {
+        Vertex node = new Vertex(vertexIds.get(v), latitudes[v], longitudes[v]);
+        node.setIndex(v);
+        return node;
+    }
+
+    /*
+        Create a Vertex object for the intersection with the given id.
+        @return: the vertex, or null if there is no such intersection
+    */
+    public Vertex getVertex(String id) {
+        int v = indexOf(id);
+        return (v < 0) ? null : getVertex(v);
+    }
+
+    /*
+        Get methods for edge (road) data.
+    */
+
+    public int roadCount() {
+        return roadCount;
+    }
+
+    /*
+        Look up the int index of a road.
+        @return: the index, or -1 if there is no such road
+    */
+    public int indexOfRoad(String id) {
+        return roadIds.indexOf(id);
+    }
+
+    public String getRoadID(int r) {
+        return roadIds.get(r);
+    }
+
+    public int getRoadStart(int r) {
+        return roadStart[r];
+    }
+
+    public int getRoadEnd(int r) {
+        return roadEnd[r];
+    }
+
+    public double getRoadWeight(int r) {
+        return roadWeight[r];
+    }
+
+    /*
+        Returns the weight of a road before any updateRoads() call.
+    */
+    public double getLoadedWeight(int r) {
+        double[] loaded = loadedWeight;
+        return (loaded == null) ? roadWeight[r] : loaded[r];
+    }
+
+    public boolean isClosed(int r) {
+        return roadWeight[r] == CLOSED;
+    }
+
+    /*
+        Returns the current road weights. The array is never changed
+        after it is handed out, so it is a consistent snapshot.
+    */
+    double[] roadWeights() {
+        freeze();
+        return roadWeight;
+    }
+
+    public int getWeightVersion() {
+        return weightVersion;
+    }
+
+    /*
+        Returns the smallest ratio of a road's weight to its loaded
+        weight (1 if no road is shorter than it was loaded), which the
+        straight-line heuristic is scaled by to stay a lower bound.
+    */
+    public double getWeightFactor() {
+        return weightFactor;
+    }
+
+    /*
+        Set the weights of some roads, e.g. to close them or to apply a
+        congestion multiplier. The weight arrays are copied, changed and
+        then swapped in together, so searches already running finish on
+        the old weights and later ones see all of the changes. Updates
+        are applied one at a time.
+        @param: roads       -   indices of the roads to change
+        @param: newWeights  -   weight in miles of each road, or CLOSED
+    */
+    public synchronized void updateRoads(int[] roads, double[] newWeights) {
+        freeze();
+        if (roads.length != newWeights.length) {
+            throw new IllegalArgumentException("Got " + roads.length + " roads and " + newWeights.length + " weights");
+        }
+
+        double[] road = roadWeight.clone();
+        double[] edge = weights.clone();
+        boolean reopened = false;
+        for (int i = 0; i < roads.length; i++) {
+            int r = roads[i];
+            // -0.0 would sort after every other weight by its bits
+            double w = newWeights[i] + 0.0;
+            if (r < 0 || r >= roadCount) {
+                throw new IllegalArgumentException("No road with index " + r);
+            }
+            if (!(w >= 0)) {
+                throw new IllegalArgumentException("Road " + roadIds.get(r) + " cannot weigh " + w);
+            }
+
+            // the road's slot in the adjacency of both of its ends
+            reopened |= (road[r] == CLOSED && w != CLOSED);
+            road[r] = w;
+            for (int v : new int[] {roadStart[r], roadEnd[r]}) {
+                for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                    if (edgeRoad[e] == r) {
+                        edge[e] = w;
+                    }
                 }
+            }
+        }
 
-                if (!adjacent.getVisited()) {
-                    double adjDistance = current.getDistance() + e.getWeight();
-                    if (adjDistance < adjacent.getDistance()) {
-                        // update distance and parent vertex
-                        adjacent.setDistance(adjDistance);
-                        adjacent.setParent(current);
+        if (loadedWeight == null) {
+            loadedWeight = roadWeight;
+        }
+        double factor = 1;
+        for (int r = 0; r < roadCount; r++) {
+            if (road[r] < loadedWeight[r]) {
+                factor = Math.min(factor, road[r] / loadedWeight[r]);
+            }
+        }
 
-                        // add adjacent nodes to priority queue
-                        unvisited.add(adjacent);
-                        adjacent.setVisited(true);
+        roadWeight = road;
+        weights = edge;
+        weightFactor = factor;
+        weightVersion++;
+
+        ChordHeuristic h = chordHeuristic;
+        if (h != null && h.getScale() != factor) {
+            chordHeuristic = h.scaled(factor);
+        }
+
+        // closing roads only splits components, which the labels still
+        // allow for, but a reopened road can join two
+        if (reopened && componentOf != null) {
+            findComponents();
+        }
+    }
+
+    /*
+        Label the connected components of the map over the roads that are
+        open, so that searches between two components are rejected in
+        O(1) instead of exploring the whole component of the start. Runs a
+        breadth-first search from every intersection not yet labelled.
+        @return: the number of components
+    */
+    public synchronized int findComponents() {
+        freeze();
+
+        int[] label = new int[vertexCount];
+        Arrays.fill(label, -1);
+        IntList sizes = new IntList();
+        int[] queue = new int[vertexCount];
+        double[] weights = this.weights;
+
+        for (int root = 0; root < vertexCount; root++) {
+            if (label[root] >= 0) {
+                continue;
+            }
+
+            int c = sizes.size();
+            int head = 0;
+            int tail = 0;
+            label[root] = c;
+            queue[tail++] = root;
+            while (head < tail) {
+                int current = queue[head++];
+                for (int e = offsets[current]; e < offsets[current + 1]; e++) {
+                    if (weights[e] != CLOSED && label[targets[e]] < 0) {
+                        label[targets[e]] = c;
+                        queue[tail++] = targets[e];
                     }
                 }
             }
-            
-            // break out of the loop if destination is reached
-            if (end.getVisited()) {
-                System.out.println("Shortest path found!");
+            sizes.add(tail);
+        }
+
+        componentSize = sizes.toArray();
+        componentOf = label;
+        return componentSize.length;
+    }
+
+    /*
+        Returns false if no route can join the two intersections: they
+        were in different components when findComponents() last ran. Always
+        true before then.
+    */
+    public boolean mayConnect(int a, int b) {
+        int[] label = componentOf;
+        return label == null || label[a] == label[b];
+    }
+
+    /*
+        Returns the component of an intersection, or -1 before
+        findComponents() has run.
+    */
+    public int getComponent(int v) {
+        int[] label = componentOf;
+        return (label == null) ? -1 : label[v];
+    }
+
+    /*
+        Returns the number of intersections in a component.
+    */
+    public int getComponentSize(int c) {
+        return componentSize[c];
+    }
+
+    /*
+        Returns the number of components, 0 before findComponents() has run.
+    */
+    public int getComponentCount() {
+        return (componentOf == null) ? 0 : componentSize.length;
+    }
+
+    /*
+        Create an Edge object for the road with the given index.
+    */
+    public Edge getRoad(int r) {
+        return new Edge(roadIds.get(r), vertexIds.get(roadStart[r]), vertexIds.get(roadEnd[r]), roadWeight[r]);
+    }
+
+    /*
+        Get methods for the bounding box of the map.
+    */
+
+    public double getMaxLat() {
+        return maxLat;
+    }
+
+    public double getMaxLong() {
+        return maxLong;
+    }
+
+    public double getMinLat() {
+        return minLat;
+    }
+
+    public double getMinLong() {
+        return minLong;
+    }
+
+    /*
+        Take a search context from the pool, or create one if every pooled
+        context is in use. Contexts are reset before being handed out.
+        Once the graph is frozen any number of threads can query it, each
+        with its own context.
+    */
+    public SearchContext acquireContext() {
+        freeze();
+
+        SearchContext ctx = contextPool.poll();
+        if (ctx == null) {
+            ctx = new SearchContext(vertexCount);
+        }
+
+        ctx.reset();
+        return ctx;
+    }
+
+    /*
+        Return a search context to the pool once its results are no
+        longer needed.
+    */
+    public void releaseContext(SearchContext ctx) {
+        contextPool.offer(ctx);
+    }
+
+    /*
+        Find the shortest path between two vertices on the map.
+        @return: the route from start to end, or null if end cannot be
+                 reached from start
+    */
+    public Route shortestPath(Vertex start, Vertex end) {
+        return shortestPath(indexOf(start.getID()), indexOf(end.getID()), (Heuristic) null);
+    }
+
+    /*
+        Find the shortest path between two vertices given their indices,
+        using a pooled search context.
+        @param: h   -   heuristic for A*, or null for Dijkstra's algorithm
+    */
+    public Route shortestPath(int start, int end, Heuristic h) {
+        SearchContext ctx = acquireContext();
+        try {
+            return shortestPath(start, end, ctx, h) ? Route.fromSearch(ctx, end) : null;
+        }
+        finally {
+            releaseContext(ctx);
+        }
+    }
+
+    public Route shortestPath(int start, int end) {
+        return shortestPath(start, end, (Heuristic) null);
+    }
+
+    /*
+        Returns the straight-line distance heuristic for A* on this map,
+        scaled down if some road is now shorter than its loaded length.
+        A heuristic taken before updateRoads() may no longer be a lower
+        bound, so this should be called again after an update.
+    */
+    public synchronized ChordHeuristic getChordHeuristic() {
+        freeze();
+
+        ChordHeuristic h = chordHeuristic;
+        if (h == null) {
+            h = new ChordHeuristic(this).scaled(weightFactor);
+            chordHeuristic = h;
+        }
+
+        return h;
+    }
+
+    /*
+        Implement Dijkstra's algorithm to find the shortest path
+        between two vertices on the map.
+    */
+    public boolean shortestPath(int start, int end, SearchContext ctx) {
+        return shortestPath(start, end, ctx, null);
+    }
+
+    /*
+        Run Dijkstra's algorithm from start until every reachable vertex
+        is settled, leaving the full shortest path tree in the context.
+    */
+    public void shortestPathTree(int start, SearchContext ctx) {
+        shortestPathTree(start, Double.POSITIVE_INFINITY, ctx, null);
+    }
+
+    /*
+        Find the shortest path tree of every vertex within a distance of
+        start, using a pooled search context.
+        @param: limit   -   distance in miles, infinity for the whole map
+        @return: the settled vertices with their distances and parents
+    */
+    public ShortestPathTree shortestPathTree(int start, double limit) {
+        SearchContext ctx = acquireContext();
+        IntList settled = new IntList();
+        try {
+            shortestPathTree(start, limit, ctx, settled);
+            return new ShortestPathTree(start, limit, vertexCount, ctx, settled);
+        }
+        finally {
+            releaseContext(ctx);
+        }
+    }
+
+    /*
+        Run Dijkstra's algorithm from start, settling every vertex within
+        the distance limit and nothing further. Vertices past the limit
+        never enter the queue, so the work done depends on the size of
+        the area searched and not on the size of the map.
+        @param: limit   -   distance in miles, infinity for the whole map
+        @param: settled -   filled with the vertices settled, nearest
+                            first, or null
+    */
+    public void shortestPathTree(int start, double limit, SearchContext ctx, IntList settled) {
+        freeze();
+        ctx.reset();
+        if (settled != null) {
+            settled.clear();
+        }
+
+        IndexedHeap unvisited = ctx.getQueue();
+        double[] weights = this.weights;
+        ctx.update(start, 0, -1);
+        unvisited.insertOrDecrease(start, 0);
+
+        while (!unvisited.isEmpty()) {
+            int current = unvisited.poll();
+            ctx.settle(current);
+            if (settled != null) {
+                settled.add(current);
+            }
+
+            double currentDistance = ctx.getDistance(current);
+            ctx.relaxed(offsets[current + 1] - offsets[current]);
+            for (int e = offsets[current]; e < offsets[current + 1]; e++) {
+                int adjacent = targets[e];
+                double adjDistance = currentDistance + weights[e];
+                if (adjDistance <= limit && adjDistance < ctx.getDistance(adjacent)) {
+                    ctx.update(adjacent, adjDistance, current);
+                    unvisited.insertOrDecrease(adjacent, adjDistance);
+                }
+            }
+        }
+    }
+
+    /*
+        Implement Dijkstra's algorithm, or A* when a heuristic is given,
+        to find the shortest path between two vertices on the map. The
+        distance and parent of each vertex are recorded in the search
+        context, and the path can be retraced by following the parents
+        starting from the end vertex. The context is reset first, so it
+        can be reused for many queries.
+
+        A* orders the queue by distance + h(vertex, end), so with a
+        consistent heuristic it settles only the vertices that could lie
+        on a path shorter than the one found.
+    */
+    public boolean shortestPath(int start, int end, SearchContext ctx, Heuristic h) {
+        long startTime = Stats.start();
+        boolean found = search(start, end, ctx, h);
+        Stats.endQuery(startTime, ctx, null);
+        return found;
+    }
+
+    // body of shortestPath(), which times it when stats are on
+    private boolean search(int start, int end, SearchContext ctx, Heuristic h) {
+        freeze();
+        ctx.reset();
+        if (!mayConnect(start, end)) {
+            return false;
+        }
+
+        // minimum priority queue of reached but unsettled vertices
+        IndexedHeap unvisited = ctx.getQueue();
+
+        // weights as they are now, in case they are updated meanwhile
+        double[] weights = this.weights;
+
+        // start vertex has distance 0 from itself
+        ctx.update(start, 0, -1);
+        unvisited.insertOrDecrease(start, 0);
+
+        while (!unvisited.isEmpty()) {
+            // retrieve vertex with the smallest key, its distance is now final
+            int current = unvisited.poll();
+            ctx.settle(current);
+
+            // stop once the destination is settled
+            if (current == end) {
                 return true;
             }
-            
+
+            double currentDistance = ctx.getDistance(current);
+            ctx.relaxed(offsets[current + 1] - offsets[current]);
+            for (int e = offsets[current]; e < offsets[current + 1]; e++) {
+                int adjacent = targets[e];
+
+                // a settled vertex can only improve if the heuristic is not
+                // quite consistent (landmark distances are stored as floats),
+                // in which case it is reopened
+                double adjDistance = currentDistance + weights[e];
+                if (adjDistance < ctx.getDistance(adjacent)) {
+                    // update distance and parent vertex, then
+                    // insert or decrease its key in the queue
+                    ctx.update(adjacent, adjDistance, current);
+                    double key = (h == null) ? adjDistance : adjDistance + h.estimate(adjacent, end);
+                    unvisited.insertOrDecrease(adjacent, key);
+                }
+            }
         }
 
         return false;
     }
 
     /*
-        Retrieve the path by tracing the parent vertices of
-        multiple vertices starting from the destination vertex.
+        Retrieve the path of a route as a list of vertices, each holding
+        its distance from the start and its parent on the path.
 
-        Path is stored as a list of vertices.
         Path is: destination -> start
     */
-    public ArrayList<Vertex> getPath(Vertex end, Vertex start) {
+    public ArrayList<Vertex> getPath(Route route) {
         ArrayList<Vertex> pathList = new ArrayList<Vertex>();
 
-        Vertex current = end;
-        pathList.add(current);
+        int[] path = route.getVertices();
+        double[] dist = route.getDistances();
+        Vertex previous = null;
+        for (int i = path.length - 1; i >= 0; i--) {
+            Vertex current = getVertex(path[i]);
+            current.setDistance(dist[i]);
+            if (previous != null) {
+                previous.setParent(current);
+            }
 
-        // stop at vertex whose parent is the start vertex
-        while (current.getParent() != start) {
-            current = current.getParent();
             pathList.add(current);
+            previous = current;
         }
 
-        // add the start vertex to list
-        pathList.add(start);
-
         return pathList;
     }
 
     /*
         Method to determine the minimum spanning tree of a graph using
-        Kruskal's algorithm.
-        ** can be very slow for huge datasets since set retrieval is not O(1) **
+        Kruskal's algorithm with a union-find structure. On a map that is
+        not connected it spans every piece (a minimum spanning forest).
 
         @return:    a list containing the edges which form the minimum
                     spanning tree
     */
     public ArrayList<Edge> minSpanningTree() {
-        PriorityQueue<Edge> edgeList = new PriorityQueue<Edge>();
-        HashSet<HashSet<Vertex>> vertexSet = new HashSet<HashSet<Vertex>>();
-        ArrayList<Edge> resultList = new ArrayList<Edge>();
-        
-        for (String key : vertices.keySet()) {
-            // add a set containing one vertex into set of sets
-            HashSet<Vertex> v = new HashSet<Vertex>();
-            v.add(vertices.get(key));
-            vertexSet.add(v);
-
-            // add every edge into priority queue once
-            ArrayList<Edge> temp = vertices.get(key).getAdjList();
-            for (Edge e : temp) {
-                if (!edgeList.contains(e))
-                    edgeList.add(e);
-            }
-        }
-
-        while (vertexSet.size() > 1 && edgeList.size() > 0) {
-            // get edge with minimum weight
-            Edge nextEdge = edgeList.poll();
-
-            // get the sets containing the two vertices connected by the edge
-            HashSet<Vertex> vSet1 = get(vertexSet, vertices.get(nextEdge.getStartVertexID()));
-            HashSet<Vertex> vSet2 = get(vertexSet, vertices.get(nextEdge.getEndVertexID()));
-
-            // should never happen but still checked to prevent from crashing
-            if (vSet1 == null || vSet2 == null) {
-                System.out.println("Sets are NULL");
-                continue;
-            }
-
-            if (!vSet1.equals(vSet2)) {
-                // add edge to resulting list
-                resultList.add(nextEdge);
+        return toRoads(MinSpanningTree.kruskal(this));
+    }
 
-                // merge the two sets and remove the individual set while 
-                // keeping the merged set in the set of sets
-                vSet1.addAll(vSet2);
-                vertexSet.remove(vSet2);
-            }
-        }
-        
-        return resultList;
+    /*
+        Same tree computed with Boruvka's algorithm on several threads.
+        @param: threads -   number of threads to use
+    */
+    public ArrayList<Edge> minSpanningTree(int threads) {
+        return toRoads(MinSpanningTree.boruvka(this, threads));
     }
 
     /*
-        Helper method to obtain the set which contains the specified element 
-        from the set of sets.
+        Helper method to create the Edge objects for a list of roads.
     */
-    public HashSet<Vertex> get(HashSet<HashSet<Vertex>> vertexSet, Vertex element) {
-        for (HashSet<Vertex> s : vertexSet) {
-            if (s.contains(element))
-                return s;
+    private ArrayList<Edge> toRoads(int[] roads) {
+        ArrayList<Edge> resultList = new ArrayList<Edge>(roads.length);
+        for (int r : roads) {
+            resultList.add(getRoad(r));
         }
 
-        return null;
+        return resultList;
     }
 }
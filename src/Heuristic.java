@@ -0,0 +1,28 @@
+/**
+ *  @file   Heuristic.java
+ *  @brief  Interface for lower bounds on the road distance between two
+ *          vertices, used to guide A* searches.
+ *  @author Mustafa Siddiqui
+ *  @date   10/18/2026
+ */
+
+public interface Heuristic {
+    /*
+        Returns a lower bound on the shortest path distance in miles
+        between vertices u and v. Implementations must be admissible
+        (never overestimate) and should be consistent, so that A* can
+        settle every vertex once; see slack().
+    */
+    double estimate(int u, int v);
+
+    /*
+        Returns how far the heuristic can be from consistent: the most
+        estimate(u, x) can exceed road distance(u, v) + estimate(v, x) by,
+        for any u, v and x. Searches reopen vertices and stop that much
+        later, so a small slack (e.g. from rounding) costs a little work
+        and never a wrong route.
+    */
+    default double slack() {
+        return 0;
+    }
+}
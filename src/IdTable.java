@@ -0,0 +1,24 @@
+/**
+ *  @file   IdTable.java
+ *  @brief  Interface for the String <-> int dictionary of intersection
+ *          or road ids, used only at the API boundary of a Graph.
+ *  @author Mustafa Siddiqui
+ *  @date   10/18/2026
+ */
+
+public interface IdTable {
+    /*
+        Returns the number of ids in the table.
+    */
+    int size();
+
+    /*
+        Returns the id with the given index.
+    */
+    String get(int i);
+
+    /*
+        Returns the index of an id, or -1 if it is not in the table.
+    */
+    int indexOf(String id);
+}
@@ -0,0 +1,170 @@
+/**
+ *  @file   IndexedHeap.java
+ *  @brief  Class to implement an indexed 4-ary min heap of int vertex
+ *          ids keyed on doubles, with a real decrease-key operation.
+ *          Used as the priority queue of the shortest path searches.
+ *  @author Mustafa Siddiqui
+ *  @date   10/18/2026
+ */
+
+import java.util.Arrays;
+
+public class IndexedHeap {
+    // number of children of every node
+    private static final int ARITY = 4;
+
+    // heap of vertex ids with their keys stored alongside
+    private int[] heap;
+    private double[] keys;
+    private int size = 0;
+
+    // position of every vertex in the heap, -1 if it is not in the heap
+    private int[] position;
+
+    // largest size reached since the last clear()
+    private int maxSize = 0;
+
+    /*
+        Constructor for the IndexedHeap class.
+        @param: capacity    -   vertex ids must be in [0, capacity)
+    */
+    public IndexedHeap(int capacity) {
+        heap = new int[capacity];
+        keys = new double[capacity];
+        position = new int[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    /*
+        Remove every element. Costs O(size), not O(capacity).
+    */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            position[heap[i]] = -1;
+        }
+        size = 0;
+        maxSize = 0;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    public boolean contains(int v) {
+        return position[v] >= 0;
+    }
+
+    /*
+        Returns the smallest key in the heap. The heap must not be empty.
+    */
+    public double minKey() {
+        return keys[0];
+    }
+
+    /*
+        Returns the vertex with the smallest key without removing it.
+    */
+    public int peek() {
+        return heap[0];
+    }
+
+    /*
+        Insert a vertex, or lower its key if it is already in the heap
+        with a larger key.
+        @return: true if the heap changed
+    */
+    public boolean insertOrDecrease(int v, double key) {
+        int i = position[v];
+        if (i < 0) {
+            i = size++;
+            if (size > maxSize) {
+                maxSize = size;
+            }
+        }
+        else if (key >= keys[i]) {
+            return false;
+        }
+
+        siftUp(i, v, key);
+        return true;
+    }
+
+    /*
+        Remove and return the vertex with the smallest key.
+    */
+    public int poll() {
+        int min = heap[0];
+        position[min] = -1;
+
+        size--;
+        if (size > 0) {
+            siftDown(0, heap[size], keys[size]);
+        }
+
+        return min;
+    }
+
+    /*
+        Move a vertex up from slot i until its parent has a smaller key.
+    */
+    private void siftUp(int i, int v, double key) {
+        while (i > 0) {
+            int p = (i - 1) / ARITY;
+            if (keys[p] <= key) {
+                break;
+            }
+
+            heap[i] = heap[p];
+            keys[i] = keys[p];
+            position[heap[i]] = i;
+            i = p;
+        }
+
+        heap[i] = v;
+        keys[i] = key;
+        position[v] = i;
+    }
+
+    /*
+        Move a vertex down from slot i until all its children have
+        larger keys.
+    */
+    private void siftDown(int i, int v, double key) {
+        while (true) {
+            int first = i * ARITY + 1;
+            if (first >= size) {
+                break;
+            }
+
+            // find the child with the smallest key
+            int last = Math.min(first + ARITY, size);
+            int min = first;
+            for (int c = first + 1; c < last; c++) {
+                if (keys[c] < keys[min]) {
+                    min = c;
+                }
+            }
+
+            if (keys[min] >= key) {
+                break;
+            }
+
+            heap[i] = heap[min];
+            keys[i] = keys[min];
+            position[heap[i]] = i;
+            i = min;
+        }
+
+        heap[i] = v;
+        keys[i] = key;
+        position[v] = i;
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ *  @file   IntList.java
+ *  @brief  Class to implement a growable list of primitive ints,
+ *          avoiding the boxing of ArrayList<Integer> in hot code.
+ *  @author Mustafa Siddiqui
+ *  @date   10/18/2026
+ */
+
+import java.util.Arrays;
+
+public class IntList {
+    private int[] values;
+    private int size = 0;
+
+    /*
+        Constructors for the IntList class.
+    */
+    public IntList() {
+        this(16);
+    }
+
+    public IntList(int capacity) {
+        values = new int[Math.max(1, capacity)];
+    }
+
+    public void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    public int get(int i) {
+        return values[i];
+    }
+
+    public void set(int i, int value) {
+        values[i] = value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /*
+        Returns a copy of the values as an array of exactly size() elements.
+    */
+    public int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
@@ -0,0 +1,200 @@
+/**
+ *  @file   Isochrones.java
+ *  @brief  Class to find the parts of the map within a set of distances
+ *          of an intersection (isochrone bands, e.g. within 1, 2 and 5
+ *          miles) from one distance-limited search. Bands can be written
+ *          out as map files and are drawn over the map by the Canvas.
+ *  @author Mustafa Siddiqui
+ *  @date   10/18/2026
+ */
+
+import java.awt.Color;
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.Arrays;
+
+public class Isochrones {
+    // band colors from the nearest band outwards, reused if there are more bands
+    private static final Color[] COLORS = {
+        new Color(0, 160, 0), new Color(230, 170, 0), new Color(230, 90, 0), new Color(160, 0, 160), new Color(0, 120, 200)
+    };
+
+    private Graph map;
+    private int source;
+
+    // upper distance of every band in miles, ascending
+    private double[] bands;
+
+    // vertices and roads reached, each with the first band it falls in;
+    // a road falls in the band of its farther end
+    private int[] vertices;
+    private int[] vertexBand;
+    private int[] roads;
+    private int[] roadBand;
+
+    // search time in nanoseconds
+    private long searchNanos;
+
+    /*
+        Constructor for the Isochrones class. Runs one search from the
+        source limited to the largest band.
+        @param: map     -   graph to search
+        @param: source  -   index of the intersection to measure from
+        @param: bands   -   distances in miles bounding the bands
+    */
+    public Isochrones(Graph map, int source, double[] bands) {
+        if (bands.length == 0) {
+            throw new IllegalArgumentException("At least one band is needed");
+        }
+
+        this.map = map;
+        this.source = source;
+        this.bands = bands.clone();
+        Arrays.sort(this.bands);
+
+        long startTime = System.nanoTime();
+        SearchContext ctx = map.acquireContext();
+        IntList settled = new IntList();
+        double[] weights = map.weights;
+        try {
+            map.shortestPathTree(source, this.bands[this.bands.length - 1], ctx, settled);
+
+            vertices = settled.toArray();
+            vertexBand = new int[vertices.length];
+            IntList reachedRoads = new IntList();
+            IntList reachedBands = new IntList();
+            for (int i = 0; i < vertices.length; i++) {
+                int v = vertices[i];
+                vertexBand[i] = bandOf(ctx.getDistance(v));
+
+                // every open road between two reached intersections, taken
+                // from its lower numbered end so it is only counted once
+                for (int e = map.offsets[v]; e < map.offsets[v + 1]; e++) {
+                    int t = map.targets[e];
+                    if (v < t && ctx.isSettled(t) && weights[e] != Graph.CLOSED) {
+                        reachedRoads.add(map.edgeRoad[e]);
+                        reachedBands.add(bandOf(Math.max(ctx.getDistance(v), ctx.getDistance(t))));
+                    }
+                }
+            }
+            roads = reachedRoads.toArray();
+            roadBand = reachedBands.toArray();
+        }
+        finally {
+            map.releaseContext(ctx);
+        }
+        searchNanos = System.nanoTime() - startTime;
+    }
+
+    /*
+        Helper method to find the first band a distance falls in.
+    */
+    private int bandOf(double distance) {
+        int b = 0;
+        while (distance > bands[b]) {
+            b++;
+        }
+
+        return b;
+    }
+
+    /*
+        Write every band as a map file in the same format the maps are
+        read from, named prefix-<miles>mi.txt. Bands include the bands
+        inside them, so each file is the whole area within its distance
+        and can be opened with -show like any other map.
+        @return: names of the files written, nearest band first
+    */
+    public String[] write(String prefix) throws IOException {
+        DecimalFormat df = new DecimalFormat("#.###");
+        String[] names = new String[bands.length];
+
+        for (int b = 0; b < bands.length; b++) {
+            names[b] = prefix + "-" + df.format(bands[b]) + "mi.txt";
+            try (BufferedWriter out = new BufferedWriter(new FileWriter(names[b]))) {
+                for (int i = 0; i < vertices.length; i++) {
+                    if (vertexBand[i] <= b) {
+                        int v = vertices[i];
+                        out.write("i\t" + map.getID(v) + "\t" + map.getLatitude(v) + "\t" + map.getLongitude(v) + "\n");
+                    }
+                }
+                for (int i = 0; i < roads.length; i++) {
+                    if (roadBand[i] <= b) {
+                        int r = roads[i];
+                        out.write("r\t" + map.getRoadID(r) + "\t" + map.getID(map.getRoadStart(r)) + "\t" +
+                                    map.getID(map.getRoadEnd(r)) + "\n");
+                    }
+                }
+            }
+        }
+
+        return names;
+    }
+
+    /*
+        Returns the color a band is drawn in.
+    */
+    public static Color colorOf(int band) {
+        return COLORS[band % COLORS.length];
+    }
+
+    /*
+        Returns the number of intersections within a band's distance.
+    */
+    public int vertexCount(int band) {
+        int count = 0;
+        for (int b : vertexBand) {
+            if (b <= band) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /*
+        Returns the number of roads within a band's distance.
+    */
+    public int roadCount(int band) {
+        int count = 0;
+        for (int b : roadBand) {
+            if (b <= band) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /*
+        Get methods for different parameters.
+    */
+
+    public int getSource() {
+        return source;
+    }
+
+    public int getBandCount() {
+        return bands.length;
+    }
+
+    // upper distance of a band in miles
+    public double getBand(int band) {
+        return bands[band];
+    }
+
+    // roads reached, with getRoadBand(i) the band of getRoads()[i]
+    public int[] getRoads() {
+        return roads;
+    }
+
+    public int getRoadBand(int i) {
+        return roadBand[i];
+    }
+
+    public long getSearchNanos() {
+        return searchNanos;
+    }
+}
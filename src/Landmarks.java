@@ -0,0 +1,350 @@
+/**
+ *  @file   Landmarks.java
+ *  @brief  Class to implement the ALT heuristic (A*, landmarks and the
+ *          triangle inequality). Shortest path distances from a few
+ *          landmark vertices to every vertex are stored as floats, can
+ *          be saved next to the map file and memory-mapped on startup.
+ *  @author Mustafa Siddiqui
+ *  @date   10/18/2026
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Random;
+
+public class Landmarks implements Heuristic {
+    // file format: magic "ALT1", then version, vertex count, road count,
+    // landmark count, the map's fingerprint (two ints, low half first),
+    // the landmark vertices and the distance table
+    private static final int MAGIC = 0x414c5431;
+    private static final int VERSION = 2;
+    private static final int HEADER_INTS = 7;
+
+    /*
+        Floats keep about 7 significant digits, so a difference of two
+        stored distances is lowered by this fraction of their sum to stay
+        a lower bound.
+    */
+    private static final float ROUNDING = 2.5e-7f;
+
+    // landmark vertices
+    private int[] landmarks;
+
+    // distances[v * k + i] is the distance from landmark i to vertex v,
+    // infinity if v cannot be reached from it
+    private FloatBuffer distances;
+    private int k;
+
+    // road weights the distances were computed with
+    private double[] builtFrom;
+
+    // largest finite distance in the table, which bounds the rounding
+    private float maxDistance = 0;
+
+    /*
+        Constructor used by select() and load().
+    */
+    private Landmarks(int[] landmarks, FloatBuffer distances, double[] builtFrom) {
+        this.landmarks = landmarks;
+        this.distances = distances;
+        this.k = landmarks.length;
+        this.builtFrom = builtFrom;
+
+        for (int i = 0; i < distances.capacity(); i++) {
+            float d = distances.get(i);
+            if (d != Float.POSITIVE_INFINITY && d > maxDistance) {
+                maxDistance = d;
+            }
+        }
+    }
+
+    /*
+        Pick k landmarks by farthest-point selection and compute their
+        distance tables. The first landmark is the vertex farthest from a
+        seeded random vertex, every later one the vertex farthest from all
+        landmarks chosen so far, so the landmarks end up spread around the
+        edge of the map where their bounds are tightest.
+        @param: map -   graph to compute the landmarks for
+        @param: k   -   number of landmarks
+    */
+    public static Landmarks select(Graph map, int k) {
+        long startTime = Stats.start();
+        double[] weights = map.roadWeights();
+        int n = map.vertexCount();
+        k = Math.min(k, n);
+        int[] chosen = new int[k];
+        long bytes = 4L * n * k;
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(k + " landmarks for " + n + " intersections need " + bytes +
+                                                " bytes, more than one table can hold");
+        }
+        FloatBuffer table = ByteBuffer.allocateDirect((int)bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+
+        // smallest distance from each vertex to any landmark so far
+        double[] nearest = new double[n];
+        Arrays.fill(nearest, Double.POSITIVE_INFINITY);
+
+        SearchContext ctx = map.acquireContext();
+        try {
+            map.shortestPathTree(new Random(42).nextInt(n), ctx);
+            int next = farthest(ctx, n);
+
+            for (int i = 0; i < k; i++) {
+                chosen[i] = next;
+                map.shortestPathTree(next, ctx);
+
+                for (int v = 0; v < n; v++) {
+                    double d = ctx.getDistance(v);
+                    table.put(v * k + i, (float)d);
+                    if (d < nearest[v]) {
+                        nearest[v] = d;
+                    }
+                }
+
+                next = farthest(nearest);
+            }
+        }
+        finally {
+            map.releaseContext(ctx);
+        }
+
+        Stats.end(Stats.Phase.INDEX, startTime);
+        return new Landmarks(chosen, table, weights);
+    }
+
+    /*
+        Helper methods for farthest-point selection. Vertices no landmark
+        can reach are only picked once every reachable vertex is a
+        landmark, so small islands do not use up landmarks early.
+    */
+    private static int farthest(SearchContext ctx, int n) {
+        double[] dist = new double[n];
+        for (int v = 0; v < n; v++) {
+            dist[v] = ctx.getDistance(v);
+        }
+
+        return farthest(dist);
+    }
+
+    private static int farthest(double[] dist) {
+        int best = -1;
+        int unreachable = -1;
+        for (int v = 0; v < dist.length; v++) {
+            if (dist[v] == Double.POSITIVE_INFINITY) {
+                unreachable = v;
+            }
+            else if (best < 0 || dist[v] > dist[best]) {
+                best = v;
+            }
+        }
+
+        return (dist[best] == 0 && unreachable >= 0) ? unreachable : best;
+    }
+
+    /*
+        Returns the file the landmarks of a map are saved to.
+    */
+    public static String fileFor(String mapFile) {
+        return mapFile + ".alt";
+    }
+
+    /*
+        Returns a 64-bit FNV-1a hash of the coordinates of every
+        intersection and the ends and loaded weight of every road, so a
+        saved file is not used for a map that was edited but kept the
+        same counts.
+    */
+    static long fingerprint(Graph map) {
+        long hash = 0xcbf29ce484222325L;
+        for (int v = 0; v < map.vertexCount(); v++) {
+            hash = mix(hash, Double.doubleToLongBits(map.getLatitude(v)));
+            hash = mix(hash, Double.doubleToLongBits(map.getLongitude(v)));
+        }
+        for (int r = 0; r < map.roadCount(); r++) {
+            hash = mix(hash, ((long)map.getRoadStart(r) << 32) | (map.getRoadEnd(r) & 0xffffffffL));
+            hash = mix(hash, Double.doubleToLongBits(map.getLoadedWeight(r)));
+        }
+
+        return hash;
+    }
+
+    // helper method to fold the 8 bytes of a value into an FNV-1a hash
+    private static long mix(long hash, long value) {
+        for (int i = 0; i < 8; i++) {
+            hash = (hash ^ (value & 0xff)) * 0x100000001b3L;
+            value >>>= 8;
+        }
+
+        return hash;
+    }
+
+    /*
+        Write the landmarks and their distance tables to a file.
+    */
+    public void save(String fileName, Graph map) throws IOException {
+        int n = distances.capacity() / k;
+        try (RandomAccessFile file = new RandomAccessFile(fileName, "rw");
+             FileChannel channel = file.getChannel()) {
+            file.setLength(0);
+
+            ByteBuffer header = ByteBuffer.allocate(4 * (HEADER_INTS + k)).order(ByteOrder.LITTLE_ENDIAN);
+            long hash = fingerprint(map);
+            header.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(map.roadCount()).putInt(k);
+            header.putInt((int)hash).putInt((int)(hash >>> 32));
+            for (int landmark : landmarks) {
+                header.putInt(landmark);
+            }
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+
+            // in pieces, so the copy stays small on large maps
+            FloatBuffer rest = distances.duplicate();
+            rest.rewind();
+            ByteBuffer table = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            while (rest.hasRemaining()) {
+                int count = Math.min(rest.remaining(), table.capacity() / 4);
+                FloatBuffer piece = rest.slice();
+                piece.limit(count);
+                table.clear();
+                table.asFloatBuffer().put(piece);
+                table.limit(4 * count);
+                while (table.hasRemaining()) {
+                    channel.write(table);
+                }
+                rest.position(rest.position() + count);
+            }
+        }
+    }
+
+    /*
+        Returns true if the distances are still lower bounds after the
+        map's road weights were updated. Making roads longer or closing
+        them only makes paths longer, so the bounds hold as long as no
+        road is shorter than when the landmarks were computed.
+    */
+    public boolean isLowerBound(Graph map) {
+        double[] weights = map.roadWeights();
+        if (weights == builtFrom) {
+            return true;
+        }
+
+        for (int r = 0; r < weights.length; r++) {
+            if (weights[r] < builtFrom[r]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /*
+        Memory-map a landmark file saved for the same map. The distance
+        table is read straight from the page cache, so startup does not
+        depend on its size and several processes share the same pages.
+        The file holds no weights, so it is taken to match the map's
+        current ones.
+        @return: the landmarks, or null if the file is missing or was
+                 saved for a different map (or an edited one: the file
+                 holds a fingerprint of the coordinates and roads)
+    */
+    public static Landmarks load(String fileName, Graph map) throws IOException {
+        if (!new File(fileName).exists()) {
+            return null;
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(fileName, "r");
+             FileChannel channel = file.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (channel.size() < 4 * HEADER_INTS || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION ||
+                buffer.getInt(8) != map.vertexCount() || buffer.getInt(12) != map.roadCount()) {
+                return null;
+            }
+
+            // same counts are not enough, the map may have been edited
+            long hash = (buffer.getInt(20) & 0xffffffffL) | ((long)buffer.getInt(24) << 32);
+            if (hash != fingerprint(map)) {
+                return null;
+            }
+
+            int k = buffer.getInt(16);
+            if (k < 0 || channel.size() < 4L * (HEADER_INTS + k)) {
+                return null;
+            }
+            int[] landmarks = new int[k];
+            for (int i = 0; i < k; i++) {
+                landmarks[i] = buffer.getInt(4 * (HEADER_INTS + i));
+            }
+
+            buffer.position(4 * (HEADER_INTS + k));
+            FloatBuffer table = buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+            if (table.capacity() != (long)map.vertexCount() * k) {
+                return null;
+            }
+
+            return new Landmarks(landmarks, table, map.roadWeights());
+        }
+    }
+
+    /*
+        Get methods for different parameters.
+    */
+
+    public int size() {
+        return k;
+    }
+
+    public int[] getLandmarks() {
+        return landmarks;
+    }
+
+    /*
+        Every stored distance is within a float rounding of the true one
+        and every bound is lowered by ROUNDING of the distances, so an
+        estimate is at most about 2 * ROUNDING * maxDistance from the
+        exact bound, which is consistent. Twice that on each side of the
+        inequality, with room for the float arithmetic.
+    */
+    @Override
+    public double slack() {
+        return 8.0 * ROUNDING * maxDistance;
+    }
+
+    /*
+        Lower bound from the triangle inequality: for every landmark L,
+        d(u, v) >= |d(L, u) - d(L, v)| on an undirected graph. The best
+        bound over all landmarks is used.
+    */
+    @Override
+    public double estimate(int u, int v) {
+        int a = u * k;
+        int b = v * k;
+        float best = 0;
+        for (int i = 0; i < k; i++) {
+            float du = distances.get(a + i);
+            float dv = distances.get(b + i);
+
+            // a landmark that cannot reach both vertices gives no bound
+            if (du == Float.POSITIVE_INFINITY || dv == Float.POSITIVE_INFINITY) {
+                continue;
+            }
+
+            float bound = Math.abs(du - dv) - ROUNDING * (du + dv);
+            if (bound > best) {
+                best = bound;
+            }
+        }
+
+        return best;
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ *  @file   LatencyHistogram.java
+ *  @brief  Class to record query latencies in log-scale buckets and
+ *          report percentiles. Fixed size and safe to record into from
+ *          many threads at once.
+ *  @author Mustafa Siddiqui
+ *  @date   10/18/2026
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class LatencyHistogram {
+    /*
+        Every power of two is split into 2^SUB_BITS buckets, so a bucket
+        spans at most 1/8 (12.5%) of the values it holds.
+    */
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = 64 * SUB_BUCKETS;
+
+    private AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private AtomicLong total = new AtomicLong();
+    private AtomicLong sum = new AtomicLong();
+    private AtomicLong max = new AtomicLong();
+
+    /*
+        Record one latency in nanoseconds.
+    */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+
+        counts.incrementAndGet(bucketOf(nanos));
+        total.incrementAndGet();
+        sum.addAndGet(nanos);
+
+        long m = max.get();
+        while (nanos > m && !max.compareAndSet(m, nanos)) {
+            m = max.get();
+        }
+    }
+
+    /*
+        Forget everything recorded so far.
+    */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        total.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    public long count() {
+        return total.get();
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    public double mean() {
+        long n = total.get();
+        return (n == 0) ? 0 : (double)sum.get() / n;
+    }
+
+    /*
+        Returns the latency in nanoseconds below which the given fraction
+        (0 to 1) of the recorded values fall, rounded up to the end of its
+        bucket.
+    */
+    public long percentile(double fraction) {
+        long n = total.get();
+        if (n == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long)Math.ceil(fraction * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+
+        return max.get();
+    }
+
+    /*
+        Returns every non-empty bucket as a row of its bounds in
+        milliseconds and the number of values recorded in it.
+    */
+    public String buckets() {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < BUCKETS; i++) {
+            long c = counts.get(i);
+            if (c > 0) {
+                out.append(String.format("%10.3f - %10.3f ms  %d\n", lowerBound(i) / 1e6, upperBound(i) / 1e6, c));
+            }
+        }
+
+        return out.toString();
+    }
+
+    /*
+        Returns a one line summary of the recorded latencies in milliseconds.
+    */
+    public String summary() {
+        return String.format("n=%d mean=%.3f p50=%.3f p90=%.3f p99=%.3f max=%.3f ms",
+                                count(), mean() / 1e6, percentile(0.50) / 1e6, percentile(0.90) / 1e6,
+                                percentile(0.99) / 1e6, max() / 1e6);
+    }
+
+    /*
+        Helper methods to map values to buckets and back.
+    */
+
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int)value;
+        }
+
+        int exp = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int)(value >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exp - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long lowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+
+        int exp = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        int sub = bucket % SUB_BUCKETS;
+        return (long)(SUB_BUCKETS + sub) << (exp - SUB_BITS);
+    }
+
+    private static long upperBound(int bucket) {
+        return (bucket + 1 < BUCKETS) ? lowerBound(bucket + 1) - 1 : Long.MAX_VALUE;
+    }
+}
@@ -5,17 +5,22 @@
  *  @date   05/01/2021
  */
 
-import java.io.FileInputStream;
+import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileNotFoundException;
-import java.util.Scanner;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Random;
+import java.util.function.BiFunction;
 
 import javax.swing.JFrame;
 
 public class Main extends JFrame {
     /*
         Static variables to be used in drawing the map and the shortest path.
-        Maximum latitude and longitude values used for normalizing values.
     */
 
     // used to draw paths over map
@@ -23,41 +28,75 @@ public class Main extends JFrame {
     static boolean KruskalTree = false;
     static ArrayList<Vertex> ShortestPathList;
     static ArrayList<Edge> MinSpanningTreeList;
-
-    // lowest negative value possible
-    static double maxLat = Double.MAX_VALUE * -1;
-    static double maxLong = Double.MAX_VALUE * -1;
-
-    // highest positive value possible
-    static double minLat = Double.MAX_VALUE;
-    static double minLong = Double.MAX_VALUE;
+    static Isochrones IsochroneBands;
+    static ArrayList<Route> AlternativeRouteList;
 
     /*
         Constructor to create a blank canvas for the map.
     */
-    public Main() {
+    public Main(Graph map) {
         // set a rectangular window
         setSize(900, 700);
         setTitle("Shortest Path Map");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        add(new Canvas());
+        add(new Canvas(map));
     }
 
     public static void main(String[] args) throws FileNotFoundException {
         // exit if non-sufficient arguments
         if (args.length < 2) {
-            System.out.println("Usage: java Main map.txt [-show]" + 
-                                "[-directions startIntersection endIntersection] [-meridianMap]");
+            System.out.println("Usage: java Main map.txt [-show]\n" +
+                                "    [-directions startIntersection endIntersection\n" +
+                                "        [-astar] [-bidirectional] [-alternatives routes]]\n" +
+                                "    [-ch] [-simplify [-prune]] [-alt landmarks]\n" +
+                                "    [-meridianmap [-boruvka]]\n" +
+                                "    [-batch queries.tsv results.tsv [-paths]] [-matrix points.txt matrix.csv|matrix.bin]\n" +
+                                "    [-isochrone source miles,miles,... prefix]\n" +
+                                "    [-serve port] [-cache routes] [-updates updates.tsv] [-stats]\n" +
+                                "    [-convert map.bin] [-tiles directory maxZoom] [-image file.png width height]");
             System.exit(0);
         }
 
         // process through arguments and set flags for what to do
-        // arguments format: java program_name map.txt [-show] [-directions start end] [-meridianmap]
+        // arguments format: java program_name map.txt [-show]
+        //      [-directions start end [-astar] [-bidirectional] [-alternatives routes]]
+        //      [-ch] [-simplify [-prune]] [-alt k]
+        //      [-meridianmap [-boruvka]]
+        //      [-batch queries.tsv results.tsv [-paths]] [-matrix points.txt matrix.csv|matrix.bin]
+        //      [-isochrone source miles,miles,... prefix]
+        //      [-serve port] [-cache routes] [-updates updates.tsv] [-stats]
+        //      [-convert map.bin] [-tiles directory maxZoom] [-image file.png width height]
         boolean ShowMap = false;
         boolean ShortestPath = false;
+        boolean AStar = false;
+        boolean Bidirectional = false;
+        int AlternativeCount = 0;
+        boolean Hierarchy = false;
+        boolean Simplify = false;
+        boolean Prune = false;
+        int LandmarkCount = 0;
         StringBuilder StartID = new StringBuilder("");
         StringBuilder EndID = new StringBuilder("");
         boolean MinSpanningTree = false;
+        boolean Boruvka = false;
+        String TileDirectory = null;
+        int MaxZoom = 0;
+        String ImageFile = null;
+        int ImageWidth = 0;
+        int ImageHeight = 0;
+        String ConvertFile = null;
+        String BatchFile = null;
+        String ResultFile = null;
+        boolean WritePaths = false;
+        String PointFile = null;
+        String MatrixFile = null;
+        String IsochroneSource = null;
+        String IsochroneBandList = null;
+        String IsochronePrefix = null;
+        int ServePort = -1;
+        int CacheSize = 0;
+        boolean ShowStats = false;
+        String UpdateFile = null;
 
         for (int i = 0; i < args.length; i++) {
             if (args[i].equals("-show")) {
@@ -68,68 +107,208 @@ public class Main extends JFrame {
                 StartID.insert(0, args[++i]);
                 EndID.insert(0, args[++i]);
             }
+            else if (args[i].equals("-astar")) {
+                AStar = true;
+            }
+            else if (args[i].equals("-bidirectional")) {
+                Bidirectional = true;
+            }
+            else if (args[i].equals("-alternatives")) {
+                AlternativeCount = Integer.parseInt(args[++i]);
+            }
+            else if (args[i].equals("-ch")) {
+                Hierarchy = true;
+            }
+            else if (args[i].equals("-simplify")) {
+                Simplify = true;
+            }
+            else if (args[i].equals("-prune")) {
+                Prune = true;
+            }
+            else if (args[i].equals("-alt")) {
+                LandmarkCount = Integer.parseInt(args[++i]);
+            }
             else if (args[i].equals("-meridianmap")) {
                 MinSpanningTree = true;
             }
+            else if (args[i].equals("-boruvka")) {
+                Boruvka = true;
+            }
+            else if (args[i].equals("-tiles")) {
+                TileDirectory = args[++i];
+                MaxZoom = Integer.parseInt(args[++i]);
+            }
+            else if (args[i].equals("-image")) {
+                ImageFile = args[++i];
+                ImageWidth = Integer.parseInt(args[++i]);
+                ImageHeight = Integer.parseInt(args[++i]);
+            }
+            else if (args[i].equals("-batch")) {
+                BatchFile = args[++i];
+                ResultFile = args[++i];
+            }
+            else if (args[i].equals("-matrix")) {
+                PointFile = args[++i];
+                MatrixFile = args[++i];
+            }
+            else if (args[i].equals("-isochrone")) {
+                IsochroneSource = args[++i];
+                IsochroneBandList = args[++i];
+                IsochronePrefix = args[++i];
+            }
+            else if (args[i].equals("-serve")) {
+                ServePort = Integer.parseInt(args[++i]);
+            }
+            else if (args[i].equals("-cache")) {
+                CacheSize = Integer.parseInt(args[++i]);
+            }
+            else if (args[i].equals("-updates")) {
+                UpdateFile = args[++i];
+            }
+            else if (args[i].equals("-stats")) {
+                ShowStats = true;
+            }
+            else if (args[i].equals("-paths")) {
+                WritePaths = true;
+            }
+            else if (args[i].equals("-convert")) {
+                ConvertFile = args[++i];
+            }
+        }
+
+        // images can be rendered on machines without a display
+        if (!ShowMap) {
+            System.setProperty("java.awt.headless", "true");
         }
 
-        // read file & open input file stream
-        FileInputStream inputFile = null;
-        Scanner input = null;
+        // printed on exit, so the summary also covers -show and -serve
+        if (ShowStats) {
+            Stats.setEnabled(true);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> System.out.print(Stats.summary())));
+        }
+
+        // read file & create graph
+        Graph mapPaths = null;
+        long loadTime = System.nanoTime();
         try {
-            inputFile = new FileInputStream(args[0]);
-            input = new Scanner(inputFile);
+            mapPaths = loadMap(args[0]);
         }
         catch (FileNotFoundException e) {
             System.out.println("'" + args[0] + "' does not exist!");
             System.exit(0);
         }
-        
-        // declare graph
-        Graph mapPaths = new Graph();
-
-        // read through file and create graph
-        while (input.hasNextLine()) {
-            String[] line = input.nextLine().split("\t");
-
-            // intersection -> vertex
-            if (line[0].equals("i")) {
-                Vertex intersection = new Vertex(line[1], Double.parseDouble(line[2]), Double.parseDouble(line[3]));
-                mapPaths.addIntersection(intersection);
-
-                // set global max and min
-                if (intersection.getLatitude() > maxLat)
-                    maxLat = intersection.getLatitude();
-                
-                if (intersection.getLongitude() > maxLong)
-                    maxLong = intersection.getLongitude();
+        catch (IOException e) {
+            System.out.println("Could not read '" + args[0] + "': " + e.getMessage());
+            System.exit(0);
+        }
+        loadTime = System.nanoTime() - loadTime;
 
-                if (intersection.getLatitude() < minLat)
-                    minLat = intersection.getLatitude();
+        // close roads and change weights before anything is computed
+        if (UpdateFile != null) {
+            long startTime = System.nanoTime();
+            int roads = 0;
+            try (BufferedReader in = new BufferedReader(new FileReader(UpdateFile))) {
+                RoadUpdates batch;
+                while ((batch = RoadUpdates.read(mapPaths, in)) != null) {
+                    batch.apply();
+                    roads += batch.size();
+                }
+                System.out.printf("Applied %d road update(s) from %s in %.1f ms\n", roads, UpdateFile,
+                                    (System.nanoTime() - startTime) / 1e6);
+            }
+            catch (IOException | IllegalArgumentException e) {
+                System.out.println("Could not apply '" + UpdateFile + "': " + e.getMessage());
+                System.exit(0);
+            }
+        }
 
-                if (intersection.getLongitude() < minLong)
-                    minLong = intersection.getLongitude();
+        // write the map in the binary format, which later runs can load
+        // in place of the text file
+        if (ConvertFile != null) {
+            long startTime = System.nanoTime();
+            try {
+                MapFile.convert(mapPaths, ConvertFile);
+                double megabytes = new File(args[0]).length() / 1e6;
+                System.out.printf("Loaded %s in %.1f ms (%.1f MB/s), wrote %s in %.1f ms\n", args[0], loadTime / 1e6,
+                                    megabytes / (loadTime / 1e9), ConvertFile, (System.nanoTime() - startTime) / 1e6);
             }
-            // road -> edge
-            else if (line[0].equals("r")) {
-                // all intersections are declared before road data in data file
-                Edge road = new Edge(line[1], mapPaths.getVertices().get(line[2]), mapPaths.getVertices().get(line[3]));
-                mapPaths.addRoad(road, mapPaths.getVertices().get(line[2]), mapPaths.getVertices().get(line[3]));
+            catch (IOException e) {
+                System.out.println("Could not write '" + ConvertFile + "': " + e.getMessage());
             }
         }
 
-        // close file since no longer needed
-        input.close();
+        // preprocess the map into a contraction hierarchy and compare its
+        // query latency against plain Dijkstra
+        ContractionHierarchy hierarchy = null;
+        if (Hierarchy) {
+            hierarchy = new ContractionHierarchy(mapPaths);
+            System.out.printf("Contraction hierarchy built in %.1f ms with %d shortcuts\n",
+                                hierarchy.getBuildNanos() / 1e6, hierarchy.getShortcutCount());
+            compareLatency(mapPaths, "Contraction hierarchy", hierarchy::shortestPath, 1000);
+        }
+
+        // contract the chains of degree-2 intersections and label the
+        // components, so unreachable queries fail at once
+        SimplifiedGraph simplified = null;
+        if (Simplify) {
+            simplified = new SimplifiedGraph(mapPaths, Prune);
+            System.out.printf("Simplified map in %.1f ms: %s, %d component(s)\n", simplified.getBuildNanos() / 1e6,
+                                simplified.summary(), mapPaths.getComponentCount());
+            compareLatency(mapPaths, "Simplified map", simplified::shortestPath, 1000);
+        }
+
+        // A* with landmarks: map the saved distance tables, or compute and
+        // save them next to the map file the first time
+        Landmarks landmarks = null;
+        if (LandmarkCount > 0) {
+            landmarks = loadLandmarks(args[0], mapPaths, LandmarkCount);
+        }
 
         // show output based on command line arguments
         if (ShortestPath) {
-            Vertex start = mapPaths.getVertices().get(StartID.toString());
-            Vertex end = mapPaths.getVertices().get(EndID.toString());
+            // endpoints are intersection ids or "latitude,longitude" pairs,
+            // which are snapped to the nearest road
+            SpatialIndex spatialIndex = null;
+            if (parseCoordinates(StartID.toString()) != null || parseCoordinates(EndID.toString()) != null) {
+                long startTime = System.nanoTime();
+                spatialIndex = new SpatialIndex(mapPaths);
+                System.out.printf("Spatial index built in %.1f ms\n", (System.nanoTime() - startTime) / 1e6);
+            }
+            Vertex start = findEndpoint(mapPaths, spatialIndex, StartID.toString());
+            Vertex end = findEndpoint(mapPaths, spatialIndex, EndID.toString());
+            if (start == null || end == null) {
+                System.out.println("'" + (start == null ? StartID : EndID) + "' is not an intersection on the map!");
+                System.exit(0);
+            }
 
-            ShortestPathFound = mapPaths.shortestPath(start, end);
+            // A* is guided by the landmarks or by the straight-line distance
+            // to the destination
+            Heuristic h = null;
+            if (landmarks != null) {
+                h = landmarks;
+            }
+            else if (AStar) {
+                h = mapPaths.getChordHeuristic();
+            }
+            Route route;
+            if (hierarchy != null) {
+                route = hierarchy.shortestPath(start.getIndex(), end.getIndex());
+            }
+            else if (simplified != null) {
+                route = simplified.shortestPath(start.getIndex(), end.getIndex(), h);
+            }
+            else if (Bidirectional) {
+                route = new BidirectionalSearch(mapPaths, h).shortestPath(start.getIndex(), end.getIndex());
+            }
+            else {
+                route = mapPaths.shortestPath(start.getIndex(), end.getIndex(), h);
+            }
+            ShortestPathFound = (route != null);
             if (ShortestPathFound) {
+                System.out.println("Shortest path found!");
+
                 // returns the path from end to start
-                ShortestPathList = mapPaths.getPath(end, start);
+                ShortestPathList = mapPaths.getPath(route);
                 
                 // print intersections & distance travelled to console
                 System.out.println("Shortest Path from " + start.getID() + " to " + end.getID() + ":");
@@ -139,15 +318,129 @@ public class Main extends JFrame {
                 }
                 System.out.println(ShortestPathList.get(j).getID());
                 System.out.printf("Distance Travelled: %.2f miles\n", ShortestPathList.get(j).getDistance());
+                String algorithm = (hierarchy != null) ? "contraction hierarchy" :
+                                    (simplified != null ? "simplified " : (Bidirectional ? "bidirectional " : "")) +
+                                    (landmarks != null ? "ALT" : (AStar ? "A*" : "Dijkstra"));
+                System.out.println("Vertices settled (" + algorithm + "): " + route.getSettled());
+
+                // the same search without the heuristic, to show what it saves
+                if (h != null && hierarchy == null) {
+                    Route plain;
+                    if (simplified != null) {
+                        plain = simplified.shortestPath(start.getIndex(), end.getIndex());
+                    }
+                    else if (Bidirectional) {
+                        plain = new BidirectionalSearch(mapPaths, null).shortestPath(start.getIndex(), end.getIndex());
+                    }
+                    else {
+                        plain = mapPaths.shortestPath(start.getIndex(), end.getIndex());
+                    }
+                    String baseline = (simplified != null ? "simplified " : (Bidirectional ? "bidirectional " : "")) + "Dijkstra";
+                    System.out.printf("Vertices settled (%s): %d, %.2fx as many as %s\n", baseline, plain.getSettled(),
+                                        (double) plain.getSettled() / Math.max(1, route.getSettled()), algorithm);
+                }
+
+                // other routes not much longer, drawn in their own colors
+                if (AlternativeCount > 1) {
+                    long startTime = System.nanoTime();
+                    AlternativeRouteList = new AlternativeRoutes(mapPaths).find(start.getIndex(), end.getIndex(),
+                                                                                AlternativeCount);
+                    System.out.printf("%d route(s) found in %.1f ms, %d vertices settled:\n", AlternativeRouteList.size(),
+                                        (System.nanoTime() - startTime) / 1e6, AlternativeRouteList.get(0).getSettled());
+                    double shortest = AlternativeRouteList.get(0).getDistance();
+                    for (int r = 0; r < AlternativeRouteList.size(); r++) {
+                        Route alternative = AlternativeRouteList.get(r);
+                        System.out.printf("  Route %d: %.2f miles (+%.1f%%), %d intersections\n", r + 1,
+                                            alternative.getDistance(), 100 * (alternative.getDistance() / shortest - 1),
+                                            alternative.getVertices().length);
+                    }
+                }
             }
             else {
                 System.out.println("Shortest Path could not be found!");
             }
         }
 
+        // parts of the map within each distance of an intersection,
+        // written as map files and drawn over the map with -show
+        if (IsochroneSource != null) {
+            SpatialIndex spatialIndex = (parseCoordinates(IsochroneSource) != null) ? new SpatialIndex(mapPaths) : null;
+            Vertex source = findEndpoint(mapPaths, spatialIndex, IsochroneSource);
+            if (source == null) {
+                System.out.println("'" + IsochroneSource + "' is not an intersection on the map!");
+                System.exit(0);
+            }
+
+            String[] parts = IsochroneBandList.split(",");
+            double[] bands = new double[parts.length];
+            for (int b = 0; b < parts.length; b++) {
+                bands[b] = Double.parseDouble(parts[b]);
+            }
+
+            IsochroneBands = new Isochrones(mapPaths, source.getIndex(), bands);
+            System.out.printf("Isochrones from %s searched in %.2f ms:\n", source.getID(), IsochroneBands.getSearchNanos() / 1e6);
+            try {
+                String[] files = IsochroneBands.write(IsochronePrefix);
+                for (int b = 0; b < files.length; b++) {
+                    System.out.printf("  within %.2f mi: %d intersections, %d roads -> %s\n", IsochroneBands.getBand(b),
+                                        IsochroneBands.vertexCount(b), IsochroneBands.roadCount(b), files[b]);
+                }
+            }
+            catch (IOException e) {
+                System.out.println("Could not write isochrones: " + e.getMessage());
+            }
+        }
+
+        // distances between every pair of a set of intersections, on the
+        // hierarchy if there is one
+        if (PointFile != null) {
+            try {
+                int[] points = loadPoints(mapPaths, PointFile);
+                long startTime = System.nanoTime();
+                int threads = Runtime.getRuntime().availableProcessors();
+                double[][] matrix = new DistanceMatrix(mapPaths, hierarchy, threads).compute(points, points);
+                System.out.printf("%dx%d distance matrix computed in %.1f ms (%s, %d thread(s))\n", points.length,
+                                    points.length, (System.nanoTime() - startTime) / 1e6,
+                                    (hierarchy != null) ? "hierarchy buckets" : "one-to-many Dijkstra", threads);
+
+                if (MatrixFile.endsWith(".csv")) {
+                    DistanceMatrix.writeCsv(MatrixFile, mapPaths, points, points, matrix);
+                }
+                else {
+                    DistanceMatrix.writeBinary(MatrixFile, mapPaths, points, points, matrix);
+                }
+            }
+            catch (IOException e) {
+                System.out.println("Could not compute the distance matrix: " + e.getMessage());
+            }
+        }
+
+        // answer a file of queries with the same search as -directions,
+        // one query per thread at a time
+        if (BatchFile != null) {
+            Heuristic h = (landmarks != null) ? landmarks : (AStar ? mapPaths.getChordHeuristic() : null);
+            BatchRouter router = new BatchRouter(mapPaths, hierarchy, h, Bidirectional,
+                                                    Runtime.getRuntime().availableProcessors());
+            router.setWritePaths(WritePaths);
+            if (CacheSize > 0) {
+                router.setCache(new RouteCache(CacheSize));
+            }
+            try {
+                router.run(BatchFile, ResultFile);
+                System.out.println("Routes from " + BatchFile + " written to " + ResultFile);
+                System.out.print(router.report());
+            }
+            catch (IOException e) {
+                System.out.println("Could not answer '" + BatchFile + "': " + e.getMessage());
+            }
+        }
+
         if (MinSpanningTree) {
-            // show min spanning tree
-            MinSpanningTreeList = mapPaths.minSpanningTree();
+            // show min spanning tree, computed on every core with -boruvka
+            long startTime = System.nanoTime();
+            int threads = Runtime.getRuntime().availableProcessors();
+            MinSpanningTreeList = Boruvka ? mapPaths.minSpanningTree(threads) : mapPaths.minSpanningTree();
+            long elapsed = System.nanoTime() - startTime;
             if (!MinSpanningTreeList.isEmpty()) {
                 KruskalTree = true;
 
@@ -158,14 +451,226 @@ public class Main extends JFrame {
                     System.out.print(MinSpanningTreeList.get(c).getID() + ", ");
                 }
                 System.out.println(MinSpanningTreeList.get(c).getID());
+
+                double total = 0;
+                for (Edge e : MinSpanningTreeList) {
+                    total += e.getWeight();
+                }
+                System.out.printf("%d roads, %.2f miles, computed in %.1f ms (%s)\n", MinSpanningTreeList.size(), total,
+                                    elapsed / 1e6, Boruvka ? "Boruvka, " + threads + " thread(s)" : "Kruskal");
             }
             else {
                 System.out.println("Could not compute Minimum Spanning Tree");
             }
         }
 
+        // render without a window, with the same overlays as -show
+        if (TileDirectory != null || ImageFile != null) {
+            TileExporter exporter = new TileExporter(mapPaths, ShortestPathFound ? ShortestPathList : null,
+                                                        KruskalTree ? MinSpanningTreeList : null,
+                                                        Runtime.getRuntime().availableProcessors());
+            try {
+                if (TileDirectory != null) {
+                    long startTime = System.nanoTime();
+                    int written = exporter.writePyramid(TileDirectory, MaxZoom);
+                    System.out.printf("Wrote %d tiles for zoom levels 0-%d to %s in %.1f s\n", written,
+                                        Math.min(MaxZoom, exporter.getMaxUsefulZoom()), TileDirectory,
+                                        (System.nanoTime() - startTime) / 1e9);
+                }
+                if (ImageFile != null) {
+                    long startTime = System.nanoTime();
+                    exporter.writeImage(ImageFile, ImageWidth, ImageHeight);
+                    System.out.printf("Wrote %dx%d image %s in %.1f s\n", ImageWidth, ImageHeight, ImageFile,
+                                        (System.nanoTime() - startTime) / 1e9);
+                }
+            }
+            catch (IOException e) {
+                System.out.println("Could not write map images: " + e.getMessage());
+            }
+        }
+
         if (ShowMap) {
-            new Main().setVisible(true);
+            new Main(mapPaths).setVisible(true);
+        }
+
+        // keep the map loaded and answer queries over HTTP until killed
+        if (ServePort >= 0) {
+            Heuristic h = (landmarks != null) ? landmarks : (AStar ? mapPaths.getChordHeuristic() : null);
+            RouteServer server = new RouteServer(mapPaths, hierarchy, h, Bidirectional);
+            if (CacheSize > 0) {
+                server.setCache(new RouteCache(CacheSize));
+            }
+            try {
+                server.start(ServePort);
+                System.out.println("Serving " + args[0] + " on http://localhost:" + server.getPort() +
+                                    " (/route, /nearest, /mst-stats, /metrics) on " +
+                                    (server.usesVirtualThreads() ? "virtual threads" : "a thread pool"));
+            }
+            catch (IOException e) {
+                System.out.println("Could not start the server: " + e.getMessage());
+            }
+        }
+    }
+
+    /*
+        Parse a "latitude,longitude" pair.
+        @return: {latitude, longitude}, or null if the text is not a pair
+                 of numbers
+    */
+    static double[] parseCoordinates(String text) {
+        String[] parts = text.split(",");
+        if (parts.length != 2) {
+            return null;
+        }
+
+        try {
+            return new double[] {Double.parseDouble(parts[0].trim()), Double.parseDouble(parts[1].trim())};
+        }
+        catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /*
+        Look up a route endpoint. An intersection id is used as it is; a
+        coordinate pair that is not also an id is snapped onto the nearest
+        road, and the end of that road closer along it is used.
+        @return: the intersection, or null if there is none
+    */
+    static Vertex findEndpoint(Graph map, SpatialIndex index, String text) {
+        Vertex node = map.getVertex(text);
+        double[] point = parseCoordinates(text);
+        if (node != null || point == null || index == null) {
+            return node;
+        }
+
+        int road = index.nearestRoad(point[0], point[1]);
+        if (road < 0) {
+            return null;
         }
+
+        double fraction = index.fractionAlongRoad(road, point[0], point[1]);
+        node = map.getVertex((fraction <= 0.5) ? map.getRoadStart(road) : map.getRoadEnd(road));
+        System.out.printf("Snapped %s to %s on road %s (%.3f miles from the road)\n", text, node.getID(),
+                            map.getRoadID(road), index.distanceToRoad(road, point[0], point[1]));
+        return node;
+    }
+
+    /*
+        Memory-map the landmark file saved next to the map, or select the
+        landmarks and save them if there is no usable file yet.
+    */
+    static Landmarks loadLandmarks(String mapFile, Graph map, int count) {
+        String fileName = Landmarks.fileFor(mapFile);
+        long startTime = System.nanoTime();
+
+        // a saved file is for the weights in the map file, not updated ones
+        if (map.getWeightVersion() > 0) {
+            Landmarks landmarks = Landmarks.select(map, count);
+            System.out.printf("Computed %d landmarks for the updated weights in %.1f ms\n",
+                                landmarks.size(), (System.nanoTime() - startTime) / 1e6);
+            return landmarks;
+        }
+
+        try {
+            Landmarks landmarks = Landmarks.load(fileName, map);
+            if (landmarks != null && landmarks.size() == Math.min(count, map.vertexCount())) {
+                System.out.printf("Loaded %d landmarks from %s in %.1f ms\n",
+                                    landmarks.size(), fileName, (System.nanoTime() - startTime) / 1e6);
+                return landmarks;
+            }
+
+            landmarks = Landmarks.select(map, count);
+            landmarks.save(fileName, map);
+            System.out.printf("Computed %d landmarks in %.1f ms, saved to %s\n",
+                                landmarks.size(), (System.nanoTime() - startTime) / 1e6, fileName);
+            return landmarks;
+        }
+        catch (IOException e) {
+            System.out.println("Could not read or write '" + fileName + "': " + e.getMessage());
+            return Landmarks.select(map, count);
+        }
+    }
+
+    /*
+        Time the same seeded random queries with Dijkstra's algorithm and
+        with another way of answering them (the contraction hierarchy or
+        the simplified map), print the latency percentiles of both and
+        check that they agree on every distance.
+        @param: name    -   name of the other way, for the printout
+        @param: query   -   answers a query from start to end
+    */
+    static void compareLatency(Graph map, String name, BiFunction<Integer, Integer, Route> query, int queries) {
+        LatencyHistogram dijkstra = new LatencyHistogram();
+        LatencyHistogram other = new LatencyHistogram();
+        Random random = new Random(42);
+        int mismatches = 0;
+
+        for (int q = 0; q < queries; q++) {
+            int s = random.nextInt(map.vertexCount());
+            int t = random.nextInt(map.vertexCount());
+
+            long startTime = System.nanoTime();
+            Route expected = map.shortestPath(s, t);
+            dijkstra.record(System.nanoTime() - startTime);
+
+            startTime = System.nanoTime();
+            Route actual = query.apply(s, t);
+            other.record(System.nanoTime() - startTime);
+
+            if ((expected == null) != (actual == null) ||
+                (expected != null && Math.abs(expected.getDistance() - actual.getDistance()) > 1e-9)) {
+                mismatches++;
+            }
+        }
+
+        System.out.println("Query latency over " + queries + " random pairs:");
+        System.out.printf("  %-22s %s\n", "Dijkstra:", dijkstra.summary());
+        System.out.printf("  %-22s %s\n", name + ":", other.summary());
+        System.out.printf("  %-22s %d\n", "Distances that differ:", mismatches);
+    }
+
+    /*
+        Read a file of intersections, one id or "latitude,longitude" pair
+        per line, snapping coordinates onto the nearest road. Blank lines
+        and lines starting with # are skipped.
+        @return: vertex indices in the order of the file
+    */
+    static int[] loadPoints(Graph map, String fileName) throws IOException {
+        IntList points = new IntList();
+        SpatialIndex index = null;
+        for (String line : Files.readAllLines(Paths.get(fileName))) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            int v = map.indexOf(line);
+            double[] point = parseCoordinates(line);
+            if (v < 0 && point != null) {
+                if (index == null) {
+                    index = new SpatialIndex(map);
+                }
+                v = index.snap(point[0], point[1]);
+            }
+            if (v < 0) {
+                throw new IOException("'" + line + "' is not an intersection on the map");
+            }
+            points.add(v);
+        }
+
+        return points.toArray();
+    }
+
+    /*
+        Read a map file and build the (frozen) graph it describes. Binary
+        map files written by -convert are memory-mapped; text files are
+        parsed in parallel by MapReader.
+    */
+    public static Graph loadMap(String fileName) throws IOException {
+        long startTime = Stats.start();
+        Graph map = MapFile.isBinary(fileName) ? MapFile.load(fileName) : MapReader.read(fileName);
+        Stats.end(Stats.Phase.LOAD, startTime);
+        return map;
     }
 }
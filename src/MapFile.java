@@ -0,0 +1,268 @@
+/**
+ *  @file   MapFile.java
+ *  @brief  Class to convert a map into a versioned binary file and to
+ *          load it back through a memory mapping. The file holds the
+ *          coordinates, the CSR adjacency, the precomputed road weights
+ *          and the id string tables, so loading needs no parsing and no
+ *          haversine computations.
+ *  @author Mustafa Siddiqui
+ *  @date   10/18/2026
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class MapFile {
+    /*
+        File format, little-endian: a header of 8 ints (magic "SMAP",
+        version, vertex count n, road count m, byte lengths of the two id
+        tables, 2 unused), then the double arrays latitudes[n],
+        longitudes[n], roadWeight[m], weights[2m], then the int arrays
+        offsets[n + 1], targets[2m], edgeRoad[2m], roadStart[m],
+        roadEnd[m], the byte offsets and sorted order of both id tables,
+        and finally the UTF-8 bytes of the vertex and road ids.
+    */
+    private static final int MAGIC = 0x534d4150;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+
+    /*
+        Write a frozen graph to a binary map file.
+        @param: map         -   graph to write
+        @param: fileName    -   file to create or overwrite
+    */
+    public static void convert(Graph map, String fileName) throws IOException {
+        map.freeze();
+        int n = map.vertexCount();
+        int m = map.roadCount();
+
+        byte[][] vertexIds = new byte[n][];
+        for (int v = 0; v < n; v++) {
+            vertexIds[v] = map.getID(v).getBytes(StandardCharsets.UTF_8);
+        }
+        byte[][] roadIds = new byte[m][];
+        for (int r = 0; r < m; r++) {
+            roadIds[r] = map.getRoadID(r).getBytes(StandardCharsets.UTF_8);
+        }
+
+        long vertexBlob = blobLength(vertexIds);
+        long roadBlob = blobLength(roadIds);
+        long size = HEADER_BYTES + 8L * (2L * n + 3L * m) + 4L * (3L * n + 8L * m + 3) + vertexBlob + roadBlob;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Map is too large for a single mapped file (" + size + " bytes)");
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(fileName, "rw");
+             FileChannel channel = file.getChannel()) {
+            file.setLength(0);
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            out.order(ByteOrder.LITTLE_ENDIAN);
+
+            out.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(m);
+            out.putInt((int)vertexBlob).putInt((int)roadBlob).putInt(0).putInt(0);
+
+            double[] lat = new double[n];
+            double[] lon = new double[n];
+            for (int v = 0; v < n; v++) {
+                lat[v] = map.getLatitude(v);
+                lon[v] = map.getLongitude(v);
+            }
+            double[] roadWeight = new double[m];
+            int[] roadStart = new int[m];
+            int[] roadEnd = new int[m];
+            for (int r = 0; r < m; r++) {
+                roadWeight[r] = map.getRoadWeight(r);
+                roadStart[r] = map.getRoadStart(r);
+                roadEnd[r] = map.getRoadEnd(r);
+            }
+
+            putDoubles(out, lat);
+            putDoubles(out, lon);
+            putDoubles(out, roadWeight);
+            putDoubles(out, map.weights);
+
+            putInts(out, map.offsets);
+            putInts(out, map.targets);
+            putInts(out, map.edgeRoad);
+            putInts(out, roadStart);
+            putInts(out, roadEnd);
+
+            putIdIndex(out, vertexIds);
+            putIdIndex(out, roadIds);
+            for (byte[] id : vertexIds) {
+                out.put(id);
+            }
+            for (byte[] id : roadIds) {
+                out.put(id);
+            }
+
+            out.force();
+        }
+    }
+
+    /*
+        Load a binary map file. The numeric arrays are copied out of the
+        mapping in bulk, since the search loops index plain arrays; the id
+        tables are left in the mapping and read from the page cache.
+        @return: the frozen graph
+    */
+    public static Graph load(String fileName) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(fileName, "r");
+             FileChannel channel = file.getChannel()) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("'" + fileName + "' is not a binary map file");
+            }
+
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            in.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (in.getInt() != MAGIC) {
+                throw new IOException("'" + fileName + "' is not a binary map file");
+            }
+            int version = in.getInt();
+            if (version != VERSION) {
+                throw new IOException("'" + fileName + "' has unsupported version " + version);
+            }
+
+            int n = in.getInt();
+            int m = in.getInt();
+            int vertexBlob = in.getInt();
+            int roadBlob = in.getInt();
+            in.position(HEADER_BYTES);
+            if (size != HEADER_BYTES + 8L * (2L * n + 3L * m) + 4L * (3L * n + 8L * m + 3) + vertexBlob + roadBlob) {
+                throw new IOException("'" + fileName + "' is truncated or corrupt");
+            }
+
+            double[] lat = getDoubles(in, n);
+            double[] lon = getDoubles(in, n);
+            double[] roadWeight = getDoubles(in, m);
+            double[] weights = getDoubles(in, 2 * m);
+
+            int[] offsets = getInts(in, n + 1);
+            int[] targets = getInts(in, 2 * m);
+            int[] edgeRoad = getInts(in, 2 * m);
+            int[] roadStart = getInts(in, m);
+            int[] roadEnd = getInts(in, m);
+
+            IntBuffer vertexStart = sliceInts(in, n + 1);
+            IntBuffer vertexSorted = sliceInts(in, n);
+            IntBuffer roadStartByte = sliceInts(in, m + 1);
+            IntBuffer roadSorted = sliceInts(in, m);
+            ByteBuffer vertexBytes = sliceBytes(in, vertexBlob);
+            ByteBuffer roadBytes = sliceBytes(in, roadBlob);
+
+            return new Graph(new MappedIdTable(n, vertexStart, vertexSorted, vertexBytes), lat, lon,
+                             new MappedIdTable(m, roadStartByte, roadSorted, roadBytes), roadStart, roadEnd, roadWeight,
+                             offsets, targets, weights, edgeRoad);
+        }
+    }
+
+    /*
+        Returns true if the file starts with the magic number of a binary
+        map file.
+    */
+    public static boolean isBinary(String fileName) throws IOException {
+        if (!new File(fileName).isFile()) {
+            return false;
+        }
+
+        byte[] magic = new byte[4];
+        try (FileInputStream in = new FileInputStream(fileName)) {
+            if (in.readNBytes(magic, 0, 4) < 4) {
+                return false;
+            }
+        }
+
+        return ByteBuffer.wrap(magic).order(ByteOrder.LITTLE_ENDIAN).getInt() == MAGIC;
+    }
+
+    /*
+        Helper methods to write the sections of the file.
+    */
+
+    private static long blobLength(byte[][] ids) {
+        long length = 0;
+        for (byte[] id : ids) {
+            length += id.length;
+        }
+
+        return length;
+    }
+
+    private static void putDoubles(ByteBuffer out, double[] values) {
+        out.asDoubleBuffer().put(values);
+        out.position(out.position() + 8 * values.length);
+    }
+
+    private static void putInts(ByteBuffer out, int[] values) {
+        out.asIntBuffer().put(values);
+        out.position(out.position() + 4 * values.length);
+    }
+
+    /*
+        Write the byte offsets of the ids followed by their indices sorted
+        by bytes. The sort is stable, so equal ids keep increasing indices.
+    */
+    private static void putIdIndex(ByteBuffer out, byte[][] ids) {
+        int[] start = new int[ids.length + 1];
+        for (int i = 0; i < ids.length; i++) {
+            start[i + 1] = start[i] + ids[i].length;
+        }
+
+        Integer[] order = new Integer[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Arrays.compareUnsigned(ids[a], ids[b]));
+
+        int[] sorted = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            sorted[i] = order[i];
+        }
+
+        putInts(out, start);
+        putInts(out, sorted);
+    }
+
+    /*
+        Helper methods to read the sections of the file.
+    */
+
+    private static double[] getDoubles(ByteBuffer in, int count) {
+        double[] values = new double[count];
+        in.asDoubleBuffer().get(values);
+        in.position(in.position() + 8 * count);
+        return values;
+    }
+
+    private static int[] getInts(ByteBuffer in, int count) {
+        int[] values = new int[count];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + 4 * count);
+        return values;
+    }
+
+    private static IntBuffer sliceInts(ByteBuffer in, int count) {
+        IntBuffer values = in.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        values.limit(count);
+        in.position(in.position() + 4 * count);
+        return values;
+    }
+
+    private static ByteBuffer sliceBytes(ByteBuffer in, int count) {
+        ByteBuffer values = in.slice();
+        values.limit(count);
+        in.position(in.position() + count);
+        return values;
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ *  @file   MapGenerator.java
+ *  @brief  Class to write synthetic maps in the same text format as
+ *          ur.txt: a jittered grid of intersections about 0.15 miles
+ *          apart joined by streets, with some streets missing and a few
+ *          diagonal shortcuts, so maps of any size can be made for
+ *          benchmarks without the original data files.
+ *
+ *          java MapGenerator width height map.txt [seed]
+ *  @author Mustafa Siddiqui
+ *  @date   10/18/2026
+ */
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Random;
+
+public class MapGenerator {
+    // grid spacing in degrees, and how far an intersection may be moved off it
+    private static final double LAT_STEP = 0.002;
+    private static final double LONG_STEP = 0.0027;
+    private static final double JITTER = 0.0005;
+
+    // chance that a grid street exists, and that a block has a diagonal
+    private static final double STREET_CHANCE = 0.85;
+    private static final double DIAGONAL_CHANCE = 0.05;
+
+    // south west corner of the grid
+    private static final double START_LAT = 42.0;
+    private static final double START_LONG = -78.0;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.out.println("Usage: java MapGenerator width height map.txt [seed]");
+            System.exit(0);
+        }
+
+        int width = Integer.parseInt(args[0]);
+        int height = Integer.parseInt(args[1]);
+        long seed = (args.length > 3) ? Long.parseLong(args[3]) : 1;
+        int roads = write(args[2], width, height, seed);
+        System.out.println("Wrote " + args[2] + " with " + (width * height) + " intersections and " + roads + " roads");
+    }
+
+    /*
+        Write a width by height grid map. The same size and seed always
+        give the same map. Intersections are named v<x>_<y> and roads
+        r<n>.
+        @return: number of roads written
+    */
+    public static int write(String fileName, int width, int height, long seed) throws IOException {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Map size must be at least 1x1");
+        }
+
+        Random random = new Random(seed);
+        int roads = 0;
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(fileName), 1 << 16)) {
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    double lat = START_LAT + y * LAT_STEP + (random.nextDouble() * 2 - 1) * JITTER;
+                    double lon = START_LONG + x * LONG_STEP + (random.nextDouble() * 2 - 1) * JITTER;
+                    out.write(String.format(Locale.ROOT, "i\tv%d_%d\t%.6f\t%.6f\n", x, y, lat, lon));
+                }
+            }
+
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    if (x + 1 < width && random.nextDouble() < STREET_CHANCE) {
+                        out.write(road(++roads, x, y, x + 1, y));
+                    }
+                    if (y + 1 < height && random.nextDouble() < STREET_CHANCE) {
+                        out.write(road(++roads, x, y, x, y + 1));
+                    }
+                    if (x + 1 < width && y + 1 < height && random.nextDouble() < DIAGONAL_CHANCE) {
+                        out.write(road(++roads, x, y, x + 1, y + 1));
+                    }
+                }
+            }
+        }
+
+        return roads;
+    }
+
+    private static String road(int id, int x1, int y1, int x2, int y2) {
+        return "r\tr" + id + "\tv" + x1 + "_" + y1 + "\tv" + x2 + "_" + y2 + "\n";
+    }
+}
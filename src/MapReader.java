@@ -0,0 +1,422 @@
+/**
+ *  @file   MapReader.java
+ *  @brief  Class to read a map in the tab separated text format. The file
+ *          is split into chunks on line boundaries which are tokenized in
+ *          parallel straight from the bytes, with a hand-written decimal
+ *          parser for the coordinates. Intersections are read in a first
+ *          pass and roads in a second, since every "i" line comes before
+ *          the "r" lines that use it.
+ *  @author Mustafa Siddiqui
+ *  @date   10/18/2026
+ */
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+public class MapReader {
+    // bounds on the size of the chunks parsed by one task
+    private static final int MIN_CHUNK = 1 << 20;
+    private static final int MAX_CHUNK = 1 << 26;
+
+    // powers of ten that are exact as doubles, for the fast decimal path
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /*
+        Part of the file between two line boundaries, along with whatever
+        was parsed from it.
+    */
+    private static class Chunk {
+        long start;
+        int length;
+
+        // intersections
+        ArrayList<String> ids = new ArrayList<String>();
+        DoubleList latitudes = new DoubleList();
+        DoubleList longitudes = new DoubleList();
+
+        // roads
+        ArrayList<String> roadIds = new ArrayList<String>();
+        IntList roadStart = new IntList();
+        IntList roadEnd = new IntList();
+        DoubleList roadWeight = new DoubleList();
+
+        Chunk(long start, int length) {
+            this.start = start;
+            this.length = length;
+        }
+    }
+
+    /*
+        Read a map file and build the (frozen) graph it describes.
+        Each line is tab separated, either an intersection
+        "i id latitude longitude" or a road "r id intersection1 intersection2".
+        Other lines are ignored.
+    */
+    public static Graph read(String fileName) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(fileName, "r");
+             FileChannel channel = file.getChannel()) {
+            List<Chunk> chunks = split(channel);
+
+            // first pass: intersections
+            ArrayList<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+            for (Chunk chunk : chunks) {
+                tasks.add(() -> {
+                    parseIntersections(chunk, load(channel, chunk));
+                    return null;
+                });
+            }
+            runAll(tasks);
+
+            int n = 0;
+            for (Chunk chunk : chunks) {
+                n += chunk.ids.size();
+            }
+
+            NameTable vertexIds = new NameTable(n);
+            double[] latitudes = new double[n];
+            double[] longitudes = new double[n];
+            for (Chunk chunk : chunks) {
+                for (int i = 0; i < chunk.ids.size(); i++) {
+                    int v = vertexIds.add(chunk.ids.get(i));
+                    latitudes[v] = chunk.latitudes.get(i);
+                    longitudes[v] = chunk.longitudes.get(i);
+                }
+                chunk.ids = null;
+            }
+
+            // second pass: roads, with their endpoints looked up in the
+            // finished (read-only) table of intersections
+            tasks.clear();
+            for (Chunk chunk : chunks) {
+                tasks.add(() -> {
+                    parseRoads(chunk, load(channel, chunk), vertexIds, latitudes, longitudes);
+                    return null;
+                });
+            }
+            runAll(tasks);
+
+            int m = 0;
+            for (Chunk chunk : chunks) {
+                m += chunk.roadIds.size();
+            }
+
+            NameTable roadIds = new NameTable(m);
+            int[] roadStart = new int[m];
+            int[] roadEnd = new int[m];
+            double[] roadWeight = new double[m];
+            for (Chunk chunk : chunks) {
+                for (int i = 0; i < chunk.roadIds.size(); i++) {
+                    int r = roadIds.add(chunk.roadIds.get(i));
+                    roadStart[r] = chunk.roadStart.get(i);
+                    roadEnd[r] = chunk.roadEnd.get(i);
+                    roadWeight[r] = chunk.roadWeight.get(i);
+                }
+                chunk.roadIds = null;
+            }
+
+            return new Graph(vertexIds, latitudes, longitudes, roadIds, roadStart, roadEnd, roadWeight);
+        }
+    }
+
+    /*
+        Split a file into chunks that end on line boundaries, a few per
+        available processor so the tasks stay balanced.
+    */
+    private static List<Chunk> split(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int processors = Runtime.getRuntime().availableProcessors();
+        long target = Math.max(MIN_CHUNK, Math.min(MAX_CHUNK, size / (4L * processors)));
+
+        ArrayList<Chunk> chunks = new ArrayList<Chunk>();
+        ByteBuffer scan = ByteBuffer.allocate(4096);
+        long start = 0;
+        while (start < size) {
+            // end the chunk just after the first newline past the target
+            long end = start + target;
+            if (end >= size) {
+                end = size;
+            }
+            else {
+                long position = end;
+                end = size;
+                while (position < size) {
+                    scan.clear();
+                    int count = channel.read(scan, position);
+                    int newline = indexOf(scan.array(), (byte)'\n', 0, count);
+                    if (newline >= 0) {
+                        end = position + newline + 1;
+                        break;
+                    }
+                    position += count;
+                }
+            }
+
+            if (end - start > Integer.MAX_VALUE) {
+                throw new IOException("Line longer than " + Integer.MAX_VALUE + " bytes at byte " + start);
+            }
+
+            chunks.add(new Chunk(start, (int)(end - start)));
+            start = end;
+        }
+
+        return chunks;
+    }
+
+    /*
+        Read the bytes of a chunk. Positional reads do not move the channel,
+        so any number of tasks can read from it at once.
+    */
+    private static byte[] load(FileChannel channel, Chunk chunk) throws IOException {
+        byte[] bytes = new byte[chunk.length];
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, chunk.start + buffer.position()) < 0) {
+                throw new IOException("File shrank while it was being read");
+            }
+        }
+
+        return bytes;
+    }
+
+    /*
+        Run the tasks on the common fork/join pool and wait for all of
+        them, passing on the first failure. The pool may run a task on the
+        calling thread and wrap its exception in a RuntimeException or a
+        copy of itself, so those are unwrapped too.
+    */
+    private static void runAll(List<Callable<Void>> tasks) throws IOException {
+        try {
+            for (Future<Void> result : ForkJoinPool.commonPool().invokeAll(tasks)) {
+                result.get();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading the map", e);
+        }
+        catch (ExecutionException | RuntimeException e) {
+            Throwable cause = (e instanceof ExecutionException) ? e.getCause() : e;
+            while (cause.getCause() != null && (cause.getClass() == RuntimeException.class ||
+                                                cause.getClass() == cause.getCause().getClass())) {
+                cause = cause.getCause();
+            }
+
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /*
+        Parse the "i id latitude longitude" lines of a chunk.
+    */
+    private static void parseIntersections(Chunk chunk, byte[] bytes) throws IOException {
+        int[] fields = new int[8];
+        int pos = 0;
+        while (pos < bytes.length) {
+            int lineEnd = lineEnd(bytes, pos);
+            if (isLine(bytes, pos, lineEnd, (byte)'i')) {
+                tokenize(chunk, bytes, pos, lineEnd, fields);
+                chunk.ids.add(new String(bytes, fields[2], fields[3] - fields[2], StandardCharsets.UTF_8));
+                chunk.latitudes.add(parseCoordinate(chunk, bytes, pos, fields[4], fields[5]));
+                chunk.longitudes.add(parseCoordinate(chunk, bytes, pos, fields[6], fields[7]));
+            }
+
+            pos = lineEnd + 1;
+        }
+    }
+
+    /*
+        Parse the "r id intersection1 intersection2" lines of a chunk and
+        compute the length of every road.
+    */
+    private static void parseRoads(Chunk chunk, byte[] bytes, NameTable vertexIds,
+                                   double[] latitudes, double[] longitudes) throws IOException {
+        int[] fields = new int[8];
+        int pos = 0;
+        while (pos < bytes.length) {
+            int lineEnd = lineEnd(bytes, pos);
+            if (isLine(bytes, pos, lineEnd, (byte)'r')) {
+                tokenize(chunk, bytes, pos, lineEnd, fields);
+                String id = new String(bytes, fields[2], fields[3] - fields[2], StandardCharsets.UTF_8);
+                String startID = new String(bytes, fields[4], fields[5] - fields[4], StandardCharsets.UTF_8);
+                String endID = new String(bytes, fields[6], fields[7] - fields[6], StandardCharsets.UTF_8);
+
+                int start = vertexIds.indexOf(startID);
+                int end = vertexIds.indexOf(endID);
+                if (start < 0 || end < 0) {
+                    throw new IOException("Line at byte " + (chunk.start + pos) + ": road " + id +
+                                            " connects unknown intersection " + (start < 0 ? startID : endID));
+                }
+
+                chunk.roadIds.add(id);
+                chunk.roadStart.add(start);
+                chunk.roadEnd.add(end);
+                chunk.roadWeight.add(Edge.haversine(latitudes[start], longitudes[start], latitudes[end], longitudes[end]));
+            }
+
+            pos = lineEnd + 1;
+        }
+    }
+
+    /*
+        Helper methods for the tokenizer.
+    */
+
+    private static int indexOf(byte[] bytes, byte b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == b) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    // index of the newline ending the line at pos, or the end of the chunk
+    private static int lineEnd(byte[] bytes, int pos) {
+        int end = indexOf(bytes, (byte)'\n', pos, bytes.length);
+        return (end < 0) ? bytes.length : end;
+    }
+
+    // true if the first field of the line is the single given character
+    private static boolean isLine(byte[] bytes, int pos, int lineEnd, byte type) {
+        return bytes[pos] == type && (pos + 1 == lineEnd || bytes[pos + 1] == '\t' || bytes[pos + 1] == '\r');
+    }
+
+    /*
+        Find the first four tab separated fields of a line, storing the
+        start and end of field i in fields[2i] and fields[2i + 1]. A
+        carriage return before the newline is not part of the last field.
+    */
+    private static void tokenize(Chunk chunk, byte[] bytes, int pos, int lineEnd, int[] fields) throws IOException {
+        if (lineEnd > pos && bytes[lineEnd - 1] == '\r') {
+            lineEnd--;
+        }
+
+        int start = pos;
+        for (int f = 0; f < 4; f++) {
+            if (start > lineEnd) {
+                throw new IOException("Line at byte " + (chunk.start + pos) + " has fewer than 4 fields");
+            }
+
+            int end = indexOf(bytes, (byte)'\t', start, lineEnd);
+            if (end < 0) {
+                end = lineEnd;
+            }
+
+            fields[2 * f] = start;
+            fields[2 * f + 1] = end;
+            start = end + 1;
+        }
+    }
+
+    /*
+        Parse a latitude or longitude field of the line at pos, reporting
+        a field that is not a number with the line's byte offset.
+    */
+    private static double parseCoordinate(Chunk chunk, byte[] bytes, int pos, int from, int to) throws IOException {
+        try {
+            return parseDouble(bytes, from, to);
+        }
+        catch (NumberFormatException e) {
+            throw new IOException("Line at byte " + (chunk.start + pos) + " has a bad coordinate '" +
+                                    new String(bytes, from, to - from, StandardCharsets.UTF_8) + "'");
+        }
+    }
+
+    /*
+        Parse a decimal number without creating a String. Numbers with at
+        most 18 significant digits and a small enough exponent are exact
+        as a long mantissa times or divided by an exact power of ten, so a
+        single rounding gives the same double as Double.parseDouble.
+        Anything else is handed to Double.parseDouble.
+        @param: bytes   -   bytes holding the number
+        @param: from    -   index of the first byte
+        @param: to      -   index after the last byte
+    */
+    static double parseDouble(byte[] bytes, int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = (bytes[i] == '-');
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean any = false;
+
+        // integer part, then fraction part
+        for (; i < to && bytes[i] >= '0' && bytes[i] <= '9'; i++) {
+            mantissa = mantissa * 10 + (bytes[i] - '0');
+            digits += (mantissa != 0) ? 1 : 0;
+            any = true;
+        }
+        if (i < to && bytes[i] == '.') {
+            for (i++; i < to && bytes[i] >= '0' && bytes[i] <= '9'; i++) {
+                mantissa = mantissa * 10 + (bytes[i] - '0');
+                digits += (mantissa != 0) ? 1 : 0;
+                exponent--;
+                any = true;
+            }
+        }
+
+        // exponent part
+        if (any && i < to && (bytes[i] == 'e' || bytes[i] == 'E')) {
+            int j = i + 1;
+            boolean negativeExponent = false;
+            if (j < to && (bytes[j] == '-' || bytes[j] == '+')) {
+                negativeExponent = (bytes[j] == '-');
+                j++;
+            }
+
+            int value = 0;
+            int start = j;
+            for (; j < to && bytes[j] >= '0' && bytes[j] <= '9' && value < 1000; j++) {
+                value = value * 10 + (bytes[j] - '0');
+            }
+            if (j > start) {
+                exponent += negativeExponent ? -value : value;
+                i = j;
+            }
+        }
+
+        if (any && i == to && digits <= 18) {
+            double value;
+            if (mantissa == 0) {
+                value = 0;
+            }
+            else if (mantissa < (1L << 53) && exponent >= 0 && exponent < POWERS_OF_TEN.length) {
+                value = mantissa * POWERS_OF_TEN[exponent];
+            }
+            else if (mantissa < (1L << 53) && exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+                value = mantissa / POWERS_OF_TEN[-exponent];
+            }
+            else {
+                return Double.parseDouble(new String(bytes, from, to - from, StandardCharsets.ISO_8859_1));
+            }
+
+            return negative ? -value : value;
+        }
+
+        return Double.parseDouble(new String(bytes, from, to - from, StandardCharsets.ISO_8859_1));
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ *  @file   MappedIdTable.java
+ *  @brief  Class to implement a read-only IdTable over a memory-mapped
+ *          section of a binary map file. Ids stay in the mapping as UTF-8
+ *          bytes and are only decoded into Strings when asked for.
+ *  @author Mustafa Siddiqui
+ *  @date   10/18/2026
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class MappedIdTable implements IdTable {
+    private int size;
+
+    // bytes of id i are blob[start[i]] .. blob[start[i + 1] - 1]
+    private IntBuffer start;
+
+    // indices of the ids in order of their bytes, for binary search
+    private IntBuffer sorted;
+    private ByteBuffer blob;
+
+    /*
+        Constructor for the MappedIdTable class.
+        @param: size    -   number of ids
+        @param: start   -   size + 1 byte offsets into blob
+        @param: sorted  -   id indices sorted by their bytes (unsigned),
+                            equal ids by increasing index
+        @param: blob    -   UTF-8 bytes of all ids back to back
+    */
+    public MappedIdTable(int size, IntBuffer start, IntBuffer sorted, ByteBuffer blob) {
+        this.size = size;
+        this.start = start;
+        this.sorted = sorted;
+        this.blob = blob;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String get(int i) {
+        int from = start.get(i);
+        byte[] bytes = new byte[start.get(i + 1) - from];
+        blob.get(from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /*
+        Binary search over the sorted order. An id stored more than once
+        resolves to its last index, the same as in a NameTable.
+    */
+    @Override
+    public int indexOf(String id) {
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+
+        // find the first id in sorted order that is larger than the key
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(sorted.get(mid), key) <= 0) {
+                lo = mid + 1;
+            }
+            else {
+                hi = mid;
+            }
+        }
+
+        if (lo > 0 && compare(sorted.get(lo - 1), key) == 0) {
+            return sorted.get(lo - 1);
+        }
+
+        return -1;
+    }
+
+    /*
+        Helper method to compare the bytes of id i with a key, unsigned
+        and byte by byte like Arrays.compareUnsigned.
+    */
+    private int compare(int i, byte[] key) {
+        int from = start.get(i);
+        int length = start.get(i + 1) - from;
+        int common = Math.min(length, key.length);
+        for (int j = 0; j < common; j++) {
+            int c = Integer.compare(blob.get(from + j) & 0xff, key[j] & 0xff);
+            if (c != 0) {
+                return c;
+            }
+        }
+
+        return Integer.compare(length, key.length);
+    }
+}
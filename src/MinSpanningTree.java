@@ -0,0 +1,283 @@
+/**
+ *  @file   MinSpanningTree.java
+ *  @brief  Class with the minimum spanning tree (forest) algorithms of a
+ *          graph: Kruskal's algorithm over roads sorted once by a radix
+ *          sort, and a multi-threaded Boruvka variant. Roads of equal
+ *          weight are ordered by index, so both find the same tree.
+ *          Closed roads are left out of the forest.
+ *  @author Mustafa Siddiqui
+ *  @date   10/18/2026
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+public class MinSpanningTree {
+    // bits of the key sorted on by each pass of the radix sort
+    private static final int RADIX_BITS = 16;
+
+    /*
+        Work on the index range [from, to) of some array, run by one thread.
+    */
+    private interface RangeTask {
+        void run(int chunk, int from, int to);
+    }
+
+    /*
+        Kruskal's algorithm: take the roads from lightest to heaviest and
+        keep every road that joins two different trees of the forest.
+        @param: map -   graph to span, frozen if it is not already
+        @return: indices of the roads in the forest, lightest first
+    */
+    public static int[] kruskal(Graph map) {
+        long startTime = Stats.start();
+        map.freeze();
+        int n = map.vertexCount();
+        UnionFind sets = new UnionFind(n);
+        IntList tree = new IntList(Math.max(1, n - 1));
+
+        // closed roads weigh infinity, so they are sorted last
+        double[] weight = map.roadWeights();
+        for (int r : sortByWeight(weight)) {
+            if (sets.sets() == 1 || weight[r] == Graph.CLOSED) {
+                break;
+            }
+            if (sets.union(map.getRoadStart(r), map.getRoadEnd(r))) {
+                tree.add(r);
+            }
+        }
+
+        Stats.end(Stats.Phase.MST, startTime);
+        return tree.toArray();
+    }
+
+    /*
+        Returns the indices of all roads sorted by weight, equal weights
+        by index. Weights are never negative, so the bits of a double sort
+        like the value and an LSD radix sort (stable) does it in a few
+        linear passes; passes where every key has the same digit are
+        skipped.
+    */
+    static int[] sortByWeight(double[] weight) {
+        int m = weight.length;
+        long[] keys = new long[m];
+        int[] order = new int[m];
+        for (int r = 0; r < m; r++) {
+            keys[r] = Double.doubleToLongBits(weight[r]);
+            order[r] = r;
+        }
+
+        long[] keyBuffer = new long[m];
+        int[] orderBuffer = new int[m];
+        int[] count = new int[1 << RADIX_BITS];
+        int mask = (1 << RADIX_BITS) - 1;
+
+        for (int shift = 0; shift < 64 && m > 0; shift += RADIX_BITS) {
+            Arrays.fill(count, 0);
+            for (int i = 0; i < m; i++) {
+                count[(int)(keys[i] >>> shift) & mask]++;
+            }
+            if (count[(int)(keys[0] >>> shift) & mask] == m) {
+                continue;
+            }
+
+            // prefix sum into the first slot of every digit
+            int sum = 0;
+            for (int d = 0; d < count.length; d++) {
+                int c = count[d];
+                count[d] = sum;
+                sum += c;
+            }
+
+            for (int i = 0; i < m; i++) {
+                int slot = count[(int)(keys[i] >>> shift) & mask]++;
+                keyBuffer[slot] = keys[i];
+                orderBuffer[slot] = order[i];
+            }
+
+            long[] k = keys;
+            keys = keyBuffer;
+            keyBuffer = k;
+            int[] o = order;
+            order = orderBuffer;
+            orderBuffer = o;
+        }
+
+        return order;
+    }
+
+    /*
+        Boruvka's algorithm on several threads. Every round each tree of
+        the forest picks its lightest road leading out of it, all picked
+        roads are added at once and roads left inside a tree are dropped,
+        so there are at most log2(n) rounds. Picking is the expensive
+        part and runs in parallel over the roads, with each tree's choice
+        kept in an atomic slot updated by compare-and-set.
+        @param: map     -   graph to span, frozen if it is not already
+        @param: threads -   number of threads to use
+        @return: indices of the roads in the forest
+    */
+    public static int[] boruvka(Graph map, int threads) {
+        long startTime = Stats.start();
+        map.freeze();
+        int n = map.vertexCount();
+        int m = map.roadCount();
+        double[] weight = map.roadWeights();
+
+        UnionFind sets = new UnionFind(n);
+        IntList tree = new IntList(Math.max(1, n - 1));
+
+        // tree of every vertex, named by its root in sets
+        int[] component = new int[n];
+        for (int v = 0; v < n; v++) {
+            component[v] = v;
+        }
+
+        // lightest road out of every tree found this round, -1 if none
+        AtomicIntegerArray best = new AtomicIntegerArray(n);
+        for (int v = 0; v < n; v++) {
+            best.set(v, -1);
+        }
+
+        // roads that may still join two trees
+        int[] live = new int[m];
+        int liveCount = 0;
+        for (int r = 0; r < m; r++) {
+            if (map.getRoadStart(r) != map.getRoadEnd(r) && weight[r] != Graph.CLOSED) {
+                live[liveCount++] = r;
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        try {
+            int chunks = Math.max(1, threads) * 4;
+            int[] kept = new int[chunks];
+
+            while (liveCount > 0) {
+                int size = liveCount;
+
+                // every road offers itself to the trees at both of its ends
+                forEachRange(pool, size, chunks, (chunk, from, to) -> {
+                    for (int i = from; i < to; i++) {
+                        int r = live[i];
+                        int a = component[map.getRoadStart(r)];
+                        int b = component[map.getRoadEnd(r)];
+                        if (a != b) {
+                            offer(weight, best, a, r);
+                            offer(weight, best, b, r);
+                        }
+                    }
+                });
+
+                // join the trees along the picked roads; a road picked by
+                // both of its trees is only added once
+                for (int v = 0; v < n; v++) {
+                    int r = best.get(v);
+                    if (r >= 0) {
+                        best.set(v, -1);
+                        if (sets.union(map.getRoadStart(r), map.getRoadEnd(r))) {
+                            tree.add(r);
+                        }
+                    }
+                }
+
+                forEachRange(pool, n, chunks, (chunk, from, to) -> {
+                    for (int v = from; v < to; v++) {
+                        component[v] = sets.root(v);
+                    }
+                });
+
+                // drop the roads that now lie inside a tree, compacting
+                // each range in place and then closing the gaps
+                forEachRange(pool, size, chunks, (chunk, from, to) -> {
+                    int out = from;
+                    for (int i = from; i < to; i++) {
+                        int r = live[i];
+                        if (component[map.getRoadStart(r)] != component[map.getRoadEnd(r)]) {
+                            live[out++] = r;
+                        }
+                    }
+                    kept[chunk] = out - from;
+                });
+
+                liveCount = 0;
+                for (int chunk = 0; chunk < chunks; chunk++) {
+                    int from = rangeStart(size, chunks, chunk);
+                    System.arraycopy(live, from, live, liveCount, kept[chunk]);
+                    liveCount += kept[chunk];
+                }
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+
+        Stats.end(Stats.Phase.MST, startTime);
+        return tree.toArray();
+    }
+
+    /*
+        Make road r the pick of a tree if it is lighter than the current
+        pick, retrying if another thread changes the pick in between.
+    */
+    private static void offer(double[] weight, AtomicIntegerArray best, int tree, int r) {
+        while (true) {
+            int current = best.get(tree);
+            if (current >= 0 && !lighter(weight, r, current)) {
+                return;
+            }
+            if (best.compareAndSet(tree, current, r)) {
+                return;
+            }
+        }
+    }
+
+    /*
+        Total order on roads: by weight, then by index.
+    */
+    private static boolean lighter(double[] weight, int a, int b) {
+        int c = Double.compare(weight[a], weight[b]);
+        return c < 0 || (c == 0 && a < b);
+    }
+
+    /*
+        Helper methods to split [0, size) into ranges and run a task on
+        each range on the pool, waiting for all of them.
+    */
+
+    private static int rangeStart(int size, int chunks, int chunk) {
+        return (int)((long)size * chunk / chunks);
+    }
+
+    private static void forEachRange(ForkJoinPool pool, int size, int chunks, RangeTask task) {
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            int c = chunk;
+            int from = rangeStart(size, chunks, chunk);
+            int to = rangeStart(size, chunks, chunk + 1);
+            tasks.add(() -> {
+                task.run(c, from, to);
+                return null;
+            });
+        }
+
+        try {
+            for (Future<Void> result : pool.invokeAll(tasks)) {
+                result.get();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while computing the spanning tree", e);
+        }
+        catch (ExecutionException e) {
+            throw new IllegalStateException("Spanning tree task failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ *  @file   NameTable.java
+ *  @brief  Class to implement a growable in-memory IdTable, backed by an
+ *          array of ids and a hashmap for O(1) lookup.
+ *  @author Mustafa Siddiqui
+ *  @date   10/18/2026
+ */
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+public class NameTable implements IdTable {
+    private String[] ids;
+    private int size = 0;
+
+    // hashmap for O(1) index retrieval
+    private HashMap<String, Integer> index;
+
+    /*
+        Constructors for the NameTable class.
+    */
+    public NameTable() {
+        this(16);
+    }
+
+    public NameTable(int capacity) {
+        ids = new String[Math.max(1, capacity)];
+        index = new HashMap<String, Integer>(Math.max(16, (int)(capacity / 0.75f) + 1));
+    }
+
+    /*
+        Add an id to the end of the table. An id added twice is looked
+        up as its latest index.
+        @return: the index of the id
+    */
+    public int add(String id) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+
+        ids[size] = id;
+        index.put(id, size);
+        return size++;
+    }
+
+    /*
+        Release the unused capacity once no more ids will be added.
+    */
+    public void trim() {
+        ids = Arrays.copyOf(ids, size);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String get(int i) {
+        return ids[i];
+    }
+
+    @Override
+    public int indexOf(String id) {
+        Integer i = index.get(id);
+        return (i == null) ? -1 : i;
+    }
+}
@@ -0,0 +1,224 @@
+/**
+ *  @file   Partitioner.java
+ *  @brief  Class to split a map into geographic shards by recursive
+ *          coordinate bisection: the intersections are split at the
+ *          median of the longer side of their bounding box until there
+ *          are as many parts as shards. Every shard is written as a map
+ *          file of its intersections and the roads inside it, with a list
+ *          of its boundary intersections (ends of roads that leave it).
+ *          The roads between shards go into a manifest, which is what
+ *          ShardCoordinator reads. Shards get their road weights from
+ *          the coordinates when they are loaded, so roads are written at
+ *          their loaded lengths and only closures carry over.
+ *
+ *          java Partitioner map.txt shards prefix
+ *  @author Mustafa Siddiqui
+ *  @date   10/18/2026
+ */
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+
+public class Partitioner {
+    private Graph map;
+
+    // shard of every intersection
+    private int[] shardOf;
+    private int shards;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.out.println("Usage: java Partitioner map.txt shards prefix");
+            System.exit(0);
+        }
+
+        long startTime = System.nanoTime();
+        Partitioner partitioner = new Partitioner(Main.loadMap(args[0]), Integer.parseInt(args[1]));
+        String manifest = partitioner.write(args[2]);
+        System.out.printf("Wrote %d shards and %s in %.1f ms\n", partitioner.getShardCount(), manifest,
+                            (System.nanoTime() - startTime) / 1e6);
+        System.out.print(partitioner.summary());
+    }
+
+    /*
+        Constructor for the Partitioner class. Computes the partition.
+        @param: map     -   graph to split
+        @param: shards  -   number of shards, at most one per intersection
+    */
+    public Partitioner(Graph map, int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("Need at least one shard");
+        }
+
+        map.freeze();
+        this.map = map;
+        this.shards = Math.max(1, Math.min(shards, map.vertexCount()));
+        this.shardOf = new int[map.vertexCount()];
+
+        Integer[] order = new Integer[map.vertexCount()];
+        for (int v = 0; v < order.length; v++) {
+            order[v] = v;
+        }
+        bisect(order, 0, order.length, 0, this.shards);
+    }
+
+    /*
+        Helper method to give the vertices order[from, to) the shards
+        [first, first + count), splitting them in proportion to the shards
+        on each side so that shards end up about the same size.
+    */
+    private void bisect(Integer[] order, int from, int to, int first, int count) {
+        if (count == 1) {
+            for (int i = from; i < to; i++) {
+                shardOf[order[i]] = first;
+            }
+            return;
+        }
+
+        // longitude degrees are shorter away from the equator
+        double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE;
+        double minLong = Double.MAX_VALUE, maxLong = -Double.MAX_VALUE;
+        for (int i = from; i < to; i++) {
+            minLat = Math.min(minLat, map.getLatitude(order[i]));
+            maxLat = Math.max(maxLat, map.getLatitude(order[i]));
+            minLong = Math.min(minLong, map.getLongitude(order[i]));
+            maxLong = Math.max(maxLong, map.getLongitude(order[i]));
+        }
+        double widthScale = Math.cos(Math.toRadians((minLat + maxLat) / 2));
+        boolean byLatitude = (maxLat - minLat) >= (maxLong - minLong) * widthScale;
+
+        Arrays.sort(order, from, to, (a, b) -> byLatitude ? Double.compare(map.getLatitude(a), map.getLatitude(b))
+                                                          : Double.compare(map.getLongitude(a), map.getLongitude(b)));
+
+        int left = count / 2;
+        int middle = from + (int)((long)(to - from) * left / count);
+        bisect(order, from, middle, first, left);
+        bisect(order, middle, to, first + left, count - left);
+    }
+
+    /*
+        Write the shards and the manifest.
+        @param: prefix  -   shard i is written to prefix-i.txt with its
+                            boundary intersections in prefix-i.boundary
+        @return: name of the manifest, prefix.shards
+    */
+    public String write(String prefix) throws IOException {
+        int n = map.vertexCount();
+        int m = map.roadCount();
+
+        BufferedWriter[] maps = new BufferedWriter[shards];
+        String[] names = new String[shards];
+        try {
+            for (int s = 0; s < shards; s++) {
+                names[s] = prefix + "-" + s + ".txt";
+                maps[s] = new BufferedWriter(new FileWriter(names[s]), 1 << 16);
+            }
+
+            // every "i" line of a shard before its "r" lines
+            for (int v = 0; v < n; v++) {
+                maps[shardOf[v]].write("i\t" + map.getID(v) + "\t" + map.getLatitude(v) + "\t" + map.getLongitude(v) + "\n");
+            }
+            for (int r = 0; r < m; r++) {
+                int a = map.getRoadStart(r);
+                int b = map.getRoadEnd(r);
+                if (shardOf[a] == shardOf[b] && !map.isClosed(r)) {
+                    maps[shardOf[a]].write("r\t" + map.getRoadID(r) + "\t" + map.getID(a) + "\t" + map.getID(b) + "\n");
+                }
+            }
+        }
+        finally {
+            for (BufferedWriter out : maps) {
+                if (out != null) {
+                    out.close();
+                }
+            }
+        }
+
+        // ends of the roads between shards, each listed once
+        boolean[] isBoundary = new boolean[n];
+        String manifest = prefix + ".shards";
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(manifest))) {
+            out.write("# shard <TAB> map file <TAB> boundary file, then every road between shards:\n");
+            out.write("# cut <TAB> road <TAB> start <TAB> end <TAB> miles\n");
+            for (int s = 0; s < shards; s++) {
+                out.write("shard\t" + new File(names[s]).getName() + "\t" + new File(prefix + "-" + s + ".boundary").getName() + "\n");
+            }
+            for (int r = 0; r < m; r++) {
+                int a = map.getRoadStart(r);
+                int b = map.getRoadEnd(r);
+                if (shardOf[a] != shardOf[b] && !map.isClosed(r)) {
+                    out.write("cut\t" + map.getRoadID(r) + "\t" + map.getID(a) + "\t" + map.getID(b) + "\t" +
+                                map.getLoadedWeight(r) + "\n");
+                    isBoundary[a] = true;
+                    isBoundary[b] = true;
+                }
+            }
+        }
+
+        for (int s = 0; s < shards; s++) {
+            try (BufferedWriter out = new BufferedWriter(new FileWriter(prefix + "-" + s + ".boundary"))) {
+                for (int v = 0; v < n; v++) {
+                    if (isBoundary[v] && shardOf[v] == s) {
+                        out.write(map.getID(v) + "\n");
+                    }
+                }
+            }
+        }
+
+        return manifest;
+    }
+
+    /*
+        Returns one line per shard with its intersections, roads and
+        boundary intersections, and the number of roads cut.
+    */
+    public String summary() {
+        int[] vertices = new int[shards];
+        int[] roads = new int[shards];
+        int[] boundary = new int[shards];
+        boolean[] isBoundary = new boolean[map.vertexCount()];
+        int cut = 0;
+
+        for (int v = 0; v < shardOf.length; v++) {
+            vertices[shardOf[v]]++;
+        }
+        for (int r = 0; r < map.roadCount(); r++) {
+            int a = map.getRoadStart(r);
+            int b = map.getRoadEnd(r);
+            if (shardOf[a] == shardOf[b]) {
+                roads[shardOf[a]]++;
+            }
+            else {
+                cut++;
+                for (int v : new int[] {a, b}) {
+                    if (!isBoundary[v]) {
+                        isBoundary[v] = true;
+                        boundary[shardOf[v]]++;
+                    }
+                }
+            }
+        }
+
+        StringBuilder out = new StringBuilder();
+        for (int s = 0; s < shards; s++) {
+            out.append(String.format("  shard %d: %d intersections, %d roads, %d boundary intersections\n", s,
+                                        vertices[s], roads[s], boundary[s]));
+        }
+        return out.append("  " + cut + " roads between shards\n").toString();
+    }
+
+    /*
+        Get methods for different parameters.
+    */
+
+    public int getShardCount() {
+        return shards;
+    }
+
+    public int getShard(int v) {
+        return shardOf[v];
+    }
+}
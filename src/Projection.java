@@ -0,0 +1,168 @@
+/**
+ *  @file   Projection.java
+ *  @brief  Class to map latitude and longitude to canvas pixels and
+ *          back. The map is first fitted to the canvas (the base
+ *          position of a point) and then zoomed and panned by the user.
+ *  @author Mustafa Siddiqui
+ *  @date   10/18/2026
+ */
+
+public class Projection {
+    // limits on how far the map can be zoomed out and in
+    private static final double MIN_ZOOM = 0.25;
+    private static final double MAX_ZOOM = 1e5;
+
+    // bounding box of the map
+    private double minLat;
+    private double minLong;
+    private double latRange;
+    private double longRange;
+
+    // canvas size in pixels
+    private int width;
+    private int height;
+
+    // screen = zoom * base + pan
+    private double zoom = 1;
+    private double panX = 0;
+    private double panY = 0;
+
+    /*
+        Constructor for the Projection class.
+        @param: map -   graph whose bounding box is fitted to the canvas
+    */
+    public Projection(Graph map) {
+        minLat = map.getMinLat();
+        minLong = map.getMinLong();
+        latRange = map.getMaxLat() - minLat;
+        longRange = map.getMaxLong() - minLong;
+
+        // a map that is a single point or line still gets a scale
+        if (!(latRange > 0)) {
+            latRange = 1;
+        }
+        if (!(longRange > 0)) {
+            longRange = 1;
+        }
+    }
+
+    /*
+        Set the canvas size. Base positions depend on it, so they have to
+        be recomputed whenever this returns true.
+        @return: true if the size changed
+    */
+    public boolean setSize(int width, int height) {
+        if (width == this.width && height == this.height) {
+            return false;
+        }
+
+        this.width = width;
+        this.height = height;
+        return true;
+    }
+
+    /*
+        Base position of a longitude: the map takes the middle 90% of the
+        width, 5% margin on each side.
+    */
+    public double baseX(double longitude) {
+        return (longitude - minLong) / longRange * (0.9 * width) + 0.05 * width;
+    }
+
+    /*
+        Base position of a latitude: the map takes the middle 70% of the
+        height, 15% margin on each side, north up.
+    */
+    public double baseY(double latitude) {
+        return height - ((latitude - minLat) / latRange * (0.7 * height) + 0.15 * height);
+    }
+
+    /*
+        Apply the zoom and pan to base positions.
+    */
+
+    public double screenX(double baseX) {
+        return zoom * baseX + panX;
+    }
+
+    public double screenY(double baseY) {
+        return zoom * baseY + panY;
+    }
+
+    public double x(double longitude) {
+        return screenX(baseX(longitude));
+    }
+
+    public double y(double latitude) {
+        return screenY(baseY(latitude));
+    }
+
+    /*
+        Inverse mapping from canvas pixels back to coordinates, used to
+        find the part of the map that is visible.
+    */
+
+    public double longitude(double x) {
+        double base = (x - panX) / zoom;
+        return minLong + (base - 0.05 * width) / (0.9 * width) * longRange;
+    }
+
+    public double latitude(double y) {
+        double base = (y - panY) / zoom;
+        return minLat + (height - base - 0.15 * height) / (0.7 * height) * latRange;
+    }
+
+    /*
+        Zoom by a factor, keeping the point under the given pixel fixed.
+    */
+    public void zoom(double factor, double x, double y) {
+        double next = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, zoom * factor));
+        double baseX = (x - panX) / zoom;
+        double baseY = (y - panY) / zoom;
+
+        zoom = next;
+        panX = x - zoom * baseX;
+        panY = y - zoom * baseY;
+    }
+
+    /*
+        Move the map by a number of pixels.
+    */
+    public void pan(double dx, double dy) {
+        panX += dx;
+        panY += dy;
+    }
+
+    /*
+        Go back to the whole map fitted to the canvas.
+    */
+    public void reset() {
+        zoom = 1;
+        panX = 0;
+        panY = 0;
+    }
+
+    /*
+        Get methods for different parameters.
+    */
+
+    public double getZoom() {
+        return zoom;
+    }
+
+    public double getPanX() {
+        return panX;
+    }
+
+    public double getPanY() {
+        return panY;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ *  @file   RoadUpdates.java
+ *  @brief  Class to read a batch of road weight changes and apply it to a
+ *          loaded map. Every line names a road and its new weight:
+ *
+ *          road<TAB>miles      new weight in miles
+ *          road<TAB>x1.5       multiple of the road's loaded weight
+ *          road<TAB>closed     close the road
+ *          road<TAB>open       back to the loaded weight
+ *
+ *          # starts a comment. A blank line ends a batch, so a file or
+ *          stream can hold several batches applied one after another.
+ *  @author Mustafa Siddiqui
+ *  @date   10/18/2026
+ */
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+public class RoadUpdates {
+    private Graph map;
+    private IntList roads = new IntList();
+    private DoubleList weights = new DoubleList();
+
+    // set by apply() if some road got shorter
+    private boolean lowered = false;
+
+    /*
+        Constructor for the RoadUpdates class.
+        @param: map -   graph the updates are for
+    */
+    public RoadUpdates(Graph map) {
+        this.map = map;
+    }
+
+    /*
+        Read the next batch of updates, up to a blank line or the end of
+        the input.
+        A line that cannot be parsed is an IOException, one naming a
+        road that is not on the map an IllegalArgumentException.
+        @return: the batch, or null if the input has no more updates
+    */
+    public static RoadUpdates read(Graph map, BufferedReader in) throws IOException {
+        RoadUpdates batch = new RoadUpdates(map);
+        String line;
+        while ((line = in.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty()) {
+                if (batch.size() > 0) {
+                    return batch;
+                }
+                continue;
+            }
+            if (line.startsWith("#")) {
+                continue;
+            }
+
+            String[] fields = line.split("\\s+");
+            if (fields.length != 2) {
+                throw new IOException("Update '" + line + "' should be a road id and a weight");
+            }
+            batch.add(fields[0], fields[1]);
+        }
+
+        return (batch.size() > 0) ? batch : null;
+    }
+
+    /*
+        Add one update to the batch.
+        @param: value   -   miles, "x" and a multiplier, "closed" or "open"
+    */
+    public void add(String road, String value) throws IOException {
+        int r = map.indexOfRoad(road);
+        if (r < 0) {
+            throw new IllegalArgumentException("'" + road + "' is not a road on the map");
+        }
+
+        double weight;
+        try {
+            if (value.equalsIgnoreCase("closed")) {
+                weight = Graph.CLOSED;
+            }
+            else if (value.equalsIgnoreCase("open")) {
+                weight = map.getLoadedWeight(r);
+            }
+            else if (value.startsWith("x")) {
+                weight = map.getLoadedWeight(r) * Double.parseDouble(value.substring(1));
+            }
+            else {
+                weight = Double.parseDouble(value);
+            }
+        }
+        catch (NumberFormatException e) {
+            throw new IOException("'" + value + "' is not a weight for road " + road);
+        }
+        if (!(weight >= 0)) {
+            throw new IOException("Road " + road + " cannot weigh " + value);
+        }
+
+        roads.add(r);
+        weights.add(weight);
+    }
+
+    /*
+        Apply every update of the batch to the map at once.
+    */
+    public void apply() {
+        int[] r = roads.toArray();
+        double[] w = weights.toArray();
+
+        // updateRoads() locks the map too, so no other update comes
+        // between the comparison and this one
+        synchronized (map) {
+            for (int i = 0; i < r.length; i++) {
+                if (w[i] < map.getRoadWeight(r[i])) {
+                    lowered = true;
+                }
+            }
+            map.updateRoads(r, w);
+        }
+    }
+
+    /*
+        Get methods for different parameters.
+    */
+
+    public int size() {
+        return roads.size();
+    }
+
+    public int[] getRoads() {
+        return roads.toArray();
+    }
+
+    /*
+        Returns true if the batch made some road shorter (or reopened
+        it), after which any route may have a shorter alternative. If it
+        only made roads longer, only routes along them can change.
+    */
+    public boolean lowersWeights() {
+        return lowered;
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ *  @file   Route.java
+ *  @brief  Class to represent the result of a shortest path query as
+ *          compact arrays of vertex indices and cumulative distances.
+ *  @author Mustafa Siddiqui
+ *  @date   10/18/2026
+ */
+
+public class Route {
+    // vertices on the path from start to end
+    private int[] vertices;
+
+    // distance travelled from the start when each vertex is reached
+    private double[] distances;
+
+    // number of vertices the search settled to find this route
+    private int settled = 0;
+
+    /*
+        Constructor for the Route class.
+        @param: vertices    -   path from start to end
+        @param: distances   -   cumulative distance at each vertex
+    */
+    public Route(int[] vertices, double[] distances) {
+        this.vertices = vertices;
+        this.distances = distances;
+    }
+
+    /*
+        Build a route by following the parent pointers of a finished
+        search from the end vertex back to the start.
+    */
+    static Route fromSearch(SearchContext ctx, int end) {
+        int length = 0;
+        for (int v = end; v != -1; v = ctx.getParent(v)) {
+            length++;
+        }
+
+        int[] path = new int[length];
+        double[] dist = new double[length];
+        for (int v = end, i = length - 1; v != -1; v = ctx.getParent(v), i--) {
+            path[i] = v;
+            dist[i] = ctx.getDistance(v);
+        }
+
+        Route route = new Route(path, dist);
+        route.setSettled(ctx.getSettledCount());
+        return route;
+    }
+
+    void setSettled(int count) {
+        settled = count;
+    }
+
+    /*
+        Get methods for different parameters.
+    */
+
+    public int getStart() {
+        return vertices[0];
+    }
+
+    public int getEnd() {
+        return vertices[vertices.length - 1];
+    }
+
+    public double getDistance() {
+        return distances[distances.length - 1];
+    }
+
+    // number of roads travelled
+    public int getHops() {
+        return vertices.length - 1;
+    }
+
+    public int getSettled() {
+        return settled;
+    }
+
+    public int[] getVertices() {
+        return vertices;
+    }
+
+    public double[] getDistances() {
+        return distances;
+    }
+}
@@ -0,0 +1,223 @@
+/**
+ *  @file   RouteCache.java
+ *  @brief  Class to keep the routes of recently asked start/end pairs so
+ *          repeated queries skip the search. The cache is bounded and
+ *          split into stripes, each a small LRU map with its own lock,
+ *          so threads asking for different pairs rarely wait on each
+ *          other. Hits, misses and evictions are counted for sizing.
+ *  @author Mustafa Siddiqui
+ *  @date   10/18/2026
+ */
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class RouteCache {
+    // number of stripes, a power of two
+    private static final int STRIPES = 16;
+
+    // stored for pairs with no route, so those are not searched again
+    private static final Route NO_ROUTE = new Route(new int[0], new double[0]);
+
+    /*
+        Finds the route of a pair on a miss.
+    */
+    public interface Loader {
+        Route find(int start, int end);
+    }
+
+    /*
+        One stripe: a map in access order that drops its least recently
+        used entry once it holds more than its share of the capacity.
+    */
+    private class Stripe extends LinkedHashMap<Long, Route> {
+        private static final long serialVersionUID = 1L;
+
+        private int capacity;
+
+        Stripe(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Route> eldest) {
+            if (size() > capacity) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private Stripe[] stripes = new Stripe[STRIPES];
+    private int capacity;
+
+    /*
+        Bumped by invalidate(), so a route found from the old graph is not
+        stored after the cache was cleared.
+    */
+    private AtomicLong generation = new AtomicLong();
+
+    private AtomicLong hits = new AtomicLong();
+    private AtomicLong misses = new AtomicLong();
+    private AtomicLong evictions = new AtomicLong();
+
+    /*
+        Constructor for the RouteCache class.
+        @param: capacity    -   most routes kept; each stripe keeps an
+                                equal share, so eviction is LRU within a
+                                stripe rather than over the whole cache
+    */
+    public RouteCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be positive");
+        }
+
+        this.capacity = capacity;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe((capacity + STRIPES - 1) / STRIPES);
+        }
+    }
+
+    /*
+        Returns the route from start to end, from the cache if it is
+        there and from the loader otherwise. Two threads missing the same
+        pair at once may both search it; the later result wins.
+        @return: the route, or null if end cannot be reached from start
+    */
+    public Route get(int start, int end, Loader loader) {
+        long key = ((long)start << 32) | (end & 0xffffffffL);
+        Stripe stripe = stripeOf(key);
+
+        Route route;
+        synchronized (stripe) {
+            route = stripe.get(key);
+        }
+        if (route != null) {
+            hits.incrementAndGet();
+            return (route == NO_ROUTE) ? null : route;
+        }
+
+        misses.incrementAndGet();
+        long seen = generation.get();
+        route = loader.find(start, end);
+
+        synchronized (stripe) {
+            if (generation.get() == seen) {
+                stripe.put(key, (route == null) ? NO_ROUTE : route);
+            }
+        }
+
+        return route;
+    }
+
+    /*
+        Drop every cached route. Has to be called whenever the graph's
+        roads or weights change.
+    */
+    public void invalidate() {
+        generation.incrementAndGet();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+    }
+
+    /*
+        Drop the cached routes that go along any of the given roads, for
+        after those roads were made longer or closed. Every other route
+        is still a shortest one, since no path got shorter, and pairs
+        with no route still have none. After a road was made shorter
+        invalidate() has to be used instead.
+    */
+    public void invalidateRoads(Graph map, int[] roads) {
+        generation.incrementAndGet();
+
+        // the ends of every changed road, in both orders
+        HashSet<Long> changed = new HashSet<Long>();
+        for (int r : roads) {
+            int a = map.getRoadStart(r);
+            int b = map.getRoadEnd(r);
+            changed.add(((long)a << 32) | (b & 0xffffffffL));
+            changed.add(((long)b << 32) | (a & 0xffffffffL));
+        }
+
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.values().removeIf(route -> {
+                    int[] path = route.getVertices();
+                    for (int i = 1; i < path.length; i++) {
+                        if (changed.contains(((long)path[i - 1] << 32) | (path[i] & 0xffffffffL))) {
+                            return true;
+                        }
+                    }
+                    return false;
+                });
+            }
+        }
+    }
+
+    /*
+        Helper method to pick a stripe, mixing the key so pairs sharing a
+        start still spread over the stripes.
+    */
+    private Stripe stripeOf(long key) {
+        long mixed = key * 0x9e3779b97f4a7c15L;
+        return stripes[(int)(mixed >>> 60) & (STRIPES - 1)];
+    }
+
+    /*
+        Returns the number of routes cached.
+    */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+
+        return size;
+    }
+
+    /*
+        Returns the fraction of lookups answered from the cache.
+    */
+    public double hitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return (total == 0) ? 0 : (double)h / total;
+    }
+
+    /*
+        Returns a one line summary of the cache counters.
+    */
+    public String summary() {
+        return String.format("%d/%d routes, %d hits, %d misses (%.1f%% hit rate), %d evictions", size(), capacity,
+                                hits.get(), misses.get(), 100 * hitRate(), evictions.get());
+    }
+
+    /*
+        Get methods for different parameters.
+    */
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+}
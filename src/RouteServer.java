@@ -0,0 +1,532 @@
+/**
+ *  @file   RouteServer.java
+ *  @brief  Class to serve routing queries over HTTP from a map loaded
+ *          once, using the HTTP server built into the JDK. Every request
+ *          gets its own search state from the graph's context pool,
+ *          routes can be kept in a RouteCache, and the latency of every
+ *          endpoint is recorded for /metrics.
+ *
+ *          GET /route?from=...&to=...      shortest route, ends are ids
+ *                                          or "latitude,longitude"
+ *          GET /nearest?lat=...&lon=...[&k=...]
+ *                                          nearest intersections and road
+ *          GET /mst-stats                  minimum spanning tree totals
+ *          GET /metrics                    request counts and latencies
+ *          POST /updates                   change road weights, the body
+ *                                          in the RoadUpdates format
+ *  @author Mustafa Siddiqui
+ *  @date   10/18/2026
+ */
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class RouteServer {
+    // most intersections /nearest returns
+    private static final int MAX_NEAREST = 100;
+
+    private Graph map;
+    private SpatialIndex index;
+
+    // how routes are found, as for -directions; replaced when road
+    // weights are updated
+    private volatile ContractionHierarchy hierarchy;
+
+    // true if the server was given a hierarchy, which is then rebuilt in
+    // the background after road updates; the thread doing it, if any
+    private boolean keepsHierarchy;
+    private Thread rebuilder;
+    private AtomicLong hierarchyRebuilds = new AtomicLong();
+    private volatile Heuristic h;
+    private volatile BidirectionalSearch bidirectional;
+
+    // routes of pairs asked before, or null to search every request
+    private RouteCache cache;
+
+    // computed on the first /mst-stats request after a weight update
+    private String spanningTreeStats;
+
+    // road updates applied
+    private AtomicLong updates = new AtomicLong();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    // latency of every endpoint, and requests that failed
+    private LinkedHashMap<String, LatencyHistogram> latencies = new LinkedHashMap<String, LatencyHistogram>();
+    private AtomicLong clientErrors = new AtomicLong();
+    private AtomicLong serverErrors = new AtomicLong();
+    private long startTime;
+
+    /*
+        A request that cannot be answered, with the status to send back.
+    */
+    private static class RequestException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        private int status;
+
+        RequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    /*
+        Answer to one request as a JSON document.
+        @param: body    -   the request body, null for GET requests
+    */
+    private interface Endpoint {
+        String handle(Map<String, String> query, BufferedReader body) throws RequestException, IOException;
+    }
+
+    /*
+        Constructor for the RouteServer class.
+        @param: map             -   graph to serve
+        @param: hierarchy       -   contraction hierarchy of the map, or null
+        @param: h               -   heuristic for A*, or null for Dijkstra
+        @param: bidirectional   -   search from both ends at once
+    */
+    public RouteServer(Graph map, ContractionHierarchy hierarchy, Heuristic h, boolean bidirectional) {
+        map.freeze();
+        this.map = map;
+        this.index = new SpatialIndex(map);
+        this.hierarchy = hierarchy;
+        this.keepsHierarchy = (hierarchy != null);
+        this.h = h;
+        this.bidirectional = bidirectional ? new BidirectionalSearch(map, h) : null;
+    }
+
+    /*
+        Start serving on a port of every local address.
+        @param: port    -   port to listen on, 0 for any free port
+    */
+    public void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        executor = newExecutor();
+        server.setExecutor(executor);
+
+        addEndpoint("/route", "GET", (query, body) -> route(query));
+        addEndpoint("/nearest", "GET", (query, body) -> nearest(query));
+        addEndpoint("/mst-stats", "GET", (query, body) -> spanningTreeStats());
+        addEndpoint("/metrics", "GET", (query, body) -> metrics());
+        addEndpoint("/updates", "POST", (query, body) -> updates(body));
+
+        startTime = System.nanoTime();
+        server.start();
+    }
+
+    /*
+        Stop serving, letting requests in progress finish for up to a
+        second.
+    */
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    public void setCache(RouteCache cache) {
+        this.cache = cache;
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /*
+        Returns an executor that runs every request on its own virtual
+        thread. Virtual threads only exist from Java 21, so they are
+        looked up by reflection and a pool of platform threads is used on
+        older JDKs.
+    */
+    static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(Math.max(4, 2 * Runtime.getRuntime().availableProcessors()));
+        }
+    }
+
+    /*
+        Returns true if requests run on virtual threads.
+    */
+    public boolean usesVirtualThreads() {
+        return !(executor instanceof ThreadPoolExecutor);
+    }
+
+    /*
+        Helper method to register an endpoint, timing every request and
+        turning failures into JSON error responses.
+    */
+    private void addEndpoint(String path, String method, Endpoint endpoint) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        latencies.put(path, histogram);
+
+        server.createContext(path, exchange -> {
+            long requestStart = System.nanoTime();
+            int status = 200;
+            String body;
+            try {
+                if (!exchange.getRequestMethod().equals(method)) {
+                    throw new RequestException(405, "Only " + method + " is supported");
+                }
+                if (!exchange.getRequestURI().getPath().equals(path)) {
+                    throw new RequestException(404, "Unknown path " + exchange.getRequestURI().getPath());
+                }
+                BufferedReader request = method.equals("GET") ? null :
+                    new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+                body = endpoint.handle(parseQuery(exchange.getRequestURI().getRawQuery()), request);
+            }
+            catch (RequestException e) {
+                clientErrors.incrementAndGet();
+                status = e.status;
+                body = "{\"error\":" + quote(e.getMessage()) + "}";
+            }
+            catch (RuntimeException e) {
+                serverErrors.incrementAndGet();
+                status = 500;
+                body = "{\"error\":" + quote(String.valueOf(e)) + "}";
+            }
+
+            send(exchange, status, body);
+            histogram.record(System.nanoTime() - requestStart);
+        });
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /*
+        GET /route?from=...&to=...: the route with its length in miles
+        and every intersection on it.
+    */
+    private String route(Map<String, String> query) throws RequestException {
+        int start = endpoint(query, "from");
+        int end = endpoint(query, "to");
+
+        Route route = (cache == null) ? search(start, end) : cache.get(start, end, this::search);
+        if (route == null) {
+            throw new RequestException(404, "No route from " + map.getID(start) + " to " + map.getID(end));
+        }
+
+        StringBuilder out = new StringBuilder();
+        out.append("{\"from\":").append(quote(map.getID(start)));
+        out.append(",\"to\":").append(quote(map.getID(end)));
+        out.append(",\"miles\":").append(route.getDistance());
+        out.append(",\"hops\":").append(route.getHops());
+        out.append(",\"settled\":").append(route.getSettled());
+        out.append(",\"path\":[");
+        int[] vertices = route.getVertices();
+        for (int i = 0; i < vertices.length; i++) {
+            out.append((i == 0) ? "" : ",");
+            appendIntersection(out, vertices[i]);
+            out.append('}');
+        }
+        return out.append("]}").toString();
+    }
+
+    /*
+        Find a route with the search the server was set up with.
+    */
+    private Route search(int start, int end) {
+        ContractionHierarchy ch = hierarchy;
+        if (ch != null) {
+            return ch.shortestPath(start, end);
+        }
+        BidirectionalSearch search = bidirectional;
+        if (search != null) {
+            return search.shortestPath(start, end);
+        }
+        return map.shortestPath(start, end, h);
+    }
+
+    /*
+        POST /updates: apply the batches of road updates in the body,
+        answering with the number of roads changed.
+    */
+    private String updates(BufferedReader body) throws RequestException, IOException {
+        int roads = 0;
+        int batches = 0;
+        try {
+            RoadUpdates batch;
+            while ((batch = RoadUpdates.read(map, body)) != null) {
+                applyUpdates(batch);
+                roads += batch.size();
+                batches++;
+            }
+        }
+        catch (IllegalArgumentException e) {
+            throw new RequestException(400, e.getMessage() + " (" + batches + " earlier batch(es) were applied)");
+        }
+        catch (IOException e) {
+            throw new RequestException(400, e.getMessage() + " (" + batches + " earlier batch(es) were applied)");
+        }
+
+        return "{\"roads\":" + roads + ",\"batches\":" + batches + ",\"weightVersion\":" + map.getWeightVersion() + "}";
+    }
+
+    /*
+        Apply a batch of road updates to the map and bring the searches
+        up to date: the contraction hierarchy is dropped, since its
+        shortcuts stand for the old weights, and rebuilt in the background
+        while queries use the searches below; the straight-line heuristic
+        is rescaled if a road got shorter than its length; landmarks are
+        kept while every road is at least as long as when they were
+        computed; and only the cached routes along the changed roads are
+        dropped, unless a road got shorter. The cache is updated last, so
+        a route found from the old weights while this runs is not kept.
+    */
+    public synchronized void applyUpdates(RoadUpdates batch) {
+        batch.apply();
+        hierarchy = null;
+        if (keepsHierarchy && rebuilder == null) {
+            rebuilder = new Thread(this::rebuildHierarchy, "hierarchy-rebuild");
+            rebuilder.setDaemon(true);
+            rebuilder.start();
+        }
+
+        Heuristic current = h;
+        if (current instanceof ChordHeuristic || (current instanceof Landmarks && !((Landmarks)current).isLowerBound(map))) {
+            current = map.getChordHeuristic();
+        }
+        h = current;
+        if (bidirectional != null) {
+            bidirectional = new BidirectionalSearch(map, current);
+        }
+
+        spanningTreeStats = null;
+        if (cache != null) {
+            if (batch.lowersWeights()) {
+                cache.invalidate();
+            }
+            else {
+                cache.invalidateRoads(map, batch.getRoads());
+            }
+        }
+        updates.addAndGet(batch.size());
+    }
+
+    /*
+        Build a new contraction hierarchy and swap it in, building again if
+        more updates came in meanwhile. The check and the swap are done
+        under the same lock as applyUpdates(), so a hierarchy for old
+        weights is never served.
+    */
+    private void rebuildHierarchy() {
+        while (true) {
+            ContractionHierarchy ch = new ContractionHierarchy(map);
+            synchronized (this) {
+                if (ch.isCurrent()) {
+                    hierarchy = ch;
+                    rebuilder = null;
+                    hierarchyRebuilds.incrementAndGet();
+                    return;
+                }
+            }
+        }
+    }
+
+    /*
+        Returns "current" if queries use a contraction hierarchy for the
+        current weights, "rebuilding" while one is being built after road
+        updates, and "none" if the server was started without one.
+    */
+    public synchronized String hierarchyState() {
+        return (hierarchy != null) ? "current" : (rebuilder != null ? "rebuilding" : "none");
+    }
+
+    /*
+        GET /nearest?lat=...&lon=...[&k=...]: the k (default 1) nearest
+        intersections and the nearest road, with distances in miles.
+    */
+    private String nearest(Map<String, String> query) throws RequestException {
+        double lat = number(query, "lat");
+        double lon = number(query, "lon");
+        int k = query.containsKey("k") ? (int)number(query, "k") : 1;
+        if (k < 1 || k > MAX_NEAREST) {
+            throw new RequestException(400, "k must be between 1 and " + MAX_NEAREST);
+        }
+
+        StringBuilder out = new StringBuilder("{\"intersections\":[");
+        int[] nearest = index.nearest(lat, lon, k);
+        for (int i = 0; i < nearest.length; i++) {
+            out.append((i == 0) ? "" : ",");
+            appendIntersection(out, nearest[i]);
+            out.append(",\"miles\":").append(Edge.haversine(lat, lon, map.getLatitude(nearest[i]), map.getLongitude(nearest[i])));
+            out.append('}');
+        }
+        out.append("],\"road\":");
+
+        int road = index.nearestRoad(lat, lon);
+        if (road < 0) {
+            out.append("null");
+        }
+        else {
+            out.append("{\"id\":").append(quote(map.getRoadID(road)));
+            out.append(",\"miles\":").append(index.distanceToRoad(road, lat, lon));
+            out.append(",\"fraction\":").append(index.fractionAlongRoad(road, lat, lon)).append('}');
+        }
+        return out.append('}').toString();
+    }
+
+    /*
+        GET /mst-stats: size and length of the minimum spanning forest,
+        computed once on the first request.
+    */
+    private synchronized String spanningTreeStats() {
+        if (spanningTreeStats == null) {
+            long computeStart = System.nanoTime();
+            int[] tree = MinSpanningTree.kruskal(map);
+            double miles = 0;
+            for (int r : tree) {
+                miles += map.getRoadWeight(r);
+            }
+
+            spanningTreeStats = "{\"intersections\":" + map.vertexCount() + ",\"roads\":" + tree.length +
+                                ",\"components\":" + (map.vertexCount() - tree.length) + ",\"miles\":" + miles +
+                                ",\"computeMillis\":" + (System.nanoTime() - computeStart) / 1e6 + "}";
+        }
+
+        return spanningTreeStats;
+    }
+
+    /*
+        GET /metrics: requests served and latency percentiles per
+        endpoint in milliseconds, and error counts.
+    */
+    private String metrics() {
+        StringBuilder out = new StringBuilder();
+        out.append("{\"uptimeSeconds\":").append((System.nanoTime() - startTime) / 1e9);
+        out.append(",\"virtualThreads\":").append(usesVirtualThreads());
+        out.append(",\"clientErrors\":").append(clientErrors.get());
+        out.append(",\"serverErrors\":").append(serverErrors.get());
+        out.append(",\"roadUpdates\":").append(updates.get());
+        out.append(",\"weightVersion\":").append(map.getWeightVersion());
+        out.append(",\"hierarchy\":").append(quote(hierarchyState()));
+        out.append(",\"hierarchyRebuilds\":").append(hierarchyRebuilds.get());
+        if (cache != null) {
+            out.append(",\"cache\":{\"size\":").append(cache.size()).append(",\"capacity\":").append(cache.getCapacity());
+            out.append(",\"hits\":").append(cache.getHits()).append(",\"misses\":").append(cache.getMisses());
+            out.append(",\"evictions\":").append(cache.getEvictions()).append(",\"hitRate\":").append(cache.hitRate()).append('}');
+        }
+        out.append(",\"endpoints\":{");
+        boolean first = true;
+        for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+            LatencyHistogram l = entry.getValue();
+            out.append(first ? "" : ",").append(quote(entry.getKey()));
+            out.append(String.format(":{\"count\":%d,\"meanMillis\":%.3f,\"p50Millis\":%.3f,\"p90Millis\":%.3f," +
+                                        "\"p99Millis\":%.3f,\"maxMillis\":%.3f}", l.count(), l.mean() / 1e6,
+                                        l.percentile(0.50) / 1e6, l.percentile(0.90) / 1e6, l.percentile(0.99) / 1e6,
+                                        l.max() / 1e6));
+            first = false;
+        }
+        return out.append("}}").toString();
+    }
+
+    /*
+        Helper methods to read request parameters.
+    */
+
+    private static Map<String, String> parseQuery(String raw) {
+        HashMap<String, String> query = new HashMap<String, String>();
+        if (raw == null) {
+            return query;
+        }
+
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = (eq < 0) ? pair : pair.substring(0, eq);
+            String value = (eq < 0) ? "" : pair.substring(eq + 1);
+            query.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+
+        return query;
+    }
+
+    private static String parameter(Map<String, String> query, String name) throws RequestException {
+        String value = query.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new RequestException(400, "Missing parameter '" + name + "'");
+        }
+
+        return value;
+    }
+
+    private static double number(Map<String, String> query, String name) throws RequestException {
+        String value = parameter(query, name);
+        try {
+            return Double.parseDouble(value);
+        }
+        catch (NumberFormatException e) {
+            throw new RequestException(400, "Parameter '" + name + "' is not a number: " + value);
+        }
+    }
+
+    /*
+        Look up a route end given as an intersection id or as a
+        "latitude,longitude" pair snapped onto the nearest road.
+    */
+    private int endpoint(Map<String, String> query, String name) throws RequestException {
+        String text = parameter(query, name);
+        int v = map.indexOf(text);
+        double[] point = Main.parseCoordinates(text);
+        if (v < 0 && point != null) {
+            v = index.snap(point[0], point[1]);
+        }
+        if (v < 0) {
+            throw new RequestException(404, "'" + text + "' is not an intersection on the map");
+        }
+
+        return v;
+    }
+
+    /*
+        Helper methods to write JSON.
+    */
+
+    // leaves the object open for more fields
+    private void appendIntersection(StringBuilder out, int v) {
+        out.append("{\"id\":").append(quote(map.getID(v)));
+        out.append(",\"lat\":").append(map.getLatitude(v));
+        out.append(",\"lon\":").append(map.getLongitude(v));
+    }
+
+    static String quote(String text) {
+        StringBuilder out = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            }
+            else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int)c));
+            }
+            else {
+                out.append(c);
+            }
+        }
+
+        return out.append('"').toString();
+    }
+}
@@ -0,0 +1,138 @@
+/**
+ *  @file   SearchContext.java
+ *  @brief  Class to hold the per-query state of a shortest path search
+ *          (distance, parent and settled flags) so that a loaded graph
+ *          can answer any number of queries, one context per thread.
+ *  @author Mustafa Siddiqui
+ *  @date   10/18/2026
+ */
+
+import java.util.Arrays;
+
+public class SearchContext {
+    // per-vertex search state, only valid where the stamp matches
+    private double[] distance;
+    private int[] parent;
+    private int[] reachedStamp;
+    private int[] settledStamp;
+
+    // stamp of the current search, bumped by reset()
+    private int generation = 1;
+
+    // number of vertices settled and edges scanned by the current search
+    private int settledCount = 0;
+    private long relaxedCount = 0;
+
+    // minimum priority queue of reached but unsettled vertices
+    private IndexedHeap queue;
+
+    /*
+        Constructor for the SearchContext class.
+        @param: vertexCount -   number of vertices in the graph searched
+    */
+    public SearchContext(int vertexCount) {
+        distance = new double[vertexCount];
+        parent = new int[vertexCount];
+        reachedStamp = new int[vertexCount];
+        settledStamp = new int[vertexCount];
+        queue = new IndexedHeap(vertexCount);
+    }
+
+    /*
+        Forget the previous search in O(1) by moving to a new generation.
+        The stamp arrays are only cleared when the generation counter
+        wraps around.
+    */
+    public void reset() {
+        queue.clear();
+        settledCount = 0;
+        relaxedCount = 0;
+
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(reachedStamp, 0);
+            Arrays.fill(settledStamp, 0);
+            generation = 0;
+        }
+        generation++;
+    }
+
+    /*
+        Returns the number of vertices this context can hold.
+    */
+    public int capacity() {
+        return distance.length;
+    }
+
+    /*
+        Returns the number of vertices settled by the current search.
+    */
+    public int getSettledCount() {
+        return settledCount;
+    }
+
+    /*
+        Returns the number of edges scanned from settled vertices by the
+        current search.
+    */
+    public long getRelaxedCount() {
+        return relaxedCount;
+    }
+
+    /*
+        Returns true if the vertex has been given a distance in this search.
+    */
+    public boolean isReached(int v) {
+        return reachedStamp[v] == generation;
+    }
+
+    /*
+        Returns true if the distance of the vertex is final in this search.
+    */
+    public boolean isSettled(int v) {
+        return settledStamp[v] == generation;
+    }
+
+    /*
+        Returns the tentative distance of the vertex, or infinity if it
+        has not been reached in this search.
+    */
+    public double getDistance(int v) {
+        return (reachedStamp[v] == generation) ? distance[v] : Double.POSITIVE_INFINITY;
+    }
+
+    /*
+        Returns the parent of the vertex on its current shortest path,
+        or -1 for the source and for vertices not reached.
+    */
+    public int getParent(int v) {
+        return (reachedStamp[v] == generation) ? parent[v] : -1;
+    }
+
+    /*
+        Set the tentative distance and parent of a vertex.
+    */
+    void update(int v, double d, int p) {
+        distance[v] = d;
+        parent[v] = p;
+        reachedStamp[v] = generation;
+    }
+
+    /*
+        Mark the distance of a vertex as final.
+    */
+    void settle(int v) {
+        settledStamp[v] = generation;
+        settledCount++;
+    }
+
+    /*
+        Count the edges scanned out of a settled vertex.
+    */
+    void relaxed(int edges) {
+        relaxedCount += edges;
+    }
+
+    IndexedHeap getQueue() {
+        return queue;
+    }
+}
@@ -0,0 +1,467 @@
+/**
+ *  @file   ShardCoordinator.java
+ *  @brief  Class to answer shortest path queries over a map split by
+ *          Partitioner, with every shard held by a ShardWorker process.
+ *          The coordinator only keeps the overlay graph: the boundary
+ *          intersections, the roads between shards, and for every shard
+ *          the distances between its boundary intersections. Any shortest
+ *          path is a run of paths inside shards joined by roads between
+ *          them, so a query asks the shards of its two ends for their
+ *          distances to their boundary, runs Dijkstra's algorithm on the
+ *          overlay, and asks the shards along the way for the paths
+ *          inside them.
+ *
+ *          java ShardCoordinator map.shards start end [start end ...]
+ *  @author Mustafa Siddiqui
+ *  @date   10/18/2026
+ */
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+public class ShardCoordinator implements AutoCloseable {
+    /*
+        Result of a sharded query: the route's length, its intersections
+        and the shard every one of them is in.
+    */
+    public static class ShardRoute {
+        private double distance;
+        private String[] intersections;
+        private int[] shards;
+
+        ShardRoute(double distance, String[] intersections, int[] shards) {
+            this.distance = distance;
+            this.intersections = intersections;
+            this.shards = shards;
+        }
+
+        public double getDistance() {
+            return distance;
+        }
+
+        public String[] getIntersections() {
+            return intersections;
+        }
+
+        public int[] getShards() {
+            return shards;
+        }
+
+        /*
+            Returns the number of distinct shards the route passes through.
+        */
+        public int shardCount() {
+            return (int)Arrays.stream(shards).distinct().count();
+        }
+    }
+
+    /*
+        Connection to one worker process.
+    */
+    private static class Shard {
+        Process process;
+        Socket socket;
+        BufferedReader in;
+        PrintWriter out;
+
+        // overlay vertices of the shard's boundary, in the worker's order
+        int[] boundary;
+
+        String[] request(String line) throws IOException {
+            out.print(line + "\n");
+            out.flush();
+            return readLine();
+        }
+
+        String[] readLine() throws IOException {
+            String answer = in.readLine();
+            if (answer == null) {
+                throw new IOException("Shard worker closed the connection");
+            }
+            if (answer.startsWith("ERROR")) {
+                throw new IOException("Shard worker: " + answer.substring(6));
+            }
+            return answer.split("\t");
+        }
+    }
+
+    private ArrayList<String[]> shardFiles = new ArrayList<String[]>();
+    private Shard[] shards;
+
+    // overlay vertices: boundary intersections by id, with their shards
+    private HashMap<String, Integer> overlayIndex = new HashMap<String, Integer>();
+    private ArrayList<String> overlayIds = new ArrayList<String>();
+    private IntList overlayShard = new IntList();
+
+    /*
+        Overlay edges while they are collected, then in CSR form with two
+        extra vertices for the ends of a query: n is the start and n + 1
+        the end. Edges between vertices of the same shard are paths inside
+        it, the rest are roads between shards.
+    */
+    private IntList edgeFrom = new IntList();
+    private IntList edgeTo = new IntList();
+    private DoubleList edgeWeight = new DoubleList();
+    private int[] offsets;
+    private int[] targets;
+    private double[] weights;
+    private long buildNanos;
+
+    /*
+        Constructor for the ShardCoordinator class. Reads the manifest;
+        start() launches the workers.
+        @param: manifest    -   prefix.shards file written by Partitioner
+    */
+    public ShardCoordinator(String manifest) throws IOException {
+        String directory = new File(manifest).getAbsoluteFile().getParent();
+
+        try (BufferedReader in = new BufferedReader(new FileReader(manifest))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                String[] fields = line.split("\t");
+                if (fields[0].equals("shard") && fields.length == 3) {
+                    shardFiles.add(new String[] {new File(directory, fields[1]).getPath(),
+                                                 new File(directory, fields[2]).getPath()});
+                }
+                else if (fields[0].equals("cut") && fields.length == 5) {
+                    int a = overlayVertex(fields[2]);
+                    int b = overlayVertex(fields[3]);
+                    double w = Double.parseDouble(fields[4]);
+                    addEdge(a, b, w);
+                    addEdge(b, a, w);
+                }
+                else {
+                    throw new IOException("Bad line in " + manifest + ": " + line);
+                }
+            }
+        }
+    }
+
+    /*
+        Launch a worker process for every shard, connect to them, and
+        build the overlay from their boundary distances. Workers load
+        their shards in parallel.
+    */
+    public void start() throws IOException {
+        long startTime = System.nanoTime();
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        String classPath = System.getProperty("java.class.path");
+
+        shards = new Shard[shardFiles.size()];
+        for (int s = 0; s < shards.length; s++) {
+            ProcessBuilder builder = new ProcessBuilder(java, "-cp", classPath, "ShardWorker",
+                                                        shardFiles.get(s)[0], shardFiles.get(s)[1]);
+            builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+            shards[s] = new Shard();
+            shards[s].process = builder.start();
+        }
+
+        for (int s = 0; s < shards.length; s++) {
+            Shard shard = shards[s];
+            BufferedReader output = new BufferedReader(new InputStreamReader(shard.process.getInputStream(),
+                                                                            StandardCharsets.UTF_8));
+            String line = output.readLine();
+            if (line == null || !line.startsWith("listening ")) {
+                throw new IOException("Worker for " + shardFiles.get(s)[0] + " did not start: " + line);
+            }
+
+            shard.socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(line.substring(10)));
+            shard.in = new BufferedReader(new InputStreamReader(shard.socket.getInputStream(), StandardCharsets.UTF_8));
+            shard.out = new PrintWriter(new OutputStreamWriter(shard.socket.getOutputStream(), StandardCharsets.UTF_8));
+        }
+
+        // every shard computes its table at once, then they are read
+        for (Shard shard : shards) {
+            shard.out.print("BOUNDARY\n");
+            shard.out.flush();
+        }
+        for (int s = 0; s < shards.length; s++) {
+            Shard shard = shards[s];
+            int count = Integer.parseInt(shard.readLine()[0]);
+            String[][] rows = new String[count][];
+            shard.boundary = new int[count];
+            for (int i = 0; i < count; i++) {
+                rows[i] = shard.readLine();
+                shard.boundary[i] = overlayVertex(rows[i][0]);
+                overlayShard.set(shard.boundary[i], s);
+            }
+
+            for (int i = 0; i < count; i++) {
+                for (int j = 0; j < count; j++) {
+                    double w = Double.parseDouble(rows[i][j + 1]);
+                    if (i != j && w != Double.POSITIVE_INFINITY) {
+                        addEdge(shard.boundary[i], shard.boundary[j], w);
+                    }
+                }
+            }
+        }
+
+        buildOverlay();
+        buildNanos = System.nanoTime() - startTime;
+    }
+
+    /*
+        Find the shortest path between two intersections given by id.
+        Queries share the connections, so they run one at a time.
+        @return: the route, or null if end cannot be reached from start
+    */
+    public synchronized ShardRoute shortestPath(String start, String end) throws IOException {
+        // every shard is asked for both ends at once, so they search in
+        // parallel; only the shard holding an end answers with distances
+        for (Shard shard : shards) {
+            shard.out.print("DIST\t" + start + "\t" + end + "\nDIST\t" + end + "\n");
+            shard.out.flush();
+        }
+
+        int startShard = -1;
+        int endShard = -1;
+        String[] fromStart = null;
+        String[] toEnd = null;
+        for (int s = 0; s < shards.length; s++) {
+            String[] a = shards[s].readLine();
+            String[] b = shards[s].readLine();
+            if (a[0].equals("OK")) {
+                startShard = s;
+                fromStart = a;
+            }
+            if (b[0].equals("OK")) {
+                endShard = s;
+                toEnd = b;
+            }
+        }
+        if (startShard < 0 || endShard < 0) {
+            throw new IllegalArgumentException("'" + (startShard < 0 ? start : end) + "' is not an intersection on the map");
+        }
+
+        // Dijkstra on the overlay from the start (n) to the end (n + 1)
+        int n = overlayIds.size();
+        SearchContext ctx = new SearchContext(n + 2);
+        IndexedHeap queue = ctx.getQueue();
+        ctx.update(n, 0, -1);
+        queue.insertOrDecrease(n, 0);
+        int[] startBoundary = shards[startShard].boundary;
+
+        // distance from every boundary intersection of the end's shard
+        double[] toEndDistance = new double[n];
+        Arrays.fill(toEndDistance, Double.POSITIVE_INFINITY);
+        int[] endBoundary = shards[endShard].boundary;
+        for (int i = 0; i < endBoundary.length; i++) {
+            toEndDistance[endBoundary[i]] = Double.parseDouble(toEnd[i + 2]);
+        }
+
+        while (!queue.isEmpty()) {
+            int current = queue.poll();
+            ctx.settle(current);
+            if (current == n + 1) {
+                break;
+            }
+
+            double distance = ctx.getDistance(current);
+            if (current == n) {
+                relax(ctx, n, n + 1, Double.parseDouble(fromStart[1]));
+                for (int i = 0; i < startBoundary.length; i++) {
+                    relax(ctx, n, startBoundary[i], Double.parseDouble(fromStart[i + 2]));
+                }
+                continue;
+            }
+
+            for (int e = offsets[current]; e < offsets[current + 1]; e++) {
+                relax(ctx, current, targets[e], distance + weights[e]);
+            }
+            relax(ctx, current, n + 1, distance + toEndDistance[current]);
+        }
+
+        if (!ctx.isSettled(n + 1)) {
+            return null;
+        }
+
+        // overlay vertices from start to end, then the intersections of
+        // every piece
+        IntList overlayPath = new IntList();
+        for (int v = n + 1; v != -1; v = ctx.getParent(v)) {
+            overlayPath.add(v);
+        }
+        ArrayList<String> ids = new ArrayList<String>();
+        IntList shardOf = new IntList();
+        for (int i = overlayPath.size() - 1; i > 0; i--) {
+            int a = overlayPath.get(i);
+            int b = overlayPath.get(i - 1);
+            String from = (a == n) ? start : overlayIds.get(a);
+            String to = (b == n + 1) ? end : overlayIds.get(b);
+            int fromShard = (a == n) ? startShard : overlayShard.get(a);
+            int toShard = (b == n + 1) ? endShard : overlayShard.get(b);
+
+            if (fromShard != toShard) {
+                // a road between shards
+                if (ids.isEmpty()) {
+                    ids.add(from);
+                    shardOf.add(fromShard);
+                }
+                ids.add(to);
+                shardOf.add(toShard);
+                continue;
+            }
+
+            String[] piece = shards[fromShard].request("PATH\t" + from + "\t" + to);
+            if (!piece[0].equals("OK")) {
+                throw new IOException("Shard " + fromShard + " has no path from " + from + " to " + to);
+            }
+            for (int j = ids.isEmpty() ? 1 : 2; j < piece.length; j++) {
+                ids.add(piece[j]);
+                shardOf.add(fromShard);
+            }
+        }
+
+        return new ShardRoute(ctx.getDistance(n + 1), ids.toArray(new String[0]), shardOf.toArray());
+    }
+
+    /*
+        Stop the workers. start() may have failed partway, so shards that
+        were never launched or never connected are skipped, and every
+        process that was launched is destroyed.
+    */
+    @Override
+    public void close() {
+        if (shards == null) {
+            return;
+        }
+
+        for (Shard shard : shards) {
+            if (shard == null) {
+                continue;
+            }
+
+            if (shard.out != null) {
+                shard.out.print("QUIT\n");
+                shard.out.flush();
+            }
+            try {
+                if (shard.socket != null) {
+                    shard.socket.close();
+                }
+            }
+            catch (IOException e) {
+                // the worker is stopped below anyway
+            }
+            if (shard.process != null) {
+                shard.process.destroy();
+            }
+        }
+    }
+
+    /*
+        Get methods for different parameters.
+    */
+
+    public int getShardCount() {
+        return shardFiles.size();
+    }
+
+    public int getOverlayVertexCount() {
+        return overlayIds.size();
+    }
+
+    public int getOverlayEdgeCount() {
+        return (targets == null) ? edgeTo.size() : targets.length;
+    }
+
+    public long getBuildNanos() {
+        return buildNanos;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3 || args.length % 2 == 0) {
+            System.out.println("Usage: java ShardCoordinator map.shards start end [start end ...]");
+            System.exit(0);
+        }
+
+        try (ShardCoordinator coordinator = new ShardCoordinator(args[0])) {
+            coordinator.start();
+            System.out.printf("Started %d shards, overlay of %d intersections and %d edges built in %.1f ms\n",
+                                coordinator.getShardCount(), coordinator.getOverlayVertexCount(),
+                                coordinator.getOverlayEdgeCount(), coordinator.getBuildNanos() / 1e6);
+
+            for (int i = 1; i + 1 < args.length; i += 2) {
+                long startTime = System.nanoTime();
+                ShardRoute route = coordinator.shortestPath(args[i], args[i + 1]);
+                double millis = (System.nanoTime() - startTime) / 1e6;
+                if (route == null) {
+                    System.out.printf("No route from %s to %s (%.1f ms)\n", args[i], args[i + 1], millis);
+                    continue;
+                }
+                System.out.printf("%s -> %s: %.2f miles, %d intersections through %d shard(s) (%.1f ms)\n", args[i],
+                                    args[i + 1], route.getDistance(), route.getIntersections().length,
+                                    route.shardCount(), millis);
+                System.out.println(String.join(" -> ", route.getIntersections()));
+            }
+        }
+    }
+
+    /*
+        Helper methods to build the overlay.
+    */
+
+    private int overlayVertex(String id) {
+        Integer v = overlayIndex.get(id);
+        if (v == null) {
+            v = overlayIds.size();
+            overlayIndex.put(id, v);
+            overlayIds.add(id);
+            overlayShard.add(-1);
+        }
+
+        return v;
+    }
+
+    private void addEdge(int from, int to, double weight) {
+        edgeFrom.add(from);
+        edgeTo.add(to);
+        edgeWeight.add(weight);
+    }
+
+    private void buildOverlay() {
+        int n = overlayIds.size();
+        offsets = new int[n + 1];
+        for (int i = 0; i < edgeFrom.size(); i++) {
+            offsets[edgeFrom.get(i) + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+
+        int[] next = Arrays.copyOf(offsets, n);
+        targets = new int[edgeFrom.size()];
+        weights = new double[edgeFrom.size()];
+        for (int i = 0; i < edgeFrom.size(); i++) {
+            int slot = next[edgeFrom.get(i)]++;
+            targets[slot] = edgeTo.get(i);
+            weights[slot] = edgeWeight.get(i);
+        }
+
+        edgeFrom = null;
+        edgeTo = null;
+        edgeWeight = null;
+    }
+
+    private static void relax(SearchContext ctx, int from, int to, double distance) {
+        if (distance < ctx.getDistance(to) && !ctx.isSettled(to)) {
+            ctx.update(to, distance, from);
+            ctx.getQueue().insertOrDecrease(to, distance);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/**
+ *  @file   ShardWorker.java
+ *  @brief  Process that holds one shard written by Partitioner and
+ *          answers a ShardCoordinator over a local socket. Requests and
+ *          answers are single tab separated lines:
+ *
+ *          BOUNDARY            distances between every pair of boundary
+ *                              intersections: the count, then one line
+ *                              per intersection with its id and its row
+ *          DIST from [to]      distances from an intersection to every
+ *                              boundary intersection, and to the other
+ *                              one if it is in this shard (else Infinity)
+ *          PATH from to        the intersections of the shortest path
+ *          QUIT                close the connection
+ *
+ *          An intersection that is not in the shard gets NONE. The port is
+ *          printed as "listening <port>" once the shard is loaded, and
+ *          the worker exits when its standard input is closed, so it
+ *          does not outlive the coordinator that started it.
+ *
+ *          java ShardWorker shard.txt shard.boundary [port]
+ *  @author Mustafa Siddiqui
+ *  @date   10/18/2026
+ */
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+public class ShardWorker {
+    private Graph map;
+    private int[] boundary;
+
+    // boundary intersections marked for the one-to-many searches
+    private boolean[] isTarget;
+    private DistanceMatrix matrix;
+    private SearchContext ctx;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java ShardWorker shard.txt shard.boundary [port]");
+            System.exit(0);
+        }
+
+        // the coordinator reports a worker that never says it is listening
+        Graph shard = null;
+        try {
+            shard = Main.loadMap(args[0]);
+        }
+        catch (IOException e) {
+            System.err.println("Could not load shard '" + args[0] + "': " + e.getMessage());
+            System.exit(1);
+        }
+        ShardWorker worker = new ShardWorker(shard, args[1]);
+        ServerSocket server = new ServerSocket((args.length > 2) ? Integer.parseInt(args[2]) : 0, 50,
+                                                InetAddress.getLoopbackAddress());
+        System.out.println("listening " + server.getLocalPort());
+        System.out.flush();
+
+        Thread watchdog = new Thread(() -> {
+            try {
+                while (System.in.read() >= 0) {
+                }
+            }
+            catch (IOException e) {
+                // the coordinator is gone either way
+            }
+            System.exit(0);
+        });
+        watchdog.setDaemon(true);
+        watchdog.start();
+
+        while (true) {
+            Socket socket = server.accept();
+            Thread connection = new Thread(() -> worker.serve(socket));
+            connection.setDaemon(true);
+            connection.start();
+        }
+    }
+
+    /*
+        Constructor for the ShardWorker class.
+        @param: map             -   the shard's graph
+        @param: boundaryFile    -   ids of its boundary intersections, one
+                                    per line
+    */
+    public ShardWorker(Graph map, String boundaryFile) throws IOException {
+        map.freeze();
+        this.map = map;
+
+        IntList ids = new IntList();
+        try (BufferedReader in = new BufferedReader(new FileReader(boundaryFile))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                int v = map.indexOf(line);
+                if (v < 0) {
+                    throw new IOException("Boundary intersection '" + line + "' is not in the shard");
+                }
+                ids.add(v);
+            }
+        }
+
+        boundary = ids.toArray();
+        isTarget = new boolean[map.vertexCount()];
+        for (int v : boundary) {
+            isTarget[v] = true;
+        }
+        matrix = new DistanceMatrix(map, null, 1);
+        ctx = map.acquireContext();
+    }
+
+    /*
+        Answer the requests of one connection until it is closed.
+    */
+    void serve(Socket socket) {
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null && !line.equals("QUIT")) {
+                out.print(answer(line.split("\t")));
+                out.flush();
+            }
+        }
+        catch (IOException e) {
+            // the connection was dropped, nothing to answer
+        }
+    }
+
+    /*
+        Answer one request. Requests share the search state, so they are
+        answered one at a time; shards answer in parallel.
+        @return: the answer, ending with a newline
+    */
+    synchronized String answer(String[] request) {
+        switch (request[0]) {
+            case "BOUNDARY":
+                return boundaryTable();
+            case "DIST":
+                return (request.length < 2) ? "ERROR\tDIST needs an intersection\n" :
+                       distances(request[1], (request.length > 2) ? request[2] : null);
+            case "PATH":
+                return (request.length < 3) ? "ERROR\tPATH needs two intersections\n" : path(request[1], request[2]);
+            default:
+                return "ERROR\tUnknown request " + request[0] + "\n";
+        }
+    }
+
+    private String boundaryTable() {
+        double[][] table = matrix.compute(boundary, boundary);
+        StringBuilder out = new StringBuilder().append(boundary.length).append('\n');
+        for (int i = 0; i < boundary.length; i++) {
+            out.append(map.getID(boundary[i]));
+            for (double d : table[i]) {
+                out.append('\t').append(d);
+            }
+            out.append('\n');
+        }
+
+        return out.toString();
+    }
+
+    private String distances(String fromId, String toId) {
+        int from = map.indexOf(fromId);
+        if (from < 0) {
+            return "NONE\n";
+        }
+
+        // the other end is a target too for this search only
+        int to = (toId == null) ? -1 : map.indexOf(toId);
+        boolean extra = (to >= 0 && !isTarget[to]);
+        if (extra) {
+            isTarget[to] = true;
+        }
+        int targets = boundary.length + (extra ? 1 : 0);
+        if (targets > 0) {
+            matrix.search(from, isTarget, targets, ctx);
+        }
+        else {
+            ctx.reset();
+        }
+        if (extra) {
+            isTarget[to] = false;
+        }
+
+        StringBuilder out = new StringBuilder("OK\t");
+        out.append((to >= 0 && ctx.isSettled(to)) ? ctx.getDistance(to) : Double.POSITIVE_INFINITY);
+        for (int b : boundary) {
+            out.append('\t').append(ctx.isSettled(b) ? ctx.getDistance(b) : Double.POSITIVE_INFINITY);
+        }
+        return out.append('\n').toString();
+    }
+
+    private String path(String fromId, String toId) {
+        int from = map.indexOf(fromId);
+        int to = map.indexOf(toId);
+        if (from < 0 || to < 0 || !map.shortestPath(from, to, ctx, null)) {
+            return "NONE\n";
+        }
+
+        StringBuilder out = new StringBuilder("OK");
+        for (int v : Route.fromSearch(ctx, to).getVertices()) {
+            out.append('\t').append(map.getID(v));
+        }
+        return out.append('\n').toString();
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ *  @file   ShortestPathTree.java
+ *  @brief  Class to represent the result of a one-to-all search: every
+ *          vertex settled from a source (within a distance limit, if
+ *          there is one) with its distance and parent, nearest first.
+ *  @author Mustafa Siddiqui
+ *  @date   10/18/2026
+ */
+
+import java.util.Arrays;
+
+public class ShortestPathTree {
+    private int source;
+    private double limit;
+
+    // number of vertices in the graph searched
+    private int vertexCount;
+
+    // settled vertices in the order they were settled
+    private int[] vertices;
+    private double[] distances;
+    private int[] parents;
+
+    /*
+        Build a tree from a finished search, copying only the settled
+        vertices out of the context.
+    */
+    ShortestPathTree(int source, double limit, int vertexCount, SearchContext ctx, IntList settled) {
+        this.source = source;
+        this.limit = limit;
+        this.vertexCount = vertexCount;
+
+        vertices = settled.toArray();
+        distances = new double[vertices.length];
+        parents = new int[vertices.length];
+        for (int i = 0; i < vertices.length; i++) {
+            distances[i] = ctx.getDistance(vertices[i]);
+            parents[i] = ctx.getParent(vertices[i]);
+        }
+    }
+
+    /*
+        Returns the distance of every vertex of the graph from the
+        source, infinity for the vertices not in the tree.
+    */
+    public double[] toDistanceArray() {
+        double[] all = new double[vertexCount];
+        Arrays.fill(all, Double.POSITIVE_INFINITY);
+        for (int i = 0; i < vertices.length; i++) {
+            all[vertices[i]] = distances[i];
+        }
+
+        return all;
+    }
+
+    /*
+        Returns the parent of every vertex of the graph on its shortest
+        path from the source, -1 for the source and the vertices not in
+        the tree.
+    */
+    public int[] toParentArray() {
+        int[] all = new int[vertexCount];
+        Arrays.fill(all, -1);
+        for (int i = 0; i < vertices.length; i++) {
+            all[vertices[i]] = parents[i];
+        }
+
+        return all;
+    }
+
+    /*
+        Get methods for different parameters.
+    */
+
+    public int getSource() {
+        return source;
+    }
+
+    public double getLimit() {
+        return limit;
+    }
+
+    // number of vertices in the tree
+    public int size() {
+        return vertices.length;
+    }
+
+    // i-th nearest vertex to the source
+    public int getVertex(int i) {
+        return vertices[i];
+    }
+
+    public double getDistance(int i) {
+        return distances[i];
+    }
+
+    public int getParent(int i) {
+        return parents[i];
+    }
+}
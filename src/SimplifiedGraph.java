@@ -0,0 +1,492 @@
+/**
+ *  @file   SimplifiedGraph.java
+ *  @brief  Class to route on a smaller copy of a map in which every chain
+ *          of degree-2 intersections (which only give a road its shape)
+ *          is contracted into one weighted edge between the intersections
+ *          at its ends. The chains remember the intersections along them,
+ *          so routes are unpacked into the full list of intersections and
+ *          Canvas draws them with their real geometry. Routes may start
+ *          or end inside a chain. Islands, the intersections outside the
+ *          largest connected component, can be pruned so that queries
+ *          touching them are rejected straight away.
+ *  @author Mustafa Siddiqui
+ *  @date   10/18/2026
+ */
+
+import java.util.Arrays;
+
+public class SimplifiedGraph {
+    // graph the simplified copy was built from
+    private Graph map;
+
+    /*
+        Every chain runs from chainStart to chainEnd through the interior
+        intersections chainVertices[chainOffsets[c] .. chainOffsets[c + 1] - 1],
+        chainDistances holding how far along the chain each one is. A road
+        between two kept intersections is a chain with nothing inside.
+    */
+    private int[] chainStart;
+    private int[] chainEnd;
+    private double[] chainWeight;
+    private int[] chainOffsets;
+    private int[] chainVertices;
+    private double[] chainDistances;
+
+    // chain an interior intersection lies on and its position in
+    // chainVertices, -1 for the intersections kept
+    private int[] chainOf;
+    private int[] chainIndex;
+
+    // intersections dropped with the islands
+    private boolean[] pruned;
+
+    /*
+        Contracted graph in CSR form over the indices of the map, so the
+        map's search contexts can be used. Interior intersections have no
+        edges. edgeChain is the chain an edge follows, ~chain when it goes
+        from the chain's end to its start, and edgeSource is the
+        intersection the edge leaves, which is what a search records as
+        the parent of the one it reaches so that routes can be unpacked
+        along the right chain when two chains join the same intersections.
+    */
+    private int[] offsets;
+    private int[] targets;
+    private double[] weights;
+    private int[] edgeChain;
+    private int[] edgeSource;
+
+    // counts of the contracted graph
+    private int vertexCount;
+    private int roadCount;
+    private int prunedCount;
+    private long buildNanos;
+
+    /*
+        Constructor for the SimplifiedGraph class. Labels the components
+        of the map (see Graph.findComponents()) and contracts its chains.
+        The chains keep the weights the map has now, so a copy has to be
+        built again after Graph.updateRoads().
+        @param: map             -   graph to simplify
+        @param: pruneIslands    -   drop every intersection outside the
+                                    largest component
+    */
+    public SimplifiedGraph(Graph map, boolean pruneIslands) {
+        long startTime = System.nanoTime();
+        long statsStart = Stats.start();
+        map.freeze();
+        this.map = map;
+
+        // one set of weights for the components and the chains
+        synchronized (map) {
+            map.findComponents();
+            build(map.weights, pruneIslands);
+        }
+        Stats.end(Stats.Phase.INDEX, statsStart);
+        buildNanos = System.nanoTime() - startTime;
+    }
+
+    /*
+        Helper method to find the intersections to keep and walk every
+        chain out of them.
+    */
+    private void build(double[] w, boolean pruneIslands) {
+        int n = map.vertexCount();
+        int[] mapOffsets = map.offsets;
+        int[] mapTargets = map.targets;
+        int[] mapRoads = map.edgeRoad;
+
+        int largest = 0;
+        for (int c = 1; c < map.getComponentCount(); c++) {
+            if (map.getComponentSize(c) > map.getComponentSize(largest)) {
+                largest = c;
+            }
+        }
+
+        // an intersection is inside a chain if it has two open roads to
+        // two other intersections
+        pruned = new boolean[n];
+        boolean[] kept = new boolean[n];
+        for (int v = 0; v < n; v++) {
+            pruned[v] = pruneIslands && map.getComponent(v) != largest;
+            if (pruned[v]) {
+                prunedCount++;
+                continue;
+            }
+
+            int degree = 0;
+            int first = -1;
+            boolean simple = true;
+            for (int e = mapOffsets[v]; e < mapOffsets[v + 1]; e++) {
+                if (w[e] != Graph.CLOSED) {
+                    degree++;
+                    simple &= (mapTargets[e] != v && mapTargets[e] != first);
+                    first = mapTargets[e];
+                }
+            }
+            kept[v] = (degree != 2 || !simple);
+        }
+
+        chainOf = new int[n];
+        chainIndex = new int[n];
+        Arrays.fill(chainOf, -1);
+        Arrays.fill(chainIndex, -1);
+        boolean[] walked = new boolean[map.roadCount()];
+        IntList starts = new IntList();
+        IntList ends = new IntList();
+        DoubleList lengths = new DoubleList();
+        IntList interiorOffsets = new IntList();
+        IntList interior = new IntList();
+        DoubleList along = new DoubleList();
+        interiorOffsets.add(0);
+
+        // kept intersections first; whatever is left is a ring of
+        // degree-2 intersections, which keeps one of them
+        for (int pass = 0; pass < 2; pass++) {
+            for (int u = 0; u < n; u++) {
+                if (pruned[u] || (pass == 0 && !kept[u]) || (pass == 1 && (kept[u] || chainOf[u] >= 0))) {
+                    continue;
+                }
+                kept[u] = true;
+
+                for (int e = mapOffsets[u]; e < mapOffsets[u + 1]; e++) {
+                    if (w[e] == Graph.CLOSED || walked[mapRoads[e]]) {
+                        continue;
+                    }
+
+                    int c = starts.size();
+                    int road = mapRoads[e];
+                    int current = mapTargets[e];
+                    double length = w[e];
+                    walked[road] = true;
+                    while (!kept[current]) {
+                        chainOf[current] = c;
+                        chainIndex[current] = interior.size();
+                        interior.add(current);
+                        along.add(length);
+
+                        // leave by the other open road
+                        int next = -1;
+                        for (int f = mapOffsets[current]; f < mapOffsets[current + 1]; f++) {
+                            if (w[f] != Graph.CLOSED && mapRoads[f] != road) {
+                                next = f;
+                            }
+                        }
+                        road = mapRoads[next];
+                        walked[road] = true;
+                        length += w[next];
+                        current = mapTargets[next];
+                    }
+
+                    starts.add(u);
+                    ends.add(current);
+                    lengths.add(length);
+                    interiorOffsets.add(interior.size());
+                }
+            }
+        }
+
+        chainStart = starts.toArray();
+        chainEnd = ends.toArray();
+        chainWeight = lengths.toArray();
+        chainOffsets = interiorOffsets.toArray();
+        chainVertices = interior.toArray();
+        chainDistances = along.toArray();
+        roadCount = chainStart.length;
+        vertexCount = n - prunedCount - chainVertices.length;
+
+        // both directions of every chain, except loops back to where
+        // they start, which no shortest route goes around
+        offsets = new int[n + 1];
+        for (int c = 0; c < roadCount; c++) {
+            if (chainStart[c] != chainEnd[c]) {
+                offsets[chainStart[c] + 1]++;
+                offsets[chainEnd[c] + 1]++;
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+
+        int[] next = Arrays.copyOf(offsets, n);
+        targets = new int[offsets[n]];
+        weights = new double[offsets[n]];
+        edgeChain = new int[offsets[n]];
+        edgeSource = new int[offsets[n]];
+        for (int c = 0; c < roadCount; c++) {
+            int a = chainStart[c];
+            int b = chainEnd[c];
+            if (a == b) {
+                continue;
+            }
+
+            int e = next[a]++;
+            targets[e] = b;
+            weights[e] = chainWeight[c];
+            edgeChain[e] = c;
+            edgeSource[e] = a;
+
+            e = next[b]++;
+            targets[e] = a;
+            weights[e] = chainWeight[c];
+            edgeChain[e] = ~c;
+            edgeSource[e] = b;
+        }
+    }
+
+    /*
+        Find the shortest path between two intersections of the map using
+        a pooled search context.
+        @param: h   -   heuristic for A*, or null for Dijkstra's algorithm
+        @return: the route from start to end through every intersection
+                 along it, or null if end cannot be reached from start
+    */
+    public Route shortestPath(int start, int end, Heuristic h) {
+        SearchContext ctx = map.acquireContext();
+        try {
+            return shortestPath(start, end, ctx, h);
+        }
+        finally {
+            map.releaseContext(ctx);
+        }
+    }
+
+    public Route shortestPath(int start, int end) {
+        return shortestPath(start, end, (Heuristic) null);
+    }
+
+    /*
+        Find the shortest path between two intersections of the map. An
+        end inside a chain is reached from both ends of its chain, and two
+        ends on the same chain can also be joined along it directly.
+    */
+    public Route shortestPath(int start, int end, SearchContext ctx, Heuristic h) {
+        long startTime = Stats.start();
+        Route route = search(start, end, ctx, h);
+        Stats.endQuery(startTime, ctx, null);
+        return route;
+    }
+
+    // body of shortestPath(), which times it when stats are on
+    private Route search(int start, int end, SearchContext ctx, Heuristic h) {
+        ctx.reset();
+        if (pruned[start] || pruned[end] || !map.mayConnect(start, end)) {
+            return null;
+        }
+
+        IndexedHeap unvisited = ctx.getQueue();
+        int startChain = chainOf[start];
+        int endChain = chainOf[end];
+
+        // the start, or both ends of its chain at their distance from it
+        if (startChain < 0) {
+            seed(ctx, start, 0, end, h);
+        }
+        else {
+            seed(ctx, chainStart[startChain], along(start), end, h);
+            seed(ctx, chainEnd[startChain], chainWeight[startChain] - along(start), end, h);
+        }
+
+        // best distance found to the end, and the kept intersection it
+        // was reached through (-1 along a shared chain)
+        double best = Double.POSITIVE_INFINITY;
+        int last = -1;
+        boolean lastAtStart = false;
+        if (startChain >= 0 && startChain == endChain) {
+            best = Math.abs(along(start) - along(end));
+        }
+
+        while (!unvisited.isEmpty() && unvisited.minKey() < best) {
+            int current = unvisited.poll();
+            ctx.settle(current);
+
+            double currentDistance = ctx.getDistance(current);
+            if (current == end) {
+                best = currentDistance;
+                last = current;
+                break;
+            }
+            if (endChain >= 0 && current == chainStart[endChain] && currentDistance + along(end) < best) {
+                best = currentDistance + along(end);
+                last = current;
+                lastAtStart = true;
+            }
+            if (endChain >= 0 && current == chainEnd[endChain] &&
+                currentDistance + chainWeight[endChain] - along(end) < best) {
+                best = currentDistance + chainWeight[endChain] - along(end);
+                last = current;
+                lastAtStart = false;
+            }
+
+            ctx.relaxed(offsets[current + 1] - offsets[current]);
+            for (int e = offsets[current]; e < offsets[current + 1]; e++) {
+                int adjacent = targets[e];
+                double adjDistance = currentDistance + weights[e];
+                if (adjDistance < ctx.getDistance(adjacent)) {
+                    ctx.update(adjacent, adjDistance, e);
+                    unvisited.insertOrDecrease(adjacent, (h == null) ? adjDistance : adjDistance + h.estimate(adjacent, end));
+                }
+            }
+        }
+
+        if (best == Double.POSITIVE_INFINITY) {
+            return null;
+        }
+
+        Route route = unpack(ctx, start, end, last, lastAtStart, best);
+        route.setSettled(ctx.getSettledCount());
+        return route;
+    }
+
+    /*
+        Helper method to reach a kept intersection at a distance before
+        the search starts.
+    */
+    private void seed(SearchContext ctx, int v, double distance, int end, Heuristic h) {
+        if (distance < ctx.getDistance(v)) {
+            ctx.update(v, distance, -1);
+            ctx.getQueue().insertOrDecrease(v, (h == null) ? distance : distance + h.estimate(v, end));
+        }
+    }
+
+    /*
+        Helper method to find how far along its chain an interior
+        intersection is.
+    */
+    private double along(int v) {
+        return chainDistances[chainIndex[v]];
+    }
+
+    /*
+        Helper method to list every intersection of a route: along the
+        start's chain to the kept intersection the search started from,
+        along the chains of the edges the search took, then along the
+        end's chain from the kept intersection it was reached through.
+    */
+    private Route unpack(SearchContext ctx, int start, int end, int last, boolean lastAtStart, double total) {
+        IntList path = new IntList();
+        DoubleList dist = new DoubleList();
+
+        // both ends on one chain, joined along it
+        if (last < 0) {
+            int from = chainIndex[start];
+            int to = chainIndex[end];
+            for (int i = from; ; i += (to >= from) ? 1 : -1) {
+                path.add(chainVertices[i]);
+                dist.add(Math.abs(chainDistances[i] - chainDistances[from]));
+                if (i == to) {
+                    break;
+                }
+            }
+            return new Route(path.toArray(), dist.toArray());
+        }
+
+        // edges of the search from last back to where it started
+        IntList edges = new IntList();
+        int root = last;
+        while (ctx.getParent(root) >= 0) {
+            edges.add(ctx.getParent(root));
+            root = edgeSource[ctx.getParent(root)];
+        }
+
+        // from the start to the root along the start's chain; with a loop
+        // both ends are the root, and the side is the one it was seeded from
+        int c = chainOf[start];
+        if (c >= 0) {
+            boolean viaStart = (root == chainStart[c]) && (root != chainEnd[c] || ctx.getDistance(root) == along(start));
+            int i = chainIndex[start];
+            int stop = viaStart ? chainOffsets[c] - 1 : chainOffsets[c + 1];
+            for (; i != stop; i += viaStart ? -1 : 1) {
+                path.add(chainVertices[i]);
+                dist.add(Math.abs(chainDistances[i] - along(start)));
+            }
+        }
+        path.add(root);
+        dist.add(ctx.getDistance(root));
+
+        for (int k = edges.size() - 1; k >= 0; k--) {
+            int e = edges.get(k);
+            appendChain(path, dist, edgeChain[e], ctx.getDistance(edgeSource[e]));
+            path.add(targets[e]);
+            dist.add(ctx.getDistance(targets[e]));
+        }
+
+        // from last along the end's chain to the end
+        if (last != end) {
+            c = chainOf[end];
+            int i = lastAtStart ? chainOffsets[c] : chainOffsets[c + 1] - 1;
+            int stop = chainIndex[end];
+            double base = ctx.getDistance(last);
+            for (; ; i += lastAtStart ? 1 : -1) {
+                path.add(chainVertices[i]);
+                dist.add(base + (lastAtStart ? chainDistances[i] : chainWeight[c] - chainDistances[i]));
+                if (i == stop) {
+                    break;
+                }
+            }
+        }
+
+        return new Route(path.toArray(), dist.toArray());
+    }
+
+    /*
+        Helper method to add the interior of a chain in the direction an
+        edge follows it, ~chain being from its end to its start.
+        @param: base    -   distance of the intersection the edge leaves
+    */
+    private void appendChain(IntList path, DoubleList dist, int chain, double base) {
+        boolean reversed = (chain < 0);
+        int c = reversed ? ~chain : chain;
+        if (!reversed) {
+            for (int i = chainOffsets[c]; i < chainOffsets[c + 1]; i++) {
+                path.add(chainVertices[i]);
+                dist.add(base + chainDistances[i]);
+            }
+        }
+        else {
+            for (int i = chainOffsets[c + 1] - 1; i >= chainOffsets[c]; i--) {
+                path.add(chainVertices[i]);
+                dist.add(base + chainWeight[c] - chainDistances[i]);
+            }
+        }
+    }
+
+    /*
+        Returns the intersections and roads of the map and of the
+        simplified copy, and how many intersections were pruned.
+    */
+    public String summary() {
+        return String.format("%d -> %d intersections, %d -> %d roads (%d intersections inside chains, %d on islands pruned)",
+                                map.vertexCount(), vertexCount, map.roadCount(), roadCount, chainVertices.length, prunedCount);
+    }
+
+    /*
+        Get methods for different parameters.
+    */
+
+    // intersections kept
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    // edges, one per chain and per road between two kept intersections
+    public int roadCount() {
+        return roadCount;
+    }
+
+    public int getPrunedCount() {
+        return prunedCount;
+    }
+
+    public boolean isPruned(int v) {
+        return pruned[v];
+    }
+
+    // true if the intersection is inside a chain, not kept
+    public boolean isContracted(int v) {
+        return chainOf[v] >= 0;
+    }
+
+    public long getBuildNanos() {
+        return buildNanos;
+    }
+}
@@ -0,0 +1,429 @@
+/**
+ *  @file   SpatialIndex.java
+ *  @brief  Class to implement a uniform grid index over the intersections
+ *          and roads of a map, for k-nearest intersection lookups, road
+ *          snapping and bounding box queries by coordinate. Every cell
+ *          lists its intersections and the roads whose bounding box
+ *          overlaps it, packed in compressed sparse row arrays.
+ *  @author Mustafa Siddiqui
+ *  @date   10/18/2026
+ */
+
+import java.util.Arrays;
+
+public class SpatialIndex {
+    // average number of intersections per cell the grid is sized for
+    private static final double VERTICES_PER_CELL = 2.0;
+
+    // miles per degree of latitude
+    private static final double MILES_PER_DEGREE = Edge.EARTH_RADIUS * Math.PI / 180;
+
+    /*
+        The ring search stops once unvisited cells are this much farther
+        than the k-th best distance, making up for the flat projection
+        used to measure the distance to a cell.
+    */
+    private static final double CELL_BOUND_SLACK = 0.99;
+
+    private Graph map;
+
+    /*
+        Grid over the bounding box of the map. Longitudes are scaled by
+        the cosine of the latitude farthest from the equator, so cells are
+        roughly square and distances between cells are never overstated.
+    */
+    private double minLat;
+    private double minLong;
+    private double cosLat;
+    private double cellSize;
+    private int cols;
+    private int rows;
+
+    // intersections of cell c are cellVertices[vertexStart[c] .. vertexStart[c + 1] - 1]
+    private int[] vertexStart;
+    private int[] cellVertices;
+
+    // roads overlapping cell c are cellRoads[roadStart[c] .. roadStart[c + 1] - 1]
+    private int[] roadStart;
+    private int[] cellRoads;
+
+    /*
+        Constructor for the SpatialIndex class. Counts, prefix sums and
+        fills the cells in linear time.
+        @param: map -   graph to index, frozen if it is not already
+    */
+    public SpatialIndex(Graph map) {
+        long startTime = Stats.start();
+        map.freeze();
+        this.map = map;
+        int n = map.vertexCount();
+        int m = map.roadCount();
+
+        minLat = (n > 0) ? map.getMinLat() : 0;
+        minLong = (n > 0) ? map.getMinLong() : 0;
+        double maxLat = (n > 0) ? map.getMaxLat() : 0;
+        double maxLong = (n > 0) ? map.getMaxLong() : 0;
+        cosLat = Math.cos(Math.toRadians(Math.min(89, Math.max(Math.abs(minLat), Math.abs(maxLat)))));
+
+        double width = (maxLong - minLong) * cosLat;
+        double height = maxLat - minLat;
+        double cells = Math.max(1, n / VERTICES_PER_CELL);
+        if (width > 0 && height > 0) {
+            cellSize = Math.sqrt(width * height / cells);
+        }
+        else {
+            cellSize = Math.max(width, height) / cells;
+        }
+        if (!(cellSize > 0)) {
+            cellSize = 1;
+        }
+
+        cols = (int)Math.min(1 << 15, Math.floor(width / cellSize) + 1);
+        rows = (int)Math.min(1 << 15, Math.floor(height / cellSize) + 1);
+        cellSize = Math.max(cellSize, Math.max(width / cols, height / rows) * (1 + 1e-9));
+
+        // intersections, one cell each
+        vertexStart = new int[cols * rows + 1];
+        for (int v = 0; v < n; v++) {
+            vertexStart[cellOf(v) + 1]++;
+        }
+        prefixSum(vertexStart);
+        cellVertices = new int[n];
+        int[] next = Arrays.copyOf(vertexStart, cols * rows);
+        for (int v = 0; v < n; v++) {
+            cellVertices[next[cellOf(v)]++] = v;
+        }
+
+        // roads, in every cell their bounding box overlaps
+        roadStart = new int[cols * rows + 1];
+        int[] box = new int[4];
+        for (int r = 0; r < m; r++) {
+            roadCells(r, box);
+            for (int y = box[1]; y <= box[3]; y++) {
+                for (int x = box[0]; x <= box[2]; x++) {
+                    roadStart[y * cols + x + 1]++;
+                }
+            }
+        }
+        prefixSum(roadStart);
+        cellRoads = new int[roadStart[cols * rows]];
+        next = Arrays.copyOf(roadStart, cols * rows);
+        for (int r = 0; r < m; r++) {
+            roadCells(r, box);
+            for (int y = box[1]; y <= box[3]; y++) {
+                for (int x = box[0]; x <= box[2]; x++) {
+                    cellRoads[next[y * cols + x]++] = r;
+                }
+            }
+        }
+        Stats.end(Stats.Phase.INDEX, startTime);
+    }
+
+    /*
+        Returns the intersection closest to a point, or -1 if the map is
+        empty.
+    */
+    public int nearest(double lat, double lon) {
+        int[] result = nearest(lat, lon, 1);
+        return (result.length > 0) ? result[0] : -1;
+    }
+
+    /*
+        Returns the k intersections closest to a point, closest first.
+        Cells are visited in growing square rings around the point until
+        the ring is farther away than the k-th closest intersection found.
+        @param: lat -   latitude of the point
+        @param: lon -   longitude of the point
+        @param: k   -   number of intersections to return (fewer if the
+                        map is smaller)
+    */
+    public int[] nearest(double lat, double lon, int k) {
+        k = Math.min(k, map.vertexCount());
+        int[] best = new int[k];
+        double[] bestDistance = new double[k];
+        int found = 0;
+        if (k <= 0) {
+            return best;
+        }
+
+        int cx = column(lon);
+        int cy = row(lat);
+        for (int ring = 0; ; ring++) {
+            // k candidates already closer than anything left unvisited
+            if (found == k && bestDistance[k - 1] <= ringBound(lat, lon, cx, cy, ring)) {
+                break;
+            }
+            if (cx - ring < 0 && cy - ring < 0 && cx + ring >= cols && cy + ring >= rows) {
+                break;
+            }
+
+            for (int y = cy - ring; y <= cy + ring; y++) {
+                if (y < 0 || y >= rows) {
+                    continue;
+                }
+
+                // only the edge of the ring, the inside was visited before
+                int step = (y == cy - ring || y == cy + ring) ? 1 : Math.max(1, 2 * ring);
+                for (int x = cx - ring; x <= cx + ring; x += step) {
+                    if (x < 0 || x >= cols) {
+                        continue;
+                    }
+
+                    int c = y * cols + x;
+                    for (int i = vertexStart[c]; i < vertexStart[c + 1]; i++) {
+                        int v = cellVertices[i];
+                        double d = Edge.haversine(lat, lon, map.getLatitude(v), map.getLongitude(v));
+                        if (found < k || d < bestDistance[found - 1]) {
+                            // insertion into the sorted candidates
+                            int j = (found < k) ? found++ : k - 1;
+                            while (j > 0 && bestDistance[j - 1] > d) {
+                                best[j] = best[j - 1];
+                                bestDistance[j] = bestDistance[j - 1];
+                                j--;
+                            }
+                            best[j] = v;
+                            bestDistance[j] = d;
+                        }
+                    }
+                }
+            }
+        }
+
+        return best;
+    }
+
+    /*
+        Returns the road passing closest to a point, or -1 if the map has
+        no roads. Same ring search as nearest(), over the roads listed in
+        each cell.
+    */
+    public int nearestRoad(double lat, double lon) {
+        int best = -1;
+        double bestDistance = Double.POSITIVE_INFINITY;
+
+        int cx = column(lon);
+        int cy = row(lat);
+        for (int ring = 0; ; ring++) {
+            if (bestDistance <= ringBound(lat, lon, cx, cy, ring)) {
+                break;
+            }
+            if (cx - ring < 0 && cy - ring < 0 && cx + ring >= cols && cy + ring >= rows) {
+                break;
+            }
+
+            for (int y = cy - ring; y <= cy + ring; y++) {
+                if (y < 0 || y >= rows) {
+                    continue;
+                }
+
+                int step = (y == cy - ring || y == cy + ring) ? 1 : Math.max(1, 2 * ring);
+                for (int x = cx - ring; x <= cx + ring; x += step) {
+                    if (x < 0 || x >= cols) {
+                        continue;
+                    }
+
+                    int c = y * cols + x;
+                    for (int i = roadStart[c]; i < roadStart[c + 1]; i++) {
+                        int r = cellRoads[i];
+                        double d = distanceToRoad(r, lat, lon);
+                        if (d < bestDistance || (d == bestDistance && r < best)) {
+                            best = r;
+                            bestDistance = d;
+                        }
+                    }
+                }
+            }
+        }
+
+        return best;
+    }
+
+    /*
+        Returns the distance in miles from a point to the closest point of
+        a road, measured in a flat projection around the point.
+    */
+    public double distanceToRoad(int r, double lat, double lon) {
+        double[] p = projectOntoRoad(r, lat, lon);
+        return Math.sqrt(p[0] * p[0] + p[1] * p[1]);
+    }
+
+    /*
+        Returns how far along a road (0 at its start, 1 at its end) the
+        point of the road closest to the given point lies.
+    */
+    public double fractionAlongRoad(int r, double lat, double lon) {
+        return projectOntoRoad(r, lat, lon)[2];
+    }
+
+    /*
+        Snap a point onto the map: find the nearest road and take the end
+        of it closer along the road.
+        @return: index of the intersection, or -1 if the map has no roads
+    */
+    public int snap(double lat, double lon) {
+        int road = nearestRoad(lat, lon);
+        if (road < 0) {
+            return -1;
+        }
+
+        return (fractionAlongRoad(road, lat, lon) <= 0.5) ? map.getRoadStart(road) : map.getRoadEnd(road);
+    }
+
+    /*
+        Returns every intersection inside a bounding box.
+    */
+    public int[] within(double minLat, double minLong, double maxLat, double maxLong) {
+        IntList result = new IntList();
+        int x0 = column(minLong), x1 = column(maxLong);
+        int y0 = row(minLat), y1 = row(maxLat);
+
+        for (int y = y0; y <= y1; y++) {
+            for (int x = x0; x <= x1; x++) {
+                int c = y * cols + x;
+                for (int i = vertexStart[c]; i < vertexStart[c + 1]; i++) {
+                    int v = cellVertices[i];
+                    double vLat = map.getLatitude(v);
+                    double vLong = map.getLongitude(v);
+                    if (vLat >= minLat && vLat <= maxLat && vLong >= minLong && vLong <= maxLong) {
+                        result.add(v);
+                    }
+                }
+            }
+        }
+
+        return result.toArray();
+    }
+
+    /*
+        Returns every road whose bounding box overlaps a bounding box,
+        each once. A road listed in several of the visited cells is only
+        reported from the first of them.
+    */
+    public int[] roadsWithin(double minLat, double minLong, double maxLat, double maxLong) {
+        IntList result = new IntList();
+        int x0 = column(minLong), x1 = column(maxLong);
+        int y0 = row(minLat), y1 = row(maxLat);
+        int[] box = new int[4];
+
+        for (int y = y0; y <= y1; y++) {
+            for (int x = x0; x <= x1; x++) {
+                int c = y * cols + x;
+                for (int i = roadStart[c]; i < roadStart[c + 1]; i++) {
+                    int r = cellRoads[i];
+                    roadCells(r, box);
+                    if (x != Math.max(box[0], x0) || y != Math.max(box[1], y0)) {
+                        continue;
+                    }
+
+                    int a = map.getRoadStart(r);
+                    int b = map.getRoadEnd(r);
+                    if (Math.max(map.getLatitude(a), map.getLatitude(b)) >= minLat &&
+                        Math.min(map.getLatitude(a), map.getLatitude(b)) <= maxLat &&
+                        Math.max(map.getLongitude(a), map.getLongitude(b)) >= minLong &&
+                        Math.min(map.getLongitude(a), map.getLongitude(b)) <= maxLong) {
+                        result.add(r);
+                    }
+                }
+            }
+        }
+
+        return result.toArray();
+    }
+
+    /*
+        Get methods for different parameters.
+    */
+
+    public int getColumns() {
+        return cols;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    /*
+        Helper methods to map coordinates to cells. Points outside the map
+        fall into the nearest edge cell.
+    */
+
+    private int column(double lon) {
+        int x = (int)Math.floor((lon - minLong) * cosLat / cellSize);
+        return Math.max(0, Math.min(cols - 1, x));
+    }
+
+    private int row(double lat) {
+        int y = (int)Math.floor((lat - minLat) / cellSize);
+        return Math.max(0, Math.min(rows - 1, y));
+    }
+
+    private int cellOf(int v) {
+        return row(map.getLatitude(v)) * cols + column(map.getLongitude(v));
+    }
+
+    // first and last column and row covered by the bounding box of a road
+    private void roadCells(int r, int[] box) {
+        int a = map.getRoadStart(r);
+        int b = map.getRoadEnd(r);
+        int xa = column(map.getLongitude(a)), xb = column(map.getLongitude(b));
+        int ya = row(map.getLatitude(a)), yb = row(map.getLatitude(b));
+        box[0] = Math.min(xa, xb);
+        box[1] = Math.min(ya, yb);
+        box[2] = Math.max(xa, xb);
+        box[3] = Math.max(ya, yb);
+    }
+
+    private static void prefixSum(int[] counts) {
+        for (int i = 1; i < counts.length; i++) {
+            counts[i] += counts[i - 1];
+        }
+    }
+
+    /*
+        Lower bound in miles on the distance from a point to any cell
+        not yet visited when the search around (cx, cy) is about to visit
+        the given ring, i.e. outside the square of the rings before it.
+        Zero while the point itself lies outside that square.
+    */
+    private double ringBound(double lat, double lon, int cx, int cy, int ring) {
+        if (ring == 0) {
+            return 0;
+        }
+
+        ring--;
+        double x = (lon - minLong) * cosLat;
+        double y = lat - minLat;
+        double left = x - (cx - ring) * cellSize;
+        double right = (cx + ring + 1) * cellSize - x;
+        double bottom = y - (cy - ring) * cellSize;
+        double top = (cy + ring + 1) * cellSize - y;
+
+        double gap = Math.min(Math.min(left, right), Math.min(bottom, top));
+        return Math.max(0, gap) * MILES_PER_DEGREE * CELL_BOUND_SLACK;
+    }
+
+    /*
+        Project a point onto a road in a flat (equirectangular) frame
+        centred on the point.
+        @return: {x, y} offset in miles from the point to the closest
+                 point of the road, then the fraction along the road
+    */
+    private double[] projectOntoRoad(int r, double lat, double lon) {
+        int a = map.getRoadStart(r);
+        int b = map.getRoadEnd(r);
+        double scale = Math.cos(Math.toRadians(lat)) * MILES_PER_DEGREE;
+
+        double ax = (map.getLongitude(a) - lon) * scale;
+        double ay = (map.getLatitude(a) - lat) * MILES_PER_DEGREE;
+        double bx = (map.getLongitude(b) - lon) * scale;
+        double by = (map.getLatitude(b) - lat) * MILES_PER_DEGREE;
+
+        double dx = bx - ax;
+        double dy = by - ay;
+        double lengthSquared = dx * dx + dy * dy;
+        double t = (lengthSquared > 0) ? -(ax * dx + ay * dy) / lengthSquared : 0;
+        t = Math.max(0, Math.min(1, t));
+
+        return new double[] {ax + t * dx, ay + t * dy, t};
+    }
+}
@@ -0,0 +1,257 @@
+/**
+ *  @file   Stats.java
+ *  @brief  Class to collect timings of the program's phases (loading,
+ *          index building, queries, spanning trees, drawing) and the
+ *          work done by every shortest path query, and to report them as
+ *          JDK Flight Recorder events. Everything is off unless enabled
+ *          with -stats; while off, each call is one branch on a static
+ *          field and allocates nothing, so the calls can stay in the hot
+ *          paths.
+ *  @author Mustafa Siddiqui
+ *  @date   10/18/2026
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+public class Stats {
+    /*
+        Parts of the program that are timed.
+    */
+    public enum Phase {
+        LOAD("load"),
+        INDEX("index build"),
+        QUERY("query"),
+        MST("spanning tree"),
+        RENDER("render"),
+        TILE("tile");
+
+        private String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+    }
+
+    /*
+        Flight Recorder event for one timed phase.
+    */
+    @Name("streetmapping.Phase")
+    @Label("Phase")
+    @Category("Street Mapping")
+    @Description("A timed phase of the program")
+    static class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+    }
+
+    /*
+        Flight Recorder event for one shortest path query.
+    */
+    @Name("streetmapping.Query")
+    @Label("Shortest Path Query")
+    @Category("Street Mapping")
+    @Description("Work done by one shortest path search")
+    static class QueryEvent extends Event {
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+
+        @Label("Vertices Settled")
+        int settled;
+
+        @Label("Edges Relaxed")
+        long relaxed;
+
+        @Label("Largest Queue")
+        int maxQueue;
+    }
+
+    // set once before the work starts, read on every call
+    private static boolean enabled = false;
+
+    private static LatencyHistogram[] timers = new LatencyHistogram[Phase.values().length];
+    private static AtomicLong[] totals = new AtomicLong[Phase.values().length];
+    static {
+        for (int i = 0; i < timers.length; i++) {
+            timers[i] = new LatencyHistogram();
+            totals[i] = new AtomicLong();
+        }
+    }
+
+    // sums and largest values of the per-query counters
+    private static AtomicLong settledSum = new AtomicLong();
+    private static AtomicLong settledMax = new AtomicLong();
+    private static AtomicLong relaxedSum = new AtomicLong();
+    private static AtomicLong relaxedMax = new AtomicLong();
+    private static AtomicLong queueSum = new AtomicLong();
+    private static AtomicLong queueMax = new AtomicLong();
+
+    private static EventType phaseEvents;
+    private static EventType queryEvents;
+
+    /*
+        Turn the instrumentation on or off. Meant to be called once, at
+        startup, before any threads are doing timed work.
+    */
+    public static void setEnabled(boolean on) {
+        if (on && phaseEvents == null) {
+            phaseEvents = EventType.getEventType(PhaseEvent.class);
+            queryEvents = EventType.getEventType(QueryEvent.class);
+        }
+        enabled = on;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /*
+        Start timing something.
+        @return: a start time to pass to end(), 0 if disabled
+    */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /*
+        Finish timing a phase started with start().
+    */
+    public static void end(Phase phase, long startTime) {
+        if (!enabled) {
+            return;
+        }
+
+        long elapsed = System.nanoTime() - startTime;
+        timers[phase.ordinal()].record(elapsed);
+        totals[phase.ordinal()].addAndGet(elapsed);
+
+        if (phaseEvents.isEnabled()) {
+            PhaseEvent event = new PhaseEvent();
+            event.phase = phase.label;
+            event.elapsed = elapsed;
+            event.commit();
+        }
+    }
+
+    /*
+        Finish timing a query started with start(), recording the work
+        done by its search contexts.
+        @param: backward    -   second context of a bidirectional search,
+                                or null
+    */
+    public static void endQuery(long startTime, SearchContext forward, SearchContext backward) {
+        if (!enabled) {
+            return;
+        }
+
+        long elapsed = System.nanoTime() - startTime;
+        int settled = forward.getSettledCount();
+        long relaxed = forward.getRelaxedCount();
+        int queue = forward.getQueue().maxSize();
+        if (backward != null) {
+            settled += backward.getSettledCount();
+            relaxed += backward.getRelaxedCount();
+            queue += backward.getQueue().maxSize();
+        }
+
+        timers[Phase.QUERY.ordinal()].record(elapsed);
+        totals[Phase.QUERY.ordinal()].addAndGet(elapsed);
+        add(settledSum, settledMax, settled);
+        add(relaxedSum, relaxedMax, relaxed);
+        add(queueSum, queueMax, queue);
+
+        if (queryEvents.isEnabled()) {
+            QueryEvent event = new QueryEvent();
+            event.elapsed = elapsed;
+            event.settled = settled;
+            event.relaxed = relaxed;
+            event.maxQueue = queue;
+            event.commit();
+        }
+    }
+
+    private static void add(AtomicLong sum, AtomicLong max, long value) {
+        sum.addAndGet(value);
+        long m = max.get();
+        while (value > m && !max.compareAndSet(m, value)) {
+            m = max.get();
+        }
+    }
+
+    /*
+        Forget everything recorded so far.
+    */
+    public static void reset() {
+        for (int i = 0; i < timers.length; i++) {
+            timers[i].reset();
+            totals[i].set(0);
+        }
+        for (AtomicLong counter : new AtomicLong[] {settledSum, settledMax, relaxedSum, relaxedMax, queueSum, queueMax}) {
+            counter.set(0);
+        }
+    }
+
+    /*
+        Get methods for different parameters.
+    */
+
+    public static long getCount(Phase phase) {
+        return timers[phase.ordinal()].count();
+    }
+
+    public static long getTotalNanos(Phase phase) {
+        return totals[phase.ordinal()].get();
+    }
+
+    public static long getSettledSum() {
+        return settledSum.get();
+    }
+
+    public static long getRelaxedSum() {
+        return relaxedSum.get();
+    }
+
+    public static long getMaxQueue() {
+        return queueMax.get();
+    }
+
+    /*
+        Returns a table of every phase that ran, with its time in
+        milliseconds, and the averages and largest values of the query
+        counters.
+    */
+    public static String summary() {
+        StringBuilder out = new StringBuilder("Stats:\n");
+        out.append(String.format("  %-14s %8s %12s %10s %10s %10s %10s\n", "phase", "count", "total ms", "mean ms",
+                                    "p50 ms", "p99 ms", "max ms"));
+        for (Phase phase : Phase.values()) {
+            LatencyHistogram timer = timers[phase.ordinal()];
+            if (timer.count() > 0) {
+                out.append(String.format("  %-14s %8d %12.2f %10.3f %10.3f %10.3f %10.3f\n", phase.label, timer.count(),
+                                            totals[phase.ordinal()].get() / 1e6, timer.mean() / 1e6,
+                                            timer.percentile(0.5) / 1e6, timer.percentile(0.99) / 1e6, timer.max() / 1e6));
+            }
+        }
+
+        long queries = timers[Phase.QUERY.ordinal()].count();
+        if (queries > 0) {
+            out.append(String.format("  per query: %.1f settled (max %d), %.1f edges relaxed (max %d), " +
+                                        "queue up to %.1f (max %d)\n", (double)settledSum.get() / queries, settledMax.get(),
+                                        (double)relaxedSum.get() / queries, relaxedMax.get(),
+                                        (double)queueSum.get() / queries, queueMax.get()));
+        }
+
+        return out.toString();
+    }
+}
@@ -1,7 +1,30 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.io.PrintWriter;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+import javax.imageio.ImageIO;
 
 class Test {
-    public static void main(String[] args) {
+    // tolerance when comparing distances computed in a different order
+    static final double EPSILON = 1e-9;
+
+    // number of failed checks, the exit code is non-zero if any failed
+    static int failures = 0;
+
+    public static void main(String[] args) throws IOException {
         Graph nodes = new Graph();
 
         Vertex node_1 = new Vertex("A", 50, 50);
@@ -20,8 +43,8 @@ class Test {
         nodes.addIntersection(node_5);
 
         // print vertices entered
-        for (Vertex v : nodes.getVertices().values()) {
-            System.out.println(v.toString());
+        for (int v = 0; v < nodes.vertexCount(); v++) {
+            System.out.println(nodes.getVertex(v).toString());
         }
         System.out.println();
 
@@ -44,26 +67,1394 @@ class Test {
         nodes.addRoad(line6, node_3, node_5);
 
         // print edges entered
+        nodes.freeze();
         System.out.println();
-        for (String key : nodes.getVertices().keySet()) {
-            System.out.println(key);
-            ArrayList<Edge> neighbours = nodes.getVertices().get(key).getAdjList();
-            for (Edge e : neighbours) {
-                System.out.println(e.toString());
+        for (int v = 0; v < nodes.vertexCount(); v++) {
+            System.out.println(nodes.getID(v));
+            for (int e = nodes.offsets[v]; e < nodes.offsets[v + 1]; e++) {
+                System.out.println(nodes.getRoad(nodes.edgeRoad[e]).toString());
             }
             System.out.println();
         }
         System.out.println();
         
-        nodes.shortestPath(node_2, node_3);
+        Route route = nodes.shortestPath(node_2, node_3);
 
-        ArrayList<Vertex> list = retrievePath(node_3, node_2);
+        ArrayList<Vertex> list = retrievePath(nodes.getPath(route).get(0), node_2);
         System.out.println(list.size());
         for (Vertex v : list) {
             System.out.print(v.getID() + " -> ");
         }
         System.out.println();
 
+        checkParseDouble();
+        checkBadMaps();
+        checkMapGenerator();
+
+        // check the shortest path search against a brute-force reference
+        // on every map given (ur.txt by default)
+        String[] maps = (args.length > 0) ? args : new String[] {"ur.txt"};
+        for (String file : maps) {
+            if (!new File(file).exists()) {
+                System.out.println("Skipping " + file + " (not found)");
+                continue;
+            }
+
+            Graph map = Main.loadMap(file);
+            checkShortestPaths(file, map);
+            checkMapFile(file, map);
+            checkLandmarkFile(file, map);
+            checkSpanningTree(file, map);
+            checkSpatialIndex(file, map);
+            checkTiles(file, map);
+            checkBatchRouter(file, map);
+            checkDistanceMatrix(file, map);
+            checkIsochrones(file, map);
+            checkAlternatives(file, map);
+            checkRouteServer(file, map);
+            checkRouteCache(file, map);
+            checkStats(file, map);
+            checkRoadUpdates(file);
+            checkShards(file, map);
+            checkSimplified(file, map);
+        }
+
+        if (failures > 0) {
+            System.out.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+    }
+
+    /*
+        Components match reachability, unreachable queries settle nothing,
+        and the simplified map finds the same distances as the map along
+        real paths, with ends inside chains and on pruned islands.
+    */
+    static void checkSimplified(String name, Graph map) {
+        Random random = new Random(42);
+        int n = map.vertexCount();
+        SimplifiedGraph simplified = new SimplifiedGraph(map, false);
+        SimplifiedGraph pruned = new SimplifiedGraph(map, true);
+        SearchContext ctx = map.acquireContext();
+
+        int total = 0;
+        int largest = 0;
+        for (int c = 0; c < map.getComponentCount(); c++) {
+            total += map.getComponentSize(c);
+            largest = Math.max(largest, map.getComponentSize(c));
+        }
+        check(total == n, name + ": components hold " + total + " of " + n + " intersections");
+        for (int q = 0; q < 5; q++) {
+            int s = random.nextInt(n);
+            map.shortestPathTree(s, ctx);
+            for (int v = 0; v < n; v++) {
+                check(ctx.isSettled(v) == (map.getComponent(v) == map.getComponent(s)),
+                        name + ": " + s + " and " + v + " are in the wrong components");
+            }
+        }
+
+        int contracted = 0;
+        for (int v = 0; v < n; v++) {
+            if (simplified.isContracted(v)) {
+                contracted++;
+                check(map.offsets[v + 1] - map.offsets[v] == 2, name + ": contracted " + v + " has " +
+                        (map.offsets[v + 1] - map.offsets[v]) + " roads");
+            }
+        }
+        check(simplified.vertexCount() + contracted == n && simplified.roadCount() + contracted == map.roadCount(),
+                name + ": simplified map has wrong counts: " + simplified.summary());
+        check(pruned.getPrunedCount() == n - largest, name + ": pruned " + pruned.getPrunedCount() + " intersections, expected " +
+                                                        (n - largest));
+
+        for (int q = 0; q < 300; q++) {
+            int s = random.nextInt(n);
+            int t = random.nextInt(n);
+            if (q % 3 == 0 && map.offsets[s + 1] > map.offsets[s]) {
+                t = map.targets[map.offsets[s]];
+            }
+            t = (q % 10 == 0) ? s : t;
+
+            Route expected = map.shortestPath(s, t);
+            Route actual = simplified.shortestPath(s, t);
+            Route prunedRoute = pruned.shortestPath(s, t);
+            if (expected == null) {
+                check(actual == null && prunedRoute == null, name + ": simplified map found a route " + s + " -> " + t);
+                if (!map.shortestPath(s, t, ctx)) {
+                    check(ctx.getSettledCount() == 0, name + ": unreachable " + s + " -> " + t + " settled " +
+                                                        ctx.getSettledCount() + " vertices");
+                }
+                continue;
+            }
+
+            checkRoute(map, actual, s, t, expected.getDistance(), name + " simplified");
+            if (pruned.isPruned(s) || pruned.isPruned(t)) {
+                check(prunedRoute == null, name + ": pruned map found a route to an island " + s + " -> " + t);
+            }
+            else {
+                checkRoute(map, prunedRoute, s, t, expected.getDistance(), name + " pruned");
+            }
+        }
+        map.releaseContext(ctx);
+
+        System.out.println(name + ": simplified map checked (" + simplified.summary() + ")");
+    }
+
+    /*
+        Generated maps load with the intersections and roads written, and
+        the same seed gives the same map.
+    */
+    static void checkMapGenerator() throws IOException {
+        File first = File.createTempFile("grid", ".txt");
+        File second = File.createTempFile("grid", ".txt");
+        first.deleteOnExit();
+        second.deleteOnExit();
+
+        int roads = MapGenerator.write(first.getPath(), 30, 20, 7);
+        MapGenerator.write(second.getPath(), 30, 20, 7);
+        Graph map = Main.loadMap(first.getPath());
+        check(map.vertexCount() == 600 && map.roadCount() == roads, "generated map has " + map.vertexCount() +
+                                                                    " intersections and " + map.roadCount() + " roads");
+        check(Arrays.equals(Files.readAllBytes(first.toPath()), Files.readAllBytes(second.toPath())),
+                "generated maps with the same seed differ");
+
+        System.out.println("map generator checked (" + roads + " roads)");
+    }
+
+    /*
+        Split the map into shards, start a worker process for each on
+        localhost and compare the coordinator's routes with the single
+        graph's: same distance, and a real path of that length.
+    */
+    static void checkShards(String name, Graph map) throws IOException {
+        File directory = Files.createTempDirectory("shards").toFile();
+        Partitioner partitioner = new Partitioner(map, 4);
+        String manifest = partitioner.write(new File(directory, "map").getPath());
+
+        Random random = new Random(42);
+        int crossing = 0;
+        try (ShardCoordinator coordinator = new ShardCoordinator(manifest)) {
+            coordinator.start();
+            for (int q = 0; q < 30; q++) {
+                int s = random.nextInt(map.vertexCount());
+                int t = random.nextInt(map.vertexCount());
+                Route expected = map.shortestPath(s, t);
+                ShardCoordinator.ShardRoute route = coordinator.shortestPath(map.getID(s), map.getID(t));
+                if (expected == null) {
+                    check(route == null, name + ": sharded route " + s + " -> " + t + " does not exist");
+                    continue;
+                }
+                if (route == null) {
+                    check(false, name + ": no sharded route " + s + " -> " + t);
+                    continue;
+                }
+
+                String[] ids = route.getIntersections();
+                int[] path = new int[ids.length];
+                for (int i = 0; i < ids.length; i++) {
+                    path[i] = map.indexOf(ids[i]);
+                    check(partitioner.getShard(path[i]) == route.getShards()[i], name + ": sharded route has the wrong shard");
+                }
+                check(Math.abs(route.getDistance() - expected.getDistance()) < EPSILON &&
+                      path[0] == s && path[path.length - 1] == t &&
+                      Math.abs(pathLength(map, path) - expected.getDistance()) < EPSILON,
+                        name + ": sharded route " + s + " -> " + t + " is " + route.getDistance() + ", expected " +
+                        expected.getDistance());
+                if (route.shardCount() > 1) {
+                    crossing++;
+                }
+            }
+
+            boolean rejected = false;
+            try {
+                coordinator.shortestPath("no such intersection", map.getID(0));
+            }
+            catch (IllegalArgumentException e) {
+                rejected = true;
+            }
+            check(rejected, name + ": coordinator accepted an unknown intersection");
+
+            System.out.println(name + ": sharded routing checked (" + coordinator.getShardCount() + " shards, " +
+                                coordinator.getOverlayVertexCount() + " boundary intersections, " + crossing +
+                                " of 30 routes crossing shards)");
+        }
+        finally {
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+
+        // a worker that cannot load its shard fails start() partway, and
+        // close() must still stop the workers that did start
+        directory = Files.createTempDirectory("shards").toFile();
+        manifest = new Partitioner(map, 4).write(new File(directory, "map").getPath());
+        boolean failed = false;
+        try (ShardCoordinator coordinator = new ShardCoordinator(manifest)) {
+            new File(directory, "map-" + (coordinator.getShardCount() - 1) + ".txt").delete();
+            coordinator.start();
+        }
+        catch (IOException e) {
+            failed = true;
+        }
+        catch (RuntimeException e) {
+            check(false, name + ": closing a partly started coordinator threw " + e);
+        }
+        finally {
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+        check(failed, name + ": coordinator started without a shard file");
+    }
+
+    /*
+        Close a road on a route and make another one shorter on a fresh
+        copy of the map, checking after each update that every search
+        agrees with Bellman-Ford on the new weights, that the old weight
+        arrays were left alone, which heuristics and indexes stay valid,
+        that the route cache only drops the routes along the closed road,
+        and that a RouteServer applies updates sent to it.
+    */
+    static void checkRoadUpdates(String name) throws IOException {
+        Graph map = Main.loadMap(name);
+        Random random = new Random(42);
+        int n = map.vertexCount();
+
+        // a route with a few hops to close a road on
+        Route route = null;
+        for (int attempt = 0; attempt < 100 && (route == null || route.getHops() < 2); attempt++) {
+            route = map.shortestPath(random.nextInt(n), random.nextInt(n));
+        }
+        if (route == null || route.getHops() < 2) {
+            System.out.println(name + ": road updates skipped (no route with two roads)");
+            return;
+        }
+        int[] path = route.getVertices();
+        int closed = roadBetween(map, path[path.length / 2 - 1], path[path.length / 2]);
+
+        Landmarks landmarks = Landmarks.select(map, 4);
+        ContractionHierarchy hierarchy = new ContractionHierarchy(map);
+        RouteCache cache = new RouteCache(64);
+        int[][] pairs = new int[20][];
+        pairs[0] = new int[] {route.getStart(), route.getEnd()};
+        for (int p = 1; p < pairs.length; p++) {
+            pairs[p] = new int[] {random.nextInt(n), random.nextInt(n)};
+        }
+        int along = 0;
+        for (int[] pair : pairs) {
+            Route cached = cache.get(pair[0], pair[1], map::shortestPath);
+            if (cached != null && usesRoad(map, cached, closed)) {
+                along++;
+            }
+        }
+
+        double[] before = map.weights;
+        double[] copy = before.clone();
+        RoadUpdates closure = RoadUpdates.read(map, new BufferedReader(new StringReader(
+                                                    "# closed for repairs\n" + map.getRoadID(closed) + "\tclosed\n")));
+        closure.apply();
+        check(map.isClosed(closed) && !closure.lowersWeights() && map.getWeightVersion() == 1,
+                name + ": closing road " + map.getRoadID(closed) + " did not take");
+        check(map.weights != before && Arrays.equals(before, copy), name + ": update changed the weights searches were using");
+        check(!hierarchy.isCurrent() && landmarks.isLowerBound(map),
+                name + ": after a closure the hierarchy should be stale and the landmarks still valid");
+        check(Arrays.stream(MinSpanningTree.kruskal(map)).noneMatch(r -> r == closed), name + ": spanning tree uses a closed road");
+
+        cache.invalidateRoads(map, closure.getRoads());
+        check(cache.size() == pairs.length - along, name + ": cache kept " + cache.size() + " of " + pairs.length +
+                                                    " routes, " + along + " of them along the closed road");
+        Route detour = cache.get(pairs[0][0], pairs[0][1], map::shortestPath);
+        check(detour == null || (!usesRoad(map, detour, closed) && detour.getDistance() >= route.getDistance()),
+                name + ": route still goes along the closed road");
+
+        checkUpdatedRoutes(name + " after a closure", map, landmarks);
+
+        // a road at half its length: the straight line bound shrinks and
+        // the landmarks no longer hold
+        int shorter = random.nextInt(map.roadCount());
+        RoadUpdates faster = RoadUpdates.read(map, new BufferedReader(new StringReader(map.getRoadID(shorter) + " x0.5")));
+        faster.apply();
+        check(faster.lowersWeights() && !landmarks.isLowerBound(map), name + ": a shorter road left the landmarks valid");
+        check(map.getLoadedWeight(shorter) == 0 ||
+              (Math.abs(map.getWeightFactor() - 0.5) < EPSILON && map.getChordHeuristic().getScale() == map.getWeightFactor()),
+                name + ": heuristic scale " + map.getChordHeuristic().getScale() + " for weight factor " + map.getWeightFactor());
+        checkUpdatedRoutes(name + " after a shorter road", map, null);
+
+        // the server drops the hierarchy and serves the new weights
+        RouteServer server = new RouteServer(map, new ContractionHierarchy(map), map.getChordHeuristic(), false);
+        server.start(0);
+        try {
+            String base = "http://localhost:" + server.getPort();
+            String[] reopened = post(base + "/updates", map.getRoadID(closed) + "\topen\n\n" + map.getRoadID(shorter) + "\topen\n");
+            check(reopened[0].equals("200") && (int)jsonNumber(reopened[1], "batches") == 2 && !map.isClosed(closed) &&
+                  map.getRoadWeight(shorter) == map.getLoadedWeight(shorter), name + ": server updates failed: " + reopened[1]);
+            String[] bad = post(base + "/updates", "no-such-road\tclosed\n");
+            check(bad[0].equals("400"), name + ": server answered " + bad[0] + " to an update of an unknown road");
+
+            // the hierarchy is rebuilt for the new weights and swapped in
+            String[] metrics = get(base + "/metrics");
+            check(metrics[1].contains("\"hierarchy\":\"rebuilding\"") || metrics[1].contains("\"hierarchy\":\"current\""),
+                    name + ": metrics do not show the hierarchy: " + metrics[1]);
+            long deadline = System.nanoTime() + 60_000_000_000L;
+            while (!server.hierarchyState().equals("current") && System.nanoTime() < deadline) {
+                try {
+                    Thread.sleep(10);
+                }
+                catch (InterruptedException e) {
+                    break;
+                }
+            }
+            metrics = get(base + "/metrics");
+            check(metrics[1].contains("\"hierarchy\":\"current\"") && jsonNumber(metrics[1], "hierarchyRebuilds") >= 1,
+                    name + ": hierarchy was not rebuilt after the updates: " + metrics[1]);
+
+            String[] served = get(base + "/route?from=" + URLEncoder.encode(map.getID(pairs[0][0]), StandardCharsets.UTF_8) +
+                                    "&to=" + URLEncoder.encode(map.getID(pairs[0][1]), StandardCharsets.UTF_8));
+            check(served[0].equals("200") && Math.abs(jsonNumber(served[1], "miles") - route.getDistance()) < EPSILON,
+                    name + ": server route after reopening differs: " + served[1]);
+        }
+        finally {
+            server.stop();
+        }
+
+        // a road set to -0 weighs 0, so the spanning tree takes it first
+        RoadUpdates.read(map, new BufferedReader(new StringReader(map.getRoadID(closed) + "\t-0"))).apply();
+        check(Double.doubleToRawLongBits(map.getRoadWeight(closed)) == 0 &&
+              Arrays.stream(MinSpanningTree.kruskal(map)).anyMatch(r -> r == closed),
+                name + ": a road set to -0 weighs " + map.getRoadWeight(closed) + " and is not in the spanning tree");
+
+        System.out.println(name + ": road updates checked (" + along + " of " + pairs.length + " cached routes along the closed road)");
+    }
+
+    /*
+        Compare Dijkstra, A*, bidirectional A*, a new contraction
+        hierarchy and (if given) ALT with Bellman-Ford on the map's
+        current weights.
+    */
+    static void checkUpdatedRoutes(String name, Graph map, Landmarks landmarks) {
+        Random random = new Random(7);
+        int n = map.vertexCount();
+        Heuristic chord = map.getChordHeuristic();
+        BidirectionalSearch bidirectional = new BidirectionalSearch(map, chord);
+        ContractionHierarchy hierarchy = new ContractionHierarchy(map);
+
+        for (int i = 0; i < 3; i++) {
+            int s = random.nextInt(n);
+            double[] reference = bellmanFord(map, s);
+            for (int j = 0; j < 50; j++) {
+                int t = random.nextInt(n);
+                if (reference[t] == Double.POSITIVE_INFINITY) {
+                    check(map.shortestPath(s, t) == null && hierarchy.shortestPath(s, t) == null,
+                            name + ": found a route " + s + " -> " + t + " that does not exist");
+                    continue;
+                }
+
+                checkRoute(map, map.shortestPath(s, t), s, t, reference[t], name + ": Dijkstra");
+                checkRoute(map, map.shortestPath(s, t, chord), s, t, reference[t], name + ": A*");
+                checkRoute(map, bidirectional.shortestPath(s, t), s, t, reference[t], name + ": bidirectional A*");
+                checkRoute(map, hierarchy.shortestPath(s, t), s, t, reference[t], name + ": contraction hierarchy");
+                if (landmarks != null) {
+                    checkRoute(map, map.shortestPath(s, t, landmarks), s, t, reference[t], name + ": ALT");
+                }
+            }
+        }
+    }
+
+    /*
+        Helper methods to find the shortest road joining two intersections
+        and to tell whether a route goes along a road.
+    */
+
+    static int roadBetween(Graph map, int a, int b) {
+        int best = -1;
+        for (int e = map.offsets[a]; e < map.offsets[a + 1]; e++) {
+            if (map.targets[e] == b && (best < 0 || map.weights[e] < map.getRoadWeight(best))) {
+                best = map.edgeRoad[e];
+            }
+        }
+
+        return best;
+    }
+
+    static boolean usesRoad(Graph map, Route route, int road) {
+        int[] path = route.getVertices();
+        for (int i = 1; i < path.length; i++) {
+            int a = Math.min(path[i - 1], path[i]);
+            int b = Math.max(path[i - 1], path[i]);
+            if (a == Math.min(map.getRoadStart(road), map.getRoadEnd(road)) &&
+                b == Math.max(map.getRoadStart(road), map.getRoadEnd(road))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /*
+        With Stats off, repeated searches on a warmed up context allocate
+        nothing; with it on, the query counters add up to what the search
+        contexts report.
+    */
+    static void checkStats(String name, Graph map) {
+        Random random = new Random(42);
+        int[] starts = new int[50];
+        int[] ends = new int[starts.length];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = random.nextInt(map.vertexCount());
+            ends[i] = random.nextInt(map.vertexCount());
+        }
+
+        SearchContext ctx = map.acquireContext();
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < starts.length; i++) {
+                map.shortestPath(starts[i], ends[i], ctx, null);
+            }
+        }
+
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean)java.lang.management.ManagementFactory.getThreadMXBean();
+        long id = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(id);
+        for (int i = 0; i < starts.length; i++) {
+            map.shortestPath(starts[i], ends[i], ctx, null);
+        }
+        long allocated = threads.getThreadAllocatedBytes(id) - before;
+        // the bean itself may allocate a little when asked
+        check(allocated < 1024, name + ": " + starts.length + " searches with stats off allocated " + allocated + " bytes");
+
+        Stats.reset();
+        Stats.setEnabled(true);
+        long settled = 0;
+        long relaxed = 0;
+        for (int i = 0; i < starts.length; i++) {
+            map.shortestPath(starts[i], ends[i], ctx, null);
+            settled += ctx.getSettledCount();
+            relaxed += ctx.getRelaxedCount();
+        }
+        Stats.setEnabled(false);
+        map.releaseContext(ctx);
+
+        check(Stats.getCount(Stats.Phase.QUERY) == starts.length, name + ": stats counted " +
+                                                                    Stats.getCount(Stats.Phase.QUERY) + " queries");
+        check(Stats.getSettledSum() == settled && Stats.getRelaxedSum() == relaxed,
+                name + ": stats counted " + Stats.getSettledSum() + " settled and " + Stats.getRelaxedSum() +
+                " relaxed, the contexts " + settled + " and " + relaxed);
+        check(Stats.getTotalNanos(Stats.Phase.QUERY) > 0 && Stats.getMaxQueue() > 0, name + ": stats recorded no work");
+        Stats.reset();
+
+        System.out.println(name + ": stats checked (" + allocated + " bytes allocated with stats off)");
+    }
+
+    /*
+        Look up a repeating set of pairs from several threads through a
+        RouteCache smaller than the set, checking every answer against a
+        direct search, the counters, and that invalidate() empties it.
+    */
+    static void checkRouteCache(String name, Graph map) {
+        RouteCache cache = new RouteCache(32);
+        Random random = new Random(42);
+        int[][] pairs = new int[48][];
+        Route[] expected = new Route[pairs.length];
+        for (int p = 0; p < pairs.length; p++) {
+            pairs[p] = new int[] {random.nextInt(map.vertexCount()), random.nextInt(map.vertexCount())};
+            expected[p] = map.shortestPath(pairs[p][0], pairs[p][1]);
+        }
+
+        int lookups = 2000;
+        int threads = 4;
+        int[] wrong = new int[threads];
+        Thread[] workers = new Thread[threads];
+        for (int w = 0; w < threads; w++) {
+            int worker = w;
+            workers[w] = new Thread(() -> {
+                Random pick = new Random(worker);
+                for (int q = 0; q < lookups / threads; q++) {
+                    // skewed towards the first pairs, like a real query log
+                    int p = Math.min(pick.nextInt(pairs.length), pick.nextInt(pairs.length));
+                    Route route = cache.get(pairs[p][0], pairs[p][1], map::shortestPath);
+                    if ((route == null) != (expected[p] == null) ||
+                        (route != null && (route.getDistance() != expected[p].getDistance() ||
+                                           !Arrays.equals(route.getVertices(), expected[p].getVertices())))) {
+                        wrong[worker]++;
+                    }
+                }
+            });
+            workers[w].start();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        check(Arrays.stream(wrong).sum() == 0, name + ": cache returned " + Arrays.stream(wrong).sum() + " wrong routes");
+        check(cache.getHits() + cache.getMisses() == lookups, name + ": cache counted " + (cache.getHits() + cache.getMisses()) +
+                                                            " lookups, expected " + lookups);
+        check(cache.size() <= cache.getCapacity() && cache.getHits() > 0, name + ": cache " + cache.summary());
+        check(cache.getMisses() - cache.getEvictions() >= cache.size(),
+                name + ": cache lost track of evictions: " + cache.summary());
+
+        cache.invalidate();
+        check(cache.size() == 0, name + ": invalidated cache still holds routes");
+        long misses = cache.getMisses();
+        cache.get(pairs[0][0], pairs[0][1], map::shortestPath);
+        check(cache.getMisses() == misses + 1, name + ": invalidated cache answered from an old route");
+
+        System.out.println(name + ": route cache checked (" + cache.summary() + ")");
+    }
+
+    /*
+        Start a RouteServer on a free localhost port and compare its
+        routes with Graph.shortestPath, then check that bad requests get
+        errors and that /metrics counted everything.
+    */
+    static void checkRouteServer(String name, Graph map) throws IOException {
+        RouteServer server = new RouteServer(map, null, map.getChordHeuristic(), false);
+        server.start(0);
+        String base = "http://localhost:" + server.getPort();
+        Random random = new Random(42);
+        int requests = 0;
+
+        try {
+            for (int q = 0; q < 20; q++) {
+                int s = random.nextInt(map.vertexCount());
+                int t = random.nextInt(map.vertexCount());
+                Route expected = map.shortestPath(s, t);
+                String[] response = get(base + "/route?from=" + URLEncoder.encode(map.getID(s), StandardCharsets.UTF_8) +
+                                        "&to=" + URLEncoder.encode(map.getID(t), StandardCharsets.UTF_8));
+                requests++;
+                if (expected == null) {
+                    check(response[0].equals("404"), name + ": server found a route " + s + " -> " + t);
+                    continue;
+                }
+                check(response[0].equals("200") && Math.abs(jsonNumber(response[1], "miles") - expected.getDistance()) < EPSILON &&
+                      (int)jsonNumber(response[1], "hops") == expected.getHops(),
+                        name + ": server route " + s + " -> " + t + " differs: " + response[1]);
+            }
+
+            String[] nearest = get(base + "/nearest?lat=" + map.getLatitude(0) + "&lon=" + map.getLongitude(0));
+            check(nearest[0].equals("200") && jsonNumber(nearest[1], "miles") == 0, name + ": server nearest is wrong: " + nearest[1]);
+            String[] missing = get(base + "/route?from=" + URLEncoder.encode(map.getID(0), StandardCharsets.UTF_8));
+            String[] unknown = get(base + "/route?from=no%20such&to=" + URLEncoder.encode(map.getID(0), StandardCharsets.UTF_8));
+            check(missing[0].equals("400") && unknown[0].equals("404"), name + ": server accepted bad routes");
+            String[] stats = get(base + "/mst-stats");
+            check(stats[0].equals("200") && (int)jsonNumber(stats[1], "roads") == MinSpanningTree.kruskal(map).length,
+                    name + ": server spanning tree stats are wrong: " + stats[1]);
+
+            String[] metrics = get(base + "/metrics");
+            check(metrics[0].equals("200") && (int)jsonNumber(metrics[1], "count") == requests + 2 &&
+                  (int)jsonNumber(metrics[1], "clientErrors") >= 2,
+                    name + ": server metrics are wrong: " + metrics[1]);
+        }
+        finally {
+            server.stop();
+        }
+
+        System.out.println(name + ": route server checked on port " + server.getPort());
+    }
+
+    /*
+        Helper method to fetch a URL.
+        @return: {status code, body}
+    */
+    static String[] get(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection)new URL(url).openConnection();
+        int status = connection.getResponseCode();
+        try (InputStream in = (status < 400) ? connection.getInputStream() : connection.getErrorStream()) {
+            return new String[] {Integer.toString(status), new String(in.readAllBytes(), StandardCharsets.UTF_8)};
+        }
+    }
+
+    /*
+        Helper method to post a body to a URL.
+        @return: {status code, body}
+    */
+    static String[] post(String url, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection)new URL(url).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+
+        int status = connection.getResponseCode();
+        try (InputStream in = (status < 400) ? connection.getInputStream() : connection.getErrorStream()) {
+            return new String[] {Integer.toString(status), new String(in.readAllBytes(), StandardCharsets.UTF_8)};
+        }
+    }
+
+    /*
+        Helper method to read the first number with the given key out of
+        a JSON document.
+    */
+    static double jsonNumber(String json, String key) {
+        int at = json.indexOf("\"" + key + "\":");
+        if (at < 0) {
+            return Double.NaN;
+        }
+
+        int from = at + key.length() + 3;
+        int to = from;
+        while (to < json.length() && "0123456789.-+eE".indexOf(json.charAt(to)) >= 0) {
+            to++;
+        }
+        return Double.parseDouble(json.substring(from, to));
+    }
+
+    /*
+        Alternative routes start with the shortest route, join the right
+        ends, are real paths of their length within the stretch, do not
+        loop, share little enough with the routes before them and contain
+        a shortest path of at least the plateau length.
+    */
+    static void checkAlternatives(String name, Graph map) {
+        Random random = new Random(42);
+        AlternativeRoutes alternatives = new AlternativeRoutes(map);
+        SearchContext ctx = map.acquireContext();
+        int found = 0;
+        long settled = 0;
+        long single = 0;
+
+        for (int q = 0; q < 10; q++) {
+            int s = random.nextInt(map.vertexCount());
+            int t = random.nextInt(map.vertexCount());
+            Route expected = map.shortestPath(s, t);
+            ArrayList<Route> routes = alternatives.find(s, t, 3);
+            if (expected == null) {
+                check(routes.isEmpty(), name + ": alternatives found for unreachable " + s + " -> " + t);
+                continue;
+            }
+            check(!routes.isEmpty() && routes.size() <= 3, name + ": " + routes.size() + " alternatives for " + s + " -> " + t);
+            if (routes.isEmpty()) {
+                continue;
+            }
+
+            double shortest = expected.getDistance();
+            checkRoute(map, routes.get(0), s, t, shortest, name + " first alternative");
+            found += routes.size() - 1;
+            settled += routes.get(0).getSettled();
+            single += expected.getSettled();
+
+            // roads of the routes before the one being checked
+            boolean[] taken = new boolean[map.roadCount()];
+            for (int r = 0; r < routes.size(); r++) {
+                Route route = routes.get(r);
+                int[] path = route.getVertices();
+                double[] dist = route.getDistances();
+                checkRoute(map, route, s, t, route.getDistance(), name + " alternative " + r);
+                check(route.getDistance() <= shortest * alternatives.getStretch() + EPSILON,
+                        name + ": alternative " + s + " -> " + t + " is " + route.getDistance() + " miles, shortest " + shortest);
+                check(Arrays.stream(path).distinct().count() == path.length, name + ": alternative " + s + " -> " + t + " loops");
+
+                double shared = 0;
+                for (int i = 0; i + 1 < path.length; i++) {
+                    shared += taken[roadBetween(map, path[i], path[i + 1])] ? dist[i + 1] - dist[i] : 0;
+                }
+                check(r == 0 || shared <= alternatives.getMaxShare() * shortest + EPSILON,
+                        name + ": alternative " + s + " -> " + t + " shares " + shared + " of " + shortest + " miles");
+
+                // longest piece that is itself a shortest path, from one
+                // tree per vertex along the route
+                double plateau = 0;
+                for (int i = 0; r > 0 && i < path.length && plateau < alternatives.getMinPlateau() * shortest; i++) {
+                    map.shortestPathTree(path[i], dist[dist.length - 1] - dist[i] + EPSILON, ctx, null);
+                    for (int j = i + 1; j < path.length && Math.abs(ctx.getDistance(path[j]) - (dist[j] - dist[i])) < EPSILON; j++) {
+                        plateau = Math.max(plateau, dist[j] - dist[i]);
+                    }
+                }
+                check(r == 0 || plateau >= alternatives.getMinPlateau() * shortest - EPSILON,
+                        name + ": alternative " + s + " -> " + t + " has no shortest piece longer than " + plateau + " miles");
+
+                for (int i = 0; i + 1 < path.length; i++) {
+                    taken[roadBetween(map, path[i], path[i + 1])] = true;
+                }
+            }
+        }
+        map.releaseContext(ctx);
+
+        System.out.printf("%s: alternative routes checked (%d alternatives, %.1fx the vertices of one search)\n", name, found,
+                            (single == 0) ? 0.0 : (double)settled / single);
+    }
+
+    /*
+        Check distance-limited shortest path trees and isochrone bands
+        against full Dijkstra searches: a tree holds exactly the vertices
+        within its limit, and every band the intersections and roads
+        whose ends are within its distance.
+    */
+    static void checkIsochrones(String name, Graph map) throws IOException {
+        Random random = new Random(42);
+        SearchContext ctx = map.acquireContext();
+        double[] bands = {0.2, 1, 3};
+
+        for (int q = 0; q < 10; q++) {
+            int s = random.nextInt(map.vertexCount());
+            map.shortestPathTree(s, ctx);
+            double[] full = new double[map.vertexCount()];
+            for (int v = 0; v < full.length; v++) {
+                full[v] = ctx.getDistance(v);
+            }
+
+            ShortestPathTree tree = map.shortestPathTree(s, bands[1]);
+            double[] bounded = tree.toDistanceArray();
+            int inside = 0;
+            for (int v = 0; v < full.length; v++) {
+                if (full[v] <= bands[1]) {
+                    inside++;
+                    check(Math.abs(bounded[v] - full[v]) < EPSILON, name + ": bounded tree distance differs at " + v);
+                }
+                else {
+                    check(bounded[v] == Double.POSITIVE_INFINITY, name + ": bounded tree went past its limit at " + v);
+                }
+            }
+            check(tree.size() == inside && tree.getVertex(0) == s, name + ": bounded tree has " + tree.size() +
+                                                                    " vertices, expected " + inside);
+            for (int i = 1; i < tree.size(); i++) {
+                check(tree.getDistance(i - 1) <= tree.getDistance(i), name + ": bounded tree is not nearest first");
+            }
+
+            Isochrones isochrones = new Isochrones(map, s, bands);
+            for (int b = 0; b < bands.length; b++) {
+                int vertices = 0;
+                int roads = 0;
+                for (int v = 0; v < full.length; v++) {
+                    vertices += (full[v] <= bands[b]) ? 1 : 0;
+                }
+                for (int r = 0; r < map.roadCount(); r++) {
+                    int a = map.getRoadStart(r);
+                    int c = map.getRoadEnd(r);
+                    roads += (a != c && full[a] <= bands[b] && full[c] <= bands[b]) ? 1 : 0;
+                }
+                check(isochrones.vertexCount(b) == vertices && isochrones.roadCount(b) == roads,
+                        name + ": band " + bands[b] + " has " + isochrones.vertexCount(b) + "/" + isochrones.roadCount(b) +
+                        " intersections/roads, expected " + vertices + "/" + roads);
+            }
+        }
+        map.releaseContext(ctx);
+
+        // a closed road whose ends are still reached by other roads is in
+        // no band, on a fresh copy so the other checks keep their map
+        Graph copy = Main.loadMap(name);
+        SearchContext copyCtx = copy.acquireContext();
+        boolean tested = false;
+        for (int q = 0; q < 20 && !tested; q++) {
+            int s = random.nextInt(copy.vertexCount());
+            for (int r : new Isochrones(copy, s, new double[] {0.3}).getRoads()) {
+                copy.updateRoads(new int[] {r}, new double[] {Graph.CLOSED});
+                copy.shortestPathTree(s, copyCtx);
+                if (copyCtx.getDistance(copy.getRoadStart(r)) <= 0.3 && copyCtx.getDistance(copy.getRoadEnd(r)) <= 0.3) {
+                    tested = true;
+                    for (int road : new Isochrones(copy, s, new double[] {0.3}).getRoads()) {
+                        check(road != r && !copy.isClosed(road), name + ": isochrone lists closed road " + copy.getRoadID(road));
+                    }
+                    break;
+                }
+                copy.updateRoads(new int[] {r}, new double[] {copy.getLoadedWeight(r)});
+            }
+        }
+        copy.releaseContext(copyCtx);
+
+        System.out.println(name + ": shortest path trees and isochrones checked" + (tested ? " (with a closed road)" : ""));
+    }
+
+    /*
+        Compare both distance matrix algorithms with one search per pair,
+        including a repeated target and a source that is also a target.
+    */
+    static void checkDistanceMatrix(String name, Graph map) {
+        Random random = new Random(42);
+        int n = map.vertexCount();
+        int[] sources = new int[Math.min(n, 25)];
+        int[] targets = new int[sources.length + 1];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = random.nextInt(n);
+            targets[i] = random.nextInt(n);
+        }
+        targets[sources.length] = targets[0];
+        targets[1] = sources[0];
+
+        double[][] dijkstra = new DistanceMatrix(map, null, 3).compute(sources, targets);
+        double[][] buckets = new DistanceMatrix(map, new ContractionHierarchy(map), 3).compute(sources, targets);
+        for (int i = 0; i < sources.length; i++) {
+            for (int j = 0; j < targets.length; j++) {
+                Route route = map.shortestPath(sources[i], targets[j]);
+                double expected = (route == null) ? Double.POSITIVE_INFINITY : route.getDistance();
+                check(dijkstra[i][j] == expected || Math.abs(dijkstra[i][j] - expected) < EPSILON,
+                        name + ": one-to-many distance " + i + "," + j + " is " + dijkstra[i][j] + ", expected " + expected);
+                check(buckets[i][j] == expected || Math.abs(buckets[i][j] - expected) < EPSILON,
+                        name + ": bucket distance " + i + "," + j + " is " + buckets[i][j] + ", expected " + expected);
+            }
+        }
+
+        System.out.println(name + ": distance matrix checked (" + sources.length + "x" + targets.length + ")");
+    }
+
+    /*
+        Run a query file through BatchRouter on several threads and check
+        every result line against a single-threaded search. The file mixes
+        ids, coordinates, an unknown id and comments.
+    */
+    static void checkBatchRouter(String name, Graph map) throws IOException {
+        File queries = File.createTempFile("queries", ".tsv");
+        File results = File.createTempFile("results", ".tsv");
+        queries.deleteOnExit();
+        results.deleteOnExit();
+
+        Random random = new Random(42);
+        int n = map.vertexCount();
+        int count = 300;
+        String[][] asked = new String[count + 3][];
+        try (PrintWriter out = new PrintWriter(queries)) {
+            out.println("# start\tend");
+            for (int q = 0; q < count; q++) {
+                int s = random.nextInt(n);
+                int t = random.nextInt(n);
+                String end = (q % 10 == 0) ? map.getLatitude(t) + "," + map.getLongitude(t) : map.getID(t);
+                out.println(map.getID(s) + "\t" + end);
+                asked[q + 2] = new String[] {map.getID(s), map.getID(t)};
+            }
+            out.println();
+            out.println(map.getID(0) + "\tno such intersection");
+        }
+
+        BatchRouter router = new BatchRouter(map, null, map.getChordHeuristic(), true, 4);
+        router.setWritePaths(true);
+        check(router.run(queries.getPath(), results.getPath()) == count + 1, name + ": batch answered a wrong number of queries");
+        check(router.getUnknown() == 1, name + ": batch found " + router.getUnknown() + " unknown endpoints, expected 1");
+
+        int lines = 0;
+        for (String line : Files.readAllLines(results.toPath())) {
+            if (line.startsWith("#")) {
+                continue;
+            }
+            lines++;
+            String[] fields = line.split("\t", -1);
+            int number = Integer.parseInt(fields[0]);
+            if (number == count + 3) {
+                check(fields[3].equals("unknown"), name + ": batch routed an unknown intersection");
+                continue;
+            }
+
+            // a coordinate endpoint may snap to another intersection at the
+            // same spot, so compare against the end the result reports
+            String[] path = fields[6].isEmpty() ? new String[0] : fields[6].split(" ");
+            int s = map.indexOf(asked[number][0]);
+            int t = (path.length > 0) ? map.indexOf(path[path.length - 1]) : map.indexOf(asked[number][1]);
+            Route expected = map.shortestPath(s, t);
+            if (expected == null) {
+                check(fields[3].equals("unreachable"), name + ": batch routed " + line);
+                continue;
+            }
+            check(fields[3].equals("ok") && Math.abs(Double.parseDouble(fields[4]) - expected.getDistance()) < EPSILON &&
+                  Integer.parseInt(fields[5]) == path.length - 1 && path[0].equals(asked[number][0]),
+                    name + ": batch result differs: " + line);
+        }
+        check(lines == count + 1, name + ": batch wrote " + lines + " results, expected " + (count + 1));
+
+        System.out.println(name + ": batch routing checked (" + router.getRouted() + " routes)");
+    }
+
+    /*
+        Compare Graph.shortestPath with Bellman-Ford distances. Small maps
+        are checked for every pair of vertices, large ones for a seeded
+        sample of sources and targets. Every returned route must also be a
+        real path whose length is the reported distance.
+    */
+    static void checkShortestPaths(String name, Graph map) {
+        int n = map.vertexCount();
+        boolean allPairs = n <= 500;
+        int sources = allPairs ? n : 10;
+        int targetsPerSource = allPairs ? n : 200;
+        Random random = new Random(42);
+        BidirectionalSearch bidirectional = new BidirectionalSearch(map, null);
+        BidirectionalSearch bidirectionalAStar = new BidirectionalSearch(map, map.getChordHeuristic());
+        ContractionHierarchy hierarchy = new ContractionHierarchy(map);
+        Landmarks landmarks = Landmarks.select(map, 8);
+        BidirectionalSearch bidirectionalALT = new BidirectionalSearch(map, landmarks);
+
+        int checked = 0;
+        int before = failures;
+        for (int i = 0; i < sources; i++) {
+            int s = allPairs ? i : random.nextInt(n);
+            double[] reference = bellmanFord(map, s);
+
+            for (int j = 0; j < targetsPerSource; j++) {
+                int t = allPairs ? j : random.nextInt(n);
+                Route route = map.shortestPath(s, t);
+                checked++;
+
+                if (route == null) {
+                    check(reference[t] == Double.POSITIVE_INFINITY, name + ": no route " + s + " -> " + t);
+                    check(bidirectional.shortestPath(s, t) == null && bidirectionalAStar.shortestPath(s, t) == null,
+                            name + ": bidirectional search found a route " + s + " -> " + t + " that does not exist");
+                    check(hierarchy.shortestPath(s, t) == null,
+                            name + ": contraction hierarchy found a route " + s + " -> " + t + " that does not exist");
+                    check(map.shortestPath(s, t, landmarks) == null,
+                            name + ": ALT found a route " + s + " -> " + t + " that does not exist");
+                    continue;
+                }
+
+                check(Math.abs(route.getDistance() - reference[t]) < EPSILON,
+                        name + ": " + s + " -> " + t + " is " + route.getDistance() + ", expected " + reference[t]);
+                check(route.getStart() == s && route.getEnd() == t, name + ": route has wrong ends");
+                check(Math.abs(pathLength(map, route.getVertices()) - route.getDistance()) < EPSILON,
+                        name + ": route " + s + " -> " + t + " is not a path of the reported length");
+
+                // A* must find a route of the same length
+                Route astar = map.shortestPath(s, t, map.getChordHeuristic());
+                check(astar != null && Math.abs(astar.getDistance() - reference[t]) < EPSILON,
+                        name + ": A* " + s + " -> " + t + " differs from the reference");
+                check(astar != null && astar.getSettled() <= route.getSettled(),
+                        name + ": A* " + s + " -> " + t + " settled more vertices than Dijkstra");
+
+                // so must both bidirectional searches, with real paths
+                checkRoute(map, bidirectional.shortestPath(s, t), s, t, reference[t], name + ": bidirectional Dijkstra");
+                checkRoute(map, bidirectionalAStar.shortestPath(s, t), s, t, reference[t], name + ": bidirectional A*");
+                checkRoute(map, hierarchy.shortestPath(s, t), s, t, reference[t], name + ": contraction hierarchy");
+                checkRoute(map, map.shortestPath(s, t, landmarks), s, t, reference[t], name + ": ALT");
+                checkRoute(map, bidirectionalALT.shortestPath(s, t), s, t, reference[t], name + ": bidirectional ALT");
+            }
+        }
+
+        // a heuristic lowered by a different random amount at every vertex
+        // is still admissible but no longer consistent; both A* searches
+        // must stay exact given its slack
+        double[] noise = new double[n];
+        for (int v = 0; v < n; v++) {
+            noise[v] = 0.05 * random.nextDouble();
+        }
+        ChordHeuristic chord = map.getChordHeuristic();
+        Heuristic noisy = new Heuristic() {
+            public double estimate(int u, int v) {
+                return Math.max(0, chord.estimate(u, v) - noise[u] - noise[v]);
+            }
+
+            public double slack() {
+                return 0.1;
+            }
+        };
+        BidirectionalSearch bidirectionalNoisy = new BidirectionalSearch(map, noisy);
+        for (int q = 0; q < 200; q++) {
+            int s = random.nextInt(n);
+            int t = random.nextInt(n);
+            Route route = map.shortestPath(s, t);
+            Route unidirectional = map.shortestPath(s, t, noisy);
+            Route bidirectionalRoute = bidirectionalNoisy.shortestPath(s, t);
+            if (route == null) {
+                check(unidirectional == null && bidirectionalRoute == null, name + ": inconsistent A* found a route " + s + " -> " + t);
+                continue;
+            }
+            checkRoute(map, unidirectional, s, t, route.getDistance(), name + ": inconsistent A*");
+            checkRoute(map, bidirectionalRoute, s, t, route.getDistance(), name + ": inconsistent bidirectional A*");
+        }
+
+        System.out.println(name + ": checked " + checked + " shortest paths, " +
+                            (failures - before) + " failure(s)");
+    }
+
+    /*
+        A saved landmark file is mapped again for the same map, and not for
+        a map with the same counts whose coordinates were edited.
+    */
+    static void checkLandmarkFile(String name, Graph map) throws IOException {
+        File alt = File.createTempFile("landmarks", ".alt");
+        File edited = File.createTempFile("edited", ".txt");
+        try {
+            Landmarks landmarks = Landmarks.select(map, 4);
+            landmarks.save(alt.getPath(), map);
+            Landmarks loaded = Landmarks.load(alt.getPath(), map);
+            check(loaded != null && Arrays.equals(loaded.getLandmarks(), landmarks.getLandmarks()),
+                    name + ": saved landmarks were not loaded again");
+            Random random = new Random(42);
+            for (int q = 0; loaded != null && q < 100; q++) {
+                int u = random.nextInt(map.vertexCount());
+                int v = random.nextInt(map.vertexCount());
+                check(loaded.estimate(u, v) == landmarks.estimate(u, v), name + ": loaded landmarks estimate differently");
+            }
+
+            // same intersections and roads, one of them moved
+            try (PrintWriter out = new PrintWriter(edited)) {
+                for (int v = 0; v < map.vertexCount(); v++) {
+                    out.println("i\t" + map.getID(v) + "\t" + (map.getLatitude(v) + ((v == 0) ? 0.01 : 0)) + "\t" +
+                                map.getLongitude(v));
+                }
+                for (int r = 0; r < map.roadCount(); r++) {
+                    out.println("r\t" + map.getRoadID(r) + "\t" + map.getID(map.getRoadStart(r)) + "\t" +
+                                map.getID(map.getRoadEnd(r)));
+                }
+            }
+            Graph moved = Main.loadMap(edited.getPath());
+            check(Landmarks.load(alt.getPath(), moved) == null, name + ": landmarks saved for the map were used for an edited map");
+        }
+        finally {
+            alt.delete();
+            edited.delete();
+        }
+
+        System.out.println(name + ": landmark file checked");
+    }
+
+    /*
+        The map reader's decimal parser must give exactly the double that
+        Double.parseDouble gives, on both its fast and its fallback path.
+    */
+    static void checkParseDouble() {
+        ArrayList<String> samples = new ArrayList<String>(Arrays.asList(
+            "0", "-0", "0.0", "43.128", "-77.6271", "+1.5", "1e10", "2.5E-3", "123456789012345678",
+            "1234567890123456789", "0.000000000000000000000001", "9007199254740993", "1.7976931348623157e308",
+            "4.9e-324", "-.5", "5.", "1e22", "1e23", "NaN", "-Infinity"));
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            samples.add(Double.toString((random.nextDouble() - 0.5) * 360));
+            samples.add(String.format("%.6f", (random.nextDouble() - 0.5) * 180));
+        }
+
+        for (String sample : samples) {
+            byte[] bytes = sample.getBytes();
+            double actual = MapReader.parseDouble(bytes, 0, bytes.length);
+            check(Double.compare(actual, Double.parseDouble(sample)) == 0,
+                    "parseDouble(\"" + sample + "\") is " + actual);
+        }
+    }
+
+    /*
+        Malformed map lines are reported as IOExceptions with the byte
+        offset of the line, the way Main and ShardWorker expect.
+    */
+    static void checkBadMaps() throws IOException {
+        String good = "i\tA\t43.1\t-77.6\ni\tB\t43.2\t-77.5\n";
+        String[][] cases = {
+            {good + "r\tAB\tA\tC\n", "unknown intersection C"},
+            {good + "i\tC\tabc\t-77.4\n", "bad coordinate 'abc'"},
+            {good + "r\tAB\tA\n", "fewer than 4 fields"}
+        };
+
+        File file = File.createTempFile("bad", ".txt");
+        try {
+            for (String[] c : cases) {
+                Files.write(file.toPath(), c[0].getBytes(StandardCharsets.UTF_8));
+                String message = null;
+                try {
+                    MapReader.read(file.getPath());
+                }
+                catch (IOException e) {
+                    message = e.getMessage();
+                }
+                String line = "Line at byte " + good.length();
+                check(message != null && message.startsWith(line) && message.contains(c[1]),
+                        "bad map line reported as " + message + ", expected " + line + " ... " + c[1]);
+            }
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+    /*
+        Kruskal's and Boruvka's algorithms must pick exactly the same roads
+        (equal weights are broken by index), one fewer than the vertices in
+        every connected piece, with the total weight Prim's algorithm finds.
+    */
+    static void checkSpanningTree(String name, Graph map) {
+        int[] kruskal = MinSpanningTree.kruskal(map);
+        int[] boruvka = MinSpanningTree.boruvka(map, 4);
+        int[] sorted = kruskal.clone();
+        Arrays.sort(sorted);
+        Arrays.sort(boruvka);
+        check(Arrays.equals(sorted, boruvka), name + ": Kruskal and Boruvka chose different roads");
+
+        // Prim's algorithm from every vertex not yet in a tree
+        int n = map.vertexCount();
+        boolean[] inTree = new boolean[n];
+        double primWeight = 0;
+        int pieces = 0;
+        PriorityQueue<double[]> queue = new PriorityQueue<double[]>((a, b) -> Double.compare(a[0], b[0]));
+        for (int root = 0; root < n; root++) {
+            if (inTree[root]) {
+                continue;
+            }
+
+            pieces++;
+            queue.add(new double[] {0, root});
+            while (!queue.isEmpty()) {
+                double[] next = queue.poll();
+                int v = (int)next[1];
+                if (inTree[v]) {
+                    continue;
+                }
+
+                inTree[v] = true;
+                primWeight += next[0];
+                for (int e = map.offsets[v]; e < map.offsets[v + 1]; e++) {
+                    if (!inTree[map.targets[e]]) {
+                        queue.add(new double[] {map.weights[e], map.targets[e]});
+                    }
+                }
+            }
+        }
+
+        double kruskalWeight = 0;
+        for (int r : kruskal) {
+            kruskalWeight += map.getRoadWeight(r);
+        }
+
+        check(kruskal.length == n - pieces, name + ": spanning forest has " + kruskal.length + " roads, expected " + (n - pieces));
+        check(Math.abs(kruskalWeight - primWeight) < EPSILON * Math.max(1, primWeight),
+                name + ": spanning forest weighs " + kruskalWeight + ", Prim's algorithm found " + primWeight);
+        check(map.minSpanningTree().size() == kruskal.length, name + ": minSpanningTree() differs from Kruskal");
+
+        System.out.println(name + ": spanning tree checked (" + kruskal.length + " roads)");
+    }
+
+    /*
+        Write a tile pyramid and an image laid out like its deepest level,
+        and check that every tile of the image with a road on it was
+        written and that no level past the useful zoom was.
+    */
+    static void checkTiles(String name, Graph map) throws IOException {
+        File directory = Files.createTempDirectory("tiles").toFile();
+        TileExporter exporter = new TileExporter(map, null, null, 2);
+        int level = Math.min(3, exporter.getMaxUsefulZoom());
+        try {
+            int written = exporter.writePyramid(directory.getPath(), level);
+            File image = new File(directory, "level.png");
+            exporter.writeImage(image.getPath(), 256 << level, 256 << level);
+            BufferedImage pixels = ImageIO.read(image);
+
+            int inked = 0;
+            for (int column = 0; column < 1 << level; column++) {
+                for (int row = 0; row < 1 << level; row++) {
+                    boolean ink = false;
+                    for (int y = row * 256; y < (row + 1) * 256 && !ink; y++) {
+                        for (int x = column * 256; x < (column + 1) * 256 && !ink; x++) {
+                            ink = (pixels.getRGB(x, y) & 0xffffff) != 0xffffff;
+                        }
+                    }
+                    if (ink) {
+                        inked++;
+                        check(new File(directory, level + "/" + column + "/" + row + ".png").exists(),
+                                name + ": tile " + level + "/" + column + "/" + row + " has roads but was not written");
+                    }
+                }
+            }
+            check(!new File(directory, String.valueOf(level + 1)).exists(), name + ": tiles written past zoom " + level);
+
+            if (level < exporter.getMaxUsefulZoom() || level == 20) {
+                System.out.println(name + ": tiles checked (" + written + " written, " + inked + " at zoom " + level + ")");
+            }
+            else {
+                int capped = exporter.writePyramid(directory.getPath(), level + 1);
+                check(capped == written && !new File(directory, String.valueOf(level + 1)).exists(),
+                        name + ": tiles written past the useful zoom " + level);
+                System.out.println(name + ": tiles checked (" + written + " written, " + inked + " at zoom " + level +
+                                    ", capped there)");
+            }
+        }
+        finally {
+            deleteTree(directory);
+        }
+    }
+
+    /*
+        Compare the spatial index with brute-force scans over every
+        intersection and road, at seeded random points in and around the
+        map.
+    */
+    static void checkSpatialIndex(String name, Graph map) {
+        SpatialIndex index = new SpatialIndex(map);
+        Random random = new Random(42);
+        double latSpan = map.getMaxLat() - map.getMinLat();
+        double longSpan = map.getMaxLong() - map.getMinLong();
+        int n = map.vertexCount();
+        int m = map.roadCount();
+
+        for (int q = 0; q < 200; q++) {
+            double lat = map.getMinLat() + (random.nextDouble() * 1.2 - 0.1) * latSpan;
+            double lon = map.getMinLong() + (random.nextDouble() * 1.2 - 0.1) * longSpan;
+
+            // k nearest intersections, compared by distance since ties
+            // may come back in either order
+            double[] all = new double[n];
+            for (int v = 0; v < n; v++) {
+                all[v] = Edge.haversine(lat, lon, map.getLatitude(v), map.getLongitude(v));
+            }
+            Arrays.sort(all);
+            int[] nearest = index.nearest(lat, lon, 5);
+            check(nearest.length == Math.min(5, n), name + ": nearest returned " + nearest.length + " intersections");
+            for (int i = 0; i < nearest.length; i++) {
+                double d = Edge.haversine(lat, lon, map.getLatitude(nearest[i]), map.getLongitude(nearest[i]));
+                check(Math.abs(d - all[i]) < EPSILON, name + ": nearest #" + i + " to " + lat + "," + lon + " is " + d +
+                                                        " miles away, expected " + all[i]);
+            }
+
+            double closestRoad = Double.POSITIVE_INFINITY;
+            for (int r = 0; r < m; r++) {
+                closestRoad = Math.min(closestRoad, index.distanceToRoad(r, lat, lon));
+            }
+            int road = index.nearestRoad(lat, lon);
+            check(road >= 0 && Math.abs(index.distanceToRoad(road, lat, lon) - closestRoad) < EPSILON,
+                    name + ": nearest road to " + lat + "," + lon + " is not the closest");
+
+            // a box around the point
+            double minLat = lat - random.nextDouble() * latSpan / 4;
+            double maxLat = lat + random.nextDouble() * latSpan / 4;
+            double minLong = lon - random.nextDouble() * longSpan / 4;
+            double maxLong = lon + random.nextDouble() * longSpan / 4;
+            IntList inside = new IntList();
+            for (int v = 0; v < n; v++) {
+                if (map.getLatitude(v) >= minLat && map.getLatitude(v) <= maxLat &&
+                    map.getLongitude(v) >= minLong && map.getLongitude(v) <= maxLong) {
+                    inside.add(v);
+                }
+            }
+            int[] within = index.within(minLat, minLong, maxLat, maxLong);
+            Arrays.sort(within);
+            check(Arrays.equals(within, inside.toArray()), name + ": bounding box query returned the wrong intersections");
+
+            IntList overlapping = new IntList();
+            for (int r = 0; r < m; r++) {
+                int a = map.getRoadStart(r);
+                int b = map.getRoadEnd(r);
+                if (Math.max(map.getLatitude(a), map.getLatitude(b)) >= minLat &&
+                    Math.min(map.getLatitude(a), map.getLatitude(b)) <= maxLat &&
+                    Math.max(map.getLongitude(a), map.getLongitude(b)) >= minLong &&
+                    Math.min(map.getLongitude(a), map.getLongitude(b)) <= maxLong) {
+                    overlapping.add(r);
+                }
+            }
+            int[] roads = index.roadsWithin(minLat, minLong, maxLat, maxLong);
+            Arrays.sort(roads);
+            check(Arrays.equals(roads, overlapping.toArray()), name + ": bounding box query returned the wrong roads");
+        }
+
+        System.out.println(name + ": spatial index checked (" + index.getColumns() + "x" + index.getRows() + " cells)");
+    }
+
+    /*
+        Convert a map to the binary format, load it back and check that
+        every intersection, road and adjacency entry survived unchanged.
+    */
+    static void checkMapFile(String name, Graph map) throws IOException {
+        File binary = File.createTempFile("map", ".bin");
+        binary.deleteOnExit();
+        MapFile.convert(map, binary.getPath());
+        check(MapFile.isBinary(binary.getPath()), name + ": binary magic not detected");
+
+        Graph loaded = Main.loadMap(binary.getPath());
+        check(loaded.vertexCount() == map.vertexCount() && loaded.roadCount() == map.roadCount(),
+                name + ": binary map has different counts");
+        check(loaded.getMinLat() == map.getMinLat() && loaded.getMaxLong() == map.getMaxLong(),
+                name + ": binary map has a different bounding box");
+
+        for (int v = 0; v < map.vertexCount(); v++) {
+            check(loaded.getID(v).equals(map.getID(v)) && loaded.indexOf(map.getID(v)) == map.indexOf(map.getID(v)) &&
+                  loaded.getLatitude(v) == map.getLatitude(v) && loaded.getLongitude(v) == map.getLongitude(v),
+                    name + ": binary map differs at intersection " + map.getID(v));
+        }
+        for (int r = 0; r < map.roadCount(); r++) {
+            check(loaded.getRoadID(r).equals(map.getRoadID(r)) && loaded.getRoadStart(r) == map.getRoadStart(r) &&
+                  loaded.getRoadEnd(r) == map.getRoadEnd(r) && loaded.getRoadWeight(r) == map.getRoadWeight(r),
+                    name + ": binary map differs at road " + map.getRoadID(r));
+        }
+        check(Arrays.equals(loaded.offsets, map.offsets) && Arrays.equals(loaded.targets, map.targets) &&
+              Arrays.equals(loaded.weights, map.weights) && Arrays.equals(loaded.edgeRoad, map.edgeRoad),
+                name + ": binary map has a different adjacency");
+        check(loaded.indexOf("no such intersection") == -1, name + ": binary map found an unknown id");
+
+        System.out.println(name + ": binary map round trip checked");
+    }
+
+    /*
+        Check that a route exists, joins s to t and has the expected length.
+    */
+    static void checkRoute(Graph map, Route route, int s, int t, double expected, String name) {
+        if (route == null) {
+            check(false, name + " found no route " + s + " -> " + t);
+            return;
+        }
+
+        check(route.getStart() == s && route.getEnd() == t, name + " route " + s + " -> " + t + " has wrong ends");
+        check(Math.abs(route.getDistance() - expected) < EPSILON,
+                name + " " + s + " -> " + t + " is " + route.getDistance() + ", expected " + expected);
+        check(Math.abs(pathLength(map, route.getVertices()) - expected) < EPSILON,
+                name + " route " + s + " -> " + t + " is not a path of the reported length");
+    }
+
+    /*
+        Brute-force reference: Bellman-Ford from one source, relaxing
+        every road in both directions until nothing changes.
+    */
+    static double[] bellmanFord(Graph map, int source) {
+        double[] dist = new double[map.vertexCount()];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        dist[source] = 0;
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int r = 0; r < map.roadCount(); r++) {
+                int a = map.getRoadStart(r);
+                int b = map.getRoadEnd(r);
+                double w = map.getRoadWeight(r);
+
+                if (dist[a] + w < dist[b]) {
+                    dist[b] = dist[a] + w;
+                    changed = true;
+                }
+                if (dist[b] + w < dist[a]) {
+                    dist[a] = dist[b] + w;
+                    changed = true;
+                }
+            }
+        }
+
+        return dist;
+    }
+
+    /*
+        Length of a path given as vertex indices, or infinity if two
+        consecutive vertices are not joined by a road.
+    */
+    static double pathLength(Graph map, int[] path) {
+        double length = 0;
+        for (int i = 0; i + 1 < path.length; i++) {
+            double best = Double.POSITIVE_INFINITY;
+            for (int e = map.offsets[path[i]]; e < map.offsets[path[i] + 1]; e++) {
+                if (map.targets[e] == path[i + 1]) {
+                    best = Math.min(best, map.weights[e]);
+                }
+            }
+            length += best;
+        }
+
+        return length;
+    }
+
+    /*
+        Record a failed check and print its message.
+    */
+    static void check(boolean condition, String message) {
+        if (!condition) {
+            failures++;
+            System.out.println("FAIL: " + message);
+        }
+    }
+
+    /*
+        Delete a temporary directory and everything in it.
+    */
+    static void deleteTree(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteTree(child);
+            }
+        }
+        file.delete();
     }
 
     public static ArrayList<Vertex> retrievePath(Vertex end, Vertex start) {
@@ -0,0 +1,358 @@
+/**
+ *  @file   TileExporter.java
+ *  @brief  Class to render a map without a window: a z/x/y pyramid of
+ *          PNG tiles or a single large PNG image, with the shortest path
+ *          and minimum spanning tree drawn over the roads. Tiles use the
+ *          same projection and TileRenderer as the Canvas and are
+ *          rendered on a fork/join pool, each with its own road lookup.
+ *  @author Mustafa Siddiqui
+ *  @date   10/18/2026
+ */
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
+
+public class TileExporter {
+    private static final int TILE_SIZE = TileRenderer.TILE_SIZE;
+
+    // deepest zoom level, where the map is 256 * 2^20 pixels across
+    private static final int MAX_ZOOM = 20;
+
+    // no level is rendered past the one where a pixel is about a yard
+    private static final double MIN_PIXEL_MILES = 0.0005;
+
+    private Graph map;
+    private SpatialIndex index;
+
+    // overlays, null if there are none
+    private ArrayList<Vertex> path;
+    private int[] treeRoads;
+
+    // threads used to render
+    private int threads;
+
+    /*
+        Constructor for the TileExporter class.
+        @param: map     -   graph to draw
+        @param: path    -   shortest path from end to start as returned by
+                            Graph.getPath(), or null
+        @param: tree    -   roads of the minimum spanning tree, or null
+        @param: threads -   number of threads to render on
+    */
+    public TileExporter(Graph map, ArrayList<Vertex> path, ArrayList<Edge> tree, int threads) {
+        this.map = map;
+        this.index = new SpatialIndex(map);
+        this.path = path;
+        this.threads = Math.max(1, threads);
+
+        if (tree != null) {
+            treeRoads = new int[tree.size()];
+            for (int i = 0; i < treeRoads.length; i++) {
+                treeRoads[i] = map.indexOfRoad(tree.get(i).getID());
+            }
+        }
+    }
+
+    /*
+        Write the tiles of zoom levels 0 to maxZoom as directory/z/x/y.png.
+        At level z the map is fitted to a square of 256 * 2^z pixels,
+        split into 2^z by 2^z tiles. Only the tiles a road or the path
+        crosses are rendered, found by walking every road across the
+        columns of tiles, so a level costs about as much as its ink and
+        not 4^z. Tiles with nothing on them are not written, so a tile
+        server should treat a missing tile as blank. Levels deeper than
+        getMaxUsefulZoom() are not written either.
+        @return: number of tiles written
+    */
+    public int writePyramid(String directory, int maxZoom) throws IOException {
+        if (maxZoom < 0 || maxZoom > MAX_ZOOM) {
+            throw new IllegalArgumentException("Zoom level must be between 0 and " + MAX_ZOOM);
+        }
+        maxZoom = Math.min(maxZoom, getMaxUsefulZoom());
+
+        AtomicInteger written = new AtomicInteger();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (int z = 0; z <= maxZoom; z++) {
+                int level = z;
+                int count = 1 << z;
+                Projection projection = new Projection(map);
+                projection.setSize(count * TILE_SIZE, count * TILE_SIZE);
+                TileRenderer renderer = newRenderer(projection);
+                double[] pathBox = pathBox(projection);
+                long[] occupied = occupiedTiles(projection, count);
+
+                // one task per column of occupied tiles
+                List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+                for (int i = 0; i < occupied.length; ) {
+                    int column = (int)(occupied[i] >>> 32);
+                    int first = i;
+                    while (i < occupied.length && (int)(occupied[i] >>> 32) == column) {
+                        i++;
+                    }
+                    int last = i;
+                    tasks.add(() -> {
+                        File folder = new File(directory, level + File.separator + column);
+                        for (int j = first; j < last; j++) {
+                            int row = (int)occupied[j];
+                            int[] roads = renderer.roadsIn(column, row, 0, 0);
+                            if (roads.length == 0 && !touches(pathBox, column, row)) {
+                                continue;
+                            }
+
+                            BufferedImage tile = renderer.render(column, row, roads, Color.WHITE);
+                            if (touches(pathBox, column, row)) {
+                                Graphics2D g = tile.createGraphics();
+                                drawPath(g, projection, column * TILE_SIZE, row * TILE_SIZE);
+                                g.dispose();
+                            }
+
+                            folder.mkdirs();
+                            ImageIO.write(tile, "png", new File(folder, row + ".png"));
+                            written.incrementAndGet();
+                        }
+                        return null;
+                    });
+                }
+                runAll(pool, tasks);
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+
+        return written.get();
+    }
+
+    /*
+        Returns the deepest zoom level worth rendering: the first level at
+        which a pixel covers at most MIN_PIXEL_MILES of the map in both
+        directions. Deeper levels only blow up the same lines, with 4
+        times the tiles each.
+    */
+    public int getMaxUsefulZoom() {
+        double midLat = (map.getMinLat() + map.getMaxLat()) / 2;
+        double midLong = (map.getMinLong() + map.getMaxLong()) / 2;
+        double width = Edge.haversine(midLat, map.getMinLong(), midLat, map.getMaxLong());
+        double height = Edge.haversine(map.getMinLat(), midLong, map.getMaxLat(), midLong);
+
+        // the map takes 90% of the width and 70% of the height of a level
+        double pixels = Math.max(width / 0.9, height / 0.7) / MIN_PIXEL_MILES;
+        int zoom = 0;
+        while (zoom < MAX_ZOOM && (double)TILE_SIZE * (1 << zoom) < pixels) {
+            zoom++;
+        }
+
+        return zoom;
+    }
+
+    /*
+        Helper method to find the tiles of a level that a road or the
+        shortest path crosses.
+        @return: keys column << 32 | row, sorted and without repeats
+    */
+    private long[] occupiedTiles(Projection projection, int count) {
+        HashSet<Long> tiles = new HashSet<Long>();
+        for (int r = 0; r < map.roadCount(); r++) {
+            int a = map.getRoadStart(r);
+            int b = map.getRoadEnd(r);
+            markSegment(tiles, projection.x(map.getLongitude(a)), projection.y(map.getLatitude(a)),
+                        projection.x(map.getLongitude(b)), projection.y(map.getLatitude(b)), 2, count);
+        }
+
+        if (path != null) {
+            for (int i = 0; i < path.size(); i++) {
+                Vertex curr = path.get(i);
+                Vertex next = path.get(Math.min(i + 1, path.size() - 1));
+                markSegment(tiles, projection.x(curr.getLongitude()), projection.y(curr.getLatitude()),
+                            projection.x(next.getLongitude()), projection.y(next.getLatitude()), 6, count);
+            }
+        }
+
+        long[] keys = new long[tiles.size()];
+        int i = 0;
+        for (long key : tiles) {
+            keys[i++] = key;
+        }
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    /*
+        Helper method to add the tiles within margin pixels of a line,
+        one column of tiles at a time.
+    */
+    private static void markSegment(HashSet<Long> tiles, double x0, double y0, double x1, double y1,
+                                    double margin, int count) {
+        if (x0 > x1) {
+            double t = x0; x0 = x1; x1 = t;
+            t = y0; y0 = y1; y1 = t;
+        }
+
+        int firstColumn = Math.max(0, (int)Math.floor((x0 - margin) / TILE_SIZE));
+        int lastColumn = Math.min(count - 1, (int)Math.floor((x1 + margin) / TILE_SIZE));
+        for (int column = firstColumn; column <= lastColumn; column++) {
+            // the part of the line over this column and its margins
+            double left = Math.min(x1, Math.max(x0, column * TILE_SIZE - margin));
+            double right = Math.max(x0, Math.min(x1, (column + 1) * TILE_SIZE + margin));
+            double yLeft = (x1 > x0) ? y0 + (y1 - y0) * (left - x0) / (x1 - x0) : y0;
+            double yRight = (x1 > x0) ? y0 + (y1 - y0) * (right - x0) / (x1 - x0) : y1;
+
+            int firstRow = Math.max(0, (int)Math.floor((Math.min(yLeft, yRight) - margin) / TILE_SIZE));
+            int lastRow = Math.min(count - 1, (int)Math.floor((Math.max(yLeft, yRight) + margin) / TILE_SIZE));
+            for (int row = firstRow; row <= lastRow; row++) {
+                tiles.add(((long)column << 32) | row);
+            }
+        }
+    }
+
+    /*
+        Write the whole map as one PNG image of the given size, laid out
+        as the Canvas would show it in a window of that size.
+    */
+    public void writeImage(String fileName, int width, int height) throws IOException {
+        Projection projection = new Projection(map);
+        projection.setSize(width, height);
+        TileRenderer renderer = newRenderer(projection);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+
+        // one task per row of tiles, pasted into the image as they finish
+        int columns = (width + TILE_SIZE - 1) / TILE_SIZE;
+        int rows = (height + TILE_SIZE - 1) / TILE_SIZE;
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int y = 0; y < rows; y++) {
+            int row = y;
+            tasks.add(() -> {
+                for (int column = 0; column < columns; column++) {
+                    BufferedImage tile = renderer.render(column, row, renderer.roadsIn(column, row, 0, 0), Color.WHITE);
+                    synchronized (image) {
+                        Graphics2D g = image.createGraphics();
+                        g.drawImage(tile, column * TILE_SIZE, row * TILE_SIZE, null);
+                        g.dispose();
+                    }
+                }
+                return null;
+            });
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            runAll(pool, tasks);
+        }
+        finally {
+            pool.shutdown();
+        }
+
+        Graphics2D g = image.createGraphics();
+        drawPath(g, projection, 0, 0);
+        g.dispose();
+
+        if (!ImageIO.write(image, "png", new File(fileName))) {
+            throw new IOException("No PNG writer available");
+        }
+    }
+
+    /*
+        Helper method to create a renderer for a projection with the
+        roads in black and the spanning tree, if any, in red.
+    */
+    private TileRenderer newRenderer(Projection projection) {
+        TileRenderer renderer = new TileRenderer(map, index, projection);
+        if (treeRoads != null) {
+            renderer.setHighlight(treeRoads, Color.RED);
+        }
+        renderer.prepare(Color.BLACK);
+        return renderer;
+    }
+
+    /*
+        Returns the pixel bounding box {minX, minY, maxX, maxY} of the
+        shortest path with room for its end markers, or null if there is
+        no path.
+    */
+    private double[] pathBox(Projection projection) {
+        if (path == null || path.isEmpty()) {
+            return null;
+        }
+
+        double[] box = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (Vertex v : path) {
+            double x = projection.x(v.getLongitude());
+            double y = projection.y(v.getLatitude());
+            box[0] = Math.min(box[0], x - 6);
+            box[1] = Math.min(box[1], y - 6);
+            box[2] = Math.max(box[2], x + 6);
+            box[3] = Math.max(box[3], y + 6);
+        }
+
+        return box;
+    }
+
+    private static boolean touches(double[] box, int column, int row) {
+        return box != null && box[2] >= column * TILE_SIZE && box[0] < (column + 1) * TILE_SIZE &&
+               box[3] >= row * TILE_SIZE && box[1] < (row + 1) * TILE_SIZE;
+    }
+
+    /*
+        Draw the shortest path the way the Canvas does: a thick red line
+        with orange dots on its ends.
+        @param: originX, originY    -   pixel of the projection at the
+                                        top left of the image drawn on
+    */
+    private void drawPath(Graphics2D g, Projection projection, int originX, int originY) {
+        if (path == null || path.isEmpty()) {
+            return;
+        }
+
+        g.setColor(Color.RED);
+        g.setStroke(new BasicStroke(3));
+        for (int i = 0; i < path.size() - 1; i++) {
+            Vertex curr = path.get(i);
+            Vertex next = path.get(i + 1);
+            g.drawLine((int)projection.x(curr.getLongitude()) - originX, (int)projection.y(curr.getLatitude()) - originY,
+                       (int)projection.x(next.getLongitude()) - originX, (int)projection.y(next.getLatitude()) - originY);
+        }
+
+        g.setColor(Color.ORANGE);
+        for (Vertex end : new Vertex[] {path.get(0), path.get(path.size() - 1)}) {
+            g.fillOval((int)projection.x(end.getLongitude()) - originX - 5,
+                       (int)projection.y(end.getLatitude()) - originY - 5, 10, 10);
+        }
+    }
+
+    /*
+        Helper method to run tasks on a pool and wait for all of them,
+        passing on the first failure.
+    */
+    private static void runAll(ForkJoinPool pool, List<Callable<Void>> tasks) throws IOException {
+        try {
+            for (Future<Void> result : pool.invokeAll(tasks)) {
+                result.get();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while rendering", e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException)e.getCause();
+            }
+            throw new IllegalStateException("Rendering failed", e.getCause());
+        }
+    }
+}
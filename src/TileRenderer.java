@@ -0,0 +1,285 @@
+/**
+ *  @file   TileRenderer.java
+ *  @brief  Class to draw the static part of the map (every road, and the
+ *          minimum spanning tree once computed) into cached image tiles.
+ *          Tiles are rendered in parallel, reused while the map is only
+ *          panned and dropped when the canvas is resized or zoomed, so a
+ *          repaint costs about the same however large the map is.
+ *  @author Mustafa Siddiqui
+ *  @date   10/18/2026
+ */
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+public class TileRenderer {
+    // width and height of a tile in pixels
+    static final int TILE_SIZE = 256;
+
+    // tiles kept around for panning back, least recently drawn dropped first
+    private static final int MAX_TILES = 128;
+
+    private Graph map;
+    private SpatialIndex index;
+    private Projection projection;
+
+    // base position of every intersection for the current canvas size
+    private double[] baseX;
+    private double[] baseY;
+
+    // roads drawn over the others in the highlight color, null if none
+    private boolean[] highlighted;
+    private Color highlightColor;
+
+    /*
+        Tiles are keyed by their column and row in zoomed base coordinates
+        (zoom * base position), which do not change when the map is
+        panned. The size, zoom and color they were drawn for are kept to
+        notice when they go stale.
+    */
+    private LinkedHashMap<Long, BufferedImage> tiles = new LinkedHashMap<Long, BufferedImage>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, BufferedImage> eldest) {
+            return size() > MAX_TILES;
+        }
+    };
+    private int width = -1;
+    private int height = -1;
+    private double zoom = Double.NaN;
+    private Color color;
+
+    // number of tiles rendered so far
+    private long rendered = 0;
+
+    /*
+        Constructor for the TileRenderer class.
+        @param: map         -   graph to draw
+        @param: index       -   spatial index of the graph
+        @param: projection  -   projection of the canvas the tiles are for
+    */
+    public TileRenderer(Graph map, SpatialIndex index, Projection projection) {
+        this.map = map;
+        this.index = index;
+        this.projection = projection;
+    }
+
+    /*
+        Draw a set of roads over the others in the given color, or none if
+        roads is null.
+    */
+    public void setHighlight(int[] roads, Color color) {
+        if (roads == null) {
+            highlighted = null;
+        }
+        else {
+            highlighted = new boolean[map.roadCount()];
+            for (int r : roads) {
+                highlighted[r] = true;
+            }
+        }
+        highlightColor = color;
+        invalidate();
+    }
+
+    /*
+        Drop every cached tile.
+    */
+    public void invalidate() {
+        tiles.clear();
+    }
+
+    /*
+        Draw the part of the map inside the clip rectangle, rendering the
+        missing tiles first. Must be called with the projection already
+        sized to the canvas.
+        @param: g       -   graphics of the canvas
+        @param: clip    -   area of the canvas to draw
+        @param: color   -   color of the roads
+    */
+    public void paint(Graphics g, Rectangle clip, Color color) {
+        prepare(color);
+
+        // whole pixels, so neighbouring tiles line up exactly
+        int panX = (int)Math.round(projection.getPanX());
+        int panY = (int)Math.round(projection.getPanY());
+        int firstColumn = Math.floorDiv(clip.x - panX, TILE_SIZE);
+        int lastColumn = Math.floorDiv(clip.x + clip.width - 1 - panX, TILE_SIZE);
+        int firstRow = Math.floorDiv(clip.y - panY, TILE_SIZE);
+        int lastRow = Math.floorDiv(clip.y + clip.height - 1 - panY, TILE_SIZE);
+
+        // render the missing tiles in parallel
+        ArrayList<Long> missing = new ArrayList<Long>();
+        ArrayList<Callable<BufferedImage>> tasks = new ArrayList<Callable<BufferedImage>>();
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                long key = key(column, row);
+                if (!tiles.containsKey(key)) {
+                    int c = column;
+                    int r = row;
+                    missing.add(key);
+                    tasks.add(() -> render(c, r, roadsIn(c, r, panX, panY), null));
+                }
+            }
+        }
+        if (!tasks.isEmpty()) {
+            List<BufferedImage> images = runAll(tasks);
+            for (int i = 0; i < images.size(); i++) {
+                tiles.put(missing.get(i), images.get(i));
+            }
+            rendered += images.size();
+        }
+
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                g.drawImage(tiles.get(key(column, row)), column * TILE_SIZE + panX, row * TILE_SIZE + panY, null);
+            }
+        }
+    }
+
+    /*
+        Returns the number of tiles rendered so far.
+    */
+    public long getRenderedCount() {
+        return rendered;
+    }
+
+    /*
+        Helper method to compute the base position of every intersection.
+    */
+    private void computeBasePositions() {
+        int n = map.vertexCount();
+        baseX = new double[n];
+        baseY = new double[n];
+        for (int v = 0; v < n; v++) {
+            baseX[v] = projection.baseX(map.getLongitude(v));
+            baseY[v] = projection.baseY(map.getLatitude(v));
+        }
+    }
+
+    private static long key(int column, int row) {
+        return ((long)column << 32) | (row & 0xffffffffL);
+    }
+
+    /*
+        Bring the base positions up to date with the projection and drop
+        the tiles if the size, zoom or color changed. Has to be called
+        before tiles are rendered, and not while any are being rendered.
+    */
+    void prepare(Color color) {
+        if (projection.getWidth() != width || projection.getHeight() != height || baseX == null) {
+            width = projection.getWidth();
+            height = projection.getHeight();
+            computeBasePositions();
+            invalidate();
+        }
+        if (projection.getZoom() != zoom || !color.equals(this.color)) {
+            zoom = projection.getZoom();
+            this.color = color;
+            invalidate();
+        }
+    }
+
+    /*
+        Returns the roads overlapping a tile, with a pixel of margin.
+        @param: panX, panY  -   pan of the projection in whole pixels
+    */
+    int[] roadsIn(int column, int row, int panX, int panY) {
+        int left = column * TILE_SIZE + panX - 1;
+        int top = row * TILE_SIZE + panY - 1;
+        return index.roadsWithin(projection.latitude(top + TILE_SIZE + 2), projection.longitude(left),
+                                 projection.latitude(top), projection.longitude(left + TILE_SIZE + 2));
+    }
+
+    /*
+        Draw one tile: the given roads, then the highlighted ones on top.
+        A road shorter than a pixel is drawn as a dot, once per pixel.
+        Safe to call from several threads at once after prepare().
+        @param: roads       -   roads overlapping the tile, from roadsIn()
+        @param: background  -   color to fill the tile with first, or null
+                                to leave it transparent
+    */
+    BufferedImage render(int column, int row, int[] roads, Color background) {
+        long startTime = Stats.start();
+        BufferedImage image = new BufferedImage(TILE_SIZE, TILE_SIZE,
+                                                (background == null) ? BufferedImage.TYPE_INT_ARGB_PRE : BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        if (background != null) {
+            g.setColor(background);
+            g.fillRect(0, 0, TILE_SIZE, TILE_SIZE);
+        }
+
+        g.setColor(color);
+        drawRoads(g, roads, false, column, row);
+        if (highlighted != null) {
+            g.setColor(highlightColor);
+            drawRoads(g, roads, true, column, row);
+        }
+
+        g.dispose();
+        Stats.end(Stats.Phase.TILE, startTime);
+        return image;
+    }
+
+    private void drawRoads(Graphics2D g, int[] roads, boolean highlight, int column, int row) {
+        double originX = (double)column * TILE_SIZE;
+        double originY = (double)row * TILE_SIZE;
+        BitSet dots = new BitSet(TILE_SIZE * TILE_SIZE);
+
+        for (int r : roads) {
+            if (highlight && !highlighted[r]) {
+                continue;
+            }
+
+            int a = map.getRoadStart(r);
+            int b = map.getRoadEnd(r);
+            int x1 = (int)Math.floor(zoom * baseX[a] - originX);
+            int y1 = (int)Math.floor(zoom * baseY[a] - originY);
+            int x2 = (int)Math.floor(zoom * baseX[b] - originX);
+            int y2 = (int)Math.floor(zoom * baseY[b] - originY);
+
+            if (x1 == x2 && y1 == y2) {
+                if (x1 >= 0 && x1 < TILE_SIZE && y1 >= 0 && y1 < TILE_SIZE && !dots.get(y1 * TILE_SIZE + x1)) {
+                    dots.set(y1 * TILE_SIZE + x1);
+                    g.fillRect(x1, y1, 1, 1);
+                }
+            }
+            else {
+                g.drawLine(x1, y1, x2, y2);
+            }
+        }
+    }
+
+    /*
+        Helper method to run the tile renders on the common fork/join pool
+        and collect the images in order.
+    */
+    private static List<BufferedImage> runAll(List<Callable<BufferedImage>> tasks) {
+        ArrayList<BufferedImage> images = new ArrayList<BufferedImage>(tasks.size());
+        try {
+            for (Future<BufferedImage> result : ForkJoinPool.commonPool().invokeAll(tasks)) {
+                images.add(result.get());
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while rendering tiles", e);
+        }
+        catch (ExecutionException e) {
+            throw new IllegalStateException("Tile rendering failed", e.getCause());
+        }
+
+        return images;
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ *  @file   UnionFind.java
+ *  @brief  Class to implement a disjoint-set forest over int elements
+ *          with path compression and union by rank, so every operation
+ *          takes close to constant amortized time.
+ *  @author Mustafa Siddiqui
+ *  @date   10/18/2026
+ */
+
+public class UnionFind {
+    private int[] parent;
+    private byte[] rank;
+    private int sets;
+
+    /*
+        Constructor for the UnionFind class.
+        @param: size    -   elements are 0 .. size - 1, each in its own set
+    */
+    public UnionFind(int size) {
+        parent = new int[size];
+        rank = new byte[size];
+        for (int i = 0; i < size; i++) {
+            parent[i] = i;
+        }
+        sets = size;
+    }
+
+    /*
+        Returns the representative of the set containing an element,
+        pointing every element on the way directly at it.
+    */
+    public int find(int x) {
+        int root = x;
+        while (parent[root] != root) {
+            root = parent[root];
+        }
+
+        while (parent[x] != root) {
+            int next = parent[x];
+            parent[x] = root;
+            x = next;
+        }
+
+        return root;
+    }
+
+    /*
+        Returns the representative of the set containing an element
+        without changing the forest, so several threads can call it at
+        once while no unions are running.
+    */
+    public int root(int x) {
+        while (parent[x] != x) {
+            x = parent[x];
+        }
+
+        return x;
+    }
+
+    /*
+        Merge the sets containing two elements, hanging the shallower
+        tree under the deeper one.
+        @return: true if they were in different sets
+    */
+    public boolean union(int a, int b) {
+        a = find(a);
+        b = find(b);
+        if (a == b) {
+            return false;
+        }
+
+        if (rank[a] < rank[b]) {
+            parent[a] = b;
+        }
+        else if (rank[a] > rank[b]) {
+            parent[b] = a;
+        }
+        else {
+            parent[b] = a;
+            rank[a]++;
+        }
+
+        sets--;
+        return true;
+    }
+
+    /*
+        Returns the number of disjoint sets.
+    */
+    public int sets() {
+        return sets;
+    }
+}
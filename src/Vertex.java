@@ -5,22 +5,20 @@
  *  @date   04/25/2021
  */
 
-import java.util.ArrayList;
-
 public class Vertex implements Comparable<Vertex> {
     // basic parameters
     private double latitude;
     private double longitude;
     private String id;
 
+    // index of the intersection in the graph it was added to, -1 if none
+    private int index = -1;
+
     // initialize parameters for Dijkstra's algorithm 
     private double distance = Double.MAX_VALUE;
     private boolean visited = false;
     private Vertex parent = null;
 
-    // adjacency list for storing all the edges connected to a vertex
-    private ArrayList<Edge> adjList = new ArrayList<Edge>();
-
     /*
         Constructor for the Vertex class.
         @param: intersectionID  -   id
@@ -68,8 +66,8 @@ public class Vertex implements Comparable<Vertex> {
         visited = val;
     }
 
-    void setAdjList(ArrayList<Edge> list) {
-        adjList = list;
+    void setIndex(int i) {
+        index = i;
     }
 
     /*
@@ -80,6 +78,10 @@ public class Vertex implements Comparable<Vertex> {
         return id;
     }
 
+    public int getIndex() {
+        return index;
+    }
+
     public double getLatitude() {
         return latitude;
     }
@@ -99,10 +101,6 @@ public class Vertex implements Comparable<Vertex> {
     public boolean getVisited() {
         return visited;
     }
-    
-    public ArrayList<Edge> getAdjList() {
-        return adjList;
-    }
 
     /*
         Returns the vertex parameters as a string.